@@ -139,6 +139,9 @@ CREATE TABLE IF NOT EXISTS file_info (
     file_type VARCHAR(100) COMMENT '文件类型',
     file_extension VARCHAR(50) COMMENT '文件扩展名',
     file_md5 VARCHAR(32) NOT NULL COMMENT '文件MD5值',
+    content_hash CHAR(64) COMMENT '文件内容SHA-256哈希',
+    parent_folder_id BIGINT NOT NULL DEFAULT 0 COMMENT '父级文件夹ID，0表示根目录',
+    folder_path VARCHAR(1000) CHARACTER SET ascii NOT NULL DEFAULT '/' COMMENT '祖先文件夹ID路径（物化路径），如/1/5/表示位于文件夹1下的文件夹5中',
     upload_user_id BIGINT NOT NULL COMMENT '上传用户ID',
     upload_user_name VARCHAR(50) COMMENT '上传用户名',
     status TINYINT DEFAULT 1 COMMENT '文件状态：0-删除，1-正常',
@@ -152,14 +155,124 @@ CREATE TABLE IF NOT EXISTS file_info (
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted TINYINT DEFAULT 0 COMMENT '是否删除：0-否，1-是',
+    -- 未删除文件夹的名称，其余行为NULL，唯一索引中NULL互不冲突，已删除的文件夹不占用名称
+    folder_name VARCHAR(255) AS (IF(file_type = 'folder' AND deleted = 0, file_name, NULL)) VIRTUAL COMMENT '文件夹名称（生成列）',
     INDEX idx_file_name (file_name),
-    INDEX idx_file_type (file_type),
     INDEX idx_file_md5 (file_md5),
-    INDEX idx_upload_user_id (upload_user_id),
+    INDEX idx_content_hash (content_hash),
+    INDEX idx_object_name (object_name(191)),
     INDEX idx_status (status),
-    INDEX idx_deleted (deleted)
+    INDEX idx_update_time (update_time),
+    INDEX idx_deleted (deleted),
+    -- 按创建时间倒序的键集分页（二级索引隐含主键id，覆盖(create_time, id)排序）
+    INDEX idx_create_time (create_time),
+    INDEX idx_user_create_time (upload_user_id, create_time),
+    INDEX idx_type_create_time (file_type, create_time),
+    -- 同一文件夹下同一用户的文件夹不重名；最左前缀同时用于按父文件夹查询
+    UNIQUE KEY uk_parent_folder_name (parent_folder_id, upload_user_id, folder_name),
+    -- 子树按路径前缀范围查询，file_type在索引内过滤
+    INDEX idx_folder_path (folder_path, file_type),
+    -- 关键词全文检索（ngram分词支持中文，分词长度取服务端ngram_token_size，默认2）
+    FULLTEXT INDEX ft_keyword (file_name, description, tags) WITH PARSER ngram,
+    FULLTEXT INDEX ft_file_name (file_name) WITH PARSER ngram
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件信息表';
 
+-- 文件内容表（内容寻址存储，按引用计数回收）
+CREATE TABLE IF NOT EXISTS file_blob (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '内容ID',
+    content_hash CHAR(64) NOT NULL COMMENT '内容SHA-256哈希',
+    file_md5 VARCHAR(32) COMMENT '内容MD5值',
+    file_size BIGINT NOT NULL COMMENT '内容大小（字节）',
+    bucket_name VARCHAR(100) COMMENT 'MinIO存储桶名称',
+    object_name VARCHAR(500) NOT NULL COMMENT 'MinIO对象名称',
+    ref_count INT NOT NULL DEFAULT 0 COMMENT '引用计数',
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_content_hash (content_hash)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件内容表';
+
+-- 文件提取文本表（按内容哈希缓存，相同内容的文件只提取一次）
+CREATE TABLE IF NOT EXISTS file_content_text (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '记录ID',
+    content_key VARCHAR(64) NOT NULL COMMENT '内容键（SHA-256哈希，未去重的文件为MD5）',
+    content MEDIUMTEXT COMMENT '提取的文本',
+    truncated TINYINT NOT NULL DEFAULT 0 COMMENT '是否因超过字符上限被截断',
+    status VARCHAR(10) NOT NULL COMMENT '提取状态：SUCCESS-成功，FAILED-失败',
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_content_key (content_key)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件提取文本表';
+
+-- 文件分享表（用户和角色分享同步到ES文档，用于搜索时的可见范围过滤）
+CREATE TABLE IF NOT EXISTS file_share (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '分享ID',
+    file_id BIGINT NOT NULL COMMENT '文件ID',
+    share_type VARCHAR(10) NOT NULL COMMENT '分享类型：LINK-链接分享，USER-分享给用户，ROLE-分享给角色',
+    target_id BIGINT COMMENT '被分享的用户ID或角色ID，链接分享为空',
+    share_code VARCHAR(16) COMMENT '分享码',
+    create_user_id BIGINT NOT NULL COMMENT '分享人ID',
+    expire_time TIMESTAMP NULL COMMENT '过期时间，为空时不过期',
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_file_target (file_id, share_type, target_id),
+    INDEX idx_create_user_id (create_user_id),
+    INDEX idx_expire_time (expire_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件分享表';
+
+-- 标签字典（标签名只保存一份，文件标签按ID关联；file_count随关联增删增量维护）
+CREATE TABLE IF NOT EXISTS tag_dict (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '标签ID',
+    tag_name VARCHAR(50) COLLATE utf8mb4_bin NOT NULL COMMENT '标签名（区分大小写，与ES的keyword字段一致）',
+    file_count INT NOT NULL DEFAULT 0 COMMENT '使用该标签的文件数',
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_tag_name (tag_name),
+    INDEX idx_file_count (file_count)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='标签字典';
+
+-- 文件标签关联（主键按文件查标签，idx_tag_file按标签查文件，两者都是覆盖索引）
+CREATE TABLE IF NOT EXISTS file_tag (
+    file_id BIGINT NOT NULL COMMENT '文件ID',
+    tag_id BIGINT NOT NULL COMMENT '标签ID',
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (file_id, tag_id),
+    INDEX idx_tag_file (tag_id, file_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件标签关联表';
+
+-- 索引死信表（批量索引最终失败的文件，由定时任务重试）
+CREATE TABLE IF NOT EXISTS es_index_dead_letter (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '记录ID',
+    file_id BIGINT NOT NULL COMMENT '文件ID',
+    op_type VARCHAR(10) NOT NULL COMMENT '操作类型：INDEX-索引，DELETE-删除',
+    error_message VARCHAR(1000) COMMENT '失败原因',
+    retry_count INT NOT NULL DEFAULT 0 COMMENT '已重试次数',
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_file_id (file_id),
+    INDEX idx_retry_count (retry_count)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='索引死信表';
+
+-- 索引同步发件箱（与file_info变更在同一事务中写入，由中继按ID顺序同步到ES）
+CREATE TABLE IF NOT EXISTS es_sync_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '记录ID',
+    file_id BIGINT NOT NULL COMMENT '文件ID',
+    op_type VARCHAR(10) NOT NULL COMMENT '操作类型：INDEX-全量索引，PARTIAL-部分更新，DELETE-删除',
+    fields VARCHAR(255) COMMENT '部分更新的字段（逗号分隔）',
+    create_time TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='索引同步发件箱';
+
+-- 索引同步检查点（中继已处理到的发件箱ID）
+CREATE TABLE IF NOT EXISTS es_sync_checkpoint (
+    name VARCHAR(50) PRIMARY KEY COMMENT '检查点名称',
+    last_id BIGINT NOT NULL DEFAULT 0 COMMENT '已处理的最大发件箱ID',
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='索引同步检查点';
+
+-- 索引同步跳过的发件箱ID（中继越过的ID空洞，事务晚提交时重新入队）
+CREATE TABLE IF NOT EXISTS es_sync_outbox_gap (
+    outbox_id BIGINT PRIMARY KEY COMMENT '跳过的发件箱ID',
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '跳过时间',
+    INDEX idx_create_time (create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='索引同步跳过的发件箱ID';
+
 -- 系统配置表
 CREATE TABLE IF NOT EXISTS sys_config (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '配置ID',
@@ -3,6 +3,7 @@ package com.esfile;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 // ES自动配置已通过spring-boot-starter-data-elasticsearch自动启用
 
 /**
@@ -11,6 +12,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 @SpringBootApplication
 @MapperScan("com.esfile.mapper")
+@EnableScheduling
 public class EsFileApplication {
 
     public static void main(String[] args) {
@@ -1,5 +1,6 @@
 package com.esfile.common.config;
 
+import com.esfile.service.file.ElasticsearchIndexService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +23,9 @@ public class ApplicationInitializer implements CommandLineRunner {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private ElasticsearchIndexService elasticsearchIndexService;
+
     @Override
     public void run(String... args) throws Exception {
         logger.info("ES文件管理系统启动完成，开始初始化...");
@@ -33,6 +37,9 @@ public class ApplicationInitializer implements CommandLineRunner {
             // 初始化系统配置
             initSystemConfig();
             
+            // 初始化ES索引
+            initElasticsearchIndex();
+            
             logger.info("ES文件管理系统初始化完成！");
             logger.info("后端服务地址: http://localhost:8080");
             logger.info("API文档地址: http://localhost:8080/swagger-ui.html");
@@ -57,6 +64,15 @@ public class ApplicationInitializer implements CommandLineRunner {
         }
     }
 
+    /**
+     * 初始化ES索引（索引不存在时创建第一个版本并建立别名）
+     */
+    private void initElasticsearchIndex() {
+        if (!elasticsearchIndexService.createIndex()) {
+            logger.warn("ES索引初始化失败");
+        }
+    }
+
     /**
      * 初始化系统配置
      */
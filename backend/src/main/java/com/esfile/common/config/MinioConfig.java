@@ -1,5 +1,7 @@
 package com.esfile.common.config;
 
+import com.esfile.common.util.MinioMultipartClient;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
@@ -44,6 +46,17 @@ public class MinioConfig {
                 .build();
     }
 
+    /**
+     * 配置MinIO分片上传客户端
+     */
+    @Bean
+    public MinioMultipartClient minioMultipartClient() {
+        return new MinioMultipartClient(MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .build());
+    }
+
     /**
      * 初始化MinIO桶
      */
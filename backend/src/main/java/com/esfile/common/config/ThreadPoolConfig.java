@@ -0,0 +1,94 @@
+package com.esfile.common.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置类
+ * 为文件上传等后台任务提供有界线程池
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Configuration
+public class ThreadPoolConfig {
+
+    @Value("${file.download.zip-concurrency:4}")
+    private int zipConcurrency;
+
+    @Value("${file.content.concurrency:2}")
+    private int contentConcurrency;
+
+    @Value("${file.content.queue-capacity:1000}")
+    private int contentQueueCapacity;
+
+    @Value("${search.router.concurrency:32}")
+    private int searchRouterConcurrency;
+
+    /**
+     * 批量下载预取线程池
+     * 各请求自行限制预取窗口，这里只限制本节点同时读取MinIO的线程数
+     */
+    @Bean("zipPrefetchExecutor")
+    public ThreadPoolTaskExecutor zipPrefetchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(zipConcurrency);
+        executor.setMaxPoolSize(zipConcurrency);
+        executor.setQueueCapacity(zipConcurrency * 64);
+        executor.setThreadNamePrefix("zip-prefetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 文本提取线程池
+     * 解析文档占用CPU和临时磁盘，线程数保持较小；队列满时拒绝，由调用方跳过提取
+     */
+    @Bean("contentExtractExecutor")
+    public ThreadPoolTaskExecutor contentExtractExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(contentConcurrency);
+        executor.setMaxPoolSize(contentConcurrency);
+        executor.setQueueCapacity(contentQueueCapacity);
+        executor.setThreadNamePrefix("content-extract-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 搜索路由线程池
+     * 搜索请求在这里调用ES和数据库，请求线程只等待到路由超时；队列满时拒绝，由路由直接降级
+     */
+    @Bean("searchRouterExecutor")
+    public ThreadPoolTaskExecutor searchRouterExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(searchRouterConcurrency);
+        executor.setMaxPoolSize(searchRouterConcurrency);
+        executor.setQueueCapacity(searchRouterConcurrency);
+        executor.setThreadNamePrefix("search-router-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 索引重建线程池
+     * 同一时间只运行一个重建任务，由Redis重建锁保证集群内互斥
+     */
+    @Bean("indexRebuildExecutor")
+    public ThreadPoolTaskExecutor indexRebuildExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("index-rebuild-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -5,4 +5,13 @@ package com.esfile.common.constant;
 public class FileConstant {
     public static final String FILE_UPLOAD_PATH = "/upload/";
     public static final int MAX_FILE_SIZE_MB = 100;
+
+    // 分享类型
+    public static final String SHARE_TYPE_LINK = "LINK";
+    public static final String SHARE_TYPE_USER = "USER";
+    public static final String SHARE_TYPE_ROLE = "ROLE";
+
+    // ES文档shareGrants字段的授权项前缀，与用户ID或角色ID拼接
+    public static final String GRANT_USER_PREFIX = "user:";
+    public static final String GRANT_ROLE_PREFIX = "role:";
 }
@@ -0,0 +1,60 @@
+package com.esfile.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 传输缓冲区池
+ * 下载转发复用固定大小的大缓冲区，避免每个请求重新分配；池空时临时分配，池满时丢弃归还的缓冲区
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public class BufferPool {
+
+    // 单个缓冲区大小
+    public static final int BUFFER_SIZE = 256 * 1024;
+
+    // 池中最多保留的缓冲区数
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+    private BufferPool() {
+    }
+
+    public static byte[] acquire() {
+        byte[] buffer = POOL.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    public static void release(byte[] buffer) {
+        if (buffer != null && buffer.length == BUFFER_SIZE) {
+            POOL.offer(buffer);
+        }
+    }
+
+    /**
+     * 使用池化缓冲区将输入流写入输出流
+     * 
+     * @return 传输的字节数
+     */
+    public static long transfer(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            long total = 0;
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+                total += bytesRead;
+            }
+            outputStream.flush();
+            return total;
+        } finally {
+            release(buffer);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.esfile.common.util;
+
+/**
+ * 熔断器
+ * 关闭状态下在最近N次调用的滑动窗口中统计失败率（慢调用由调用方按失败记录），达到阈值后打开；
+ * 打开一段时间后进入半开状态，只放行少量探测调用，全部成功则关闭，任一失败则重新打开
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // 最近调用结果，true表示失败
+    private final boolean[] window;
+
+    private final int minimumCalls;
+
+    private final int failureRateThreshold;
+
+    private final long openMillis;
+
+    private final int halfOpenCalls;
+
+    private State state = State.CLOSED;
+
+    private int position;
+
+    private int recorded;
+
+    private int failures;
+
+    private long openUntil;
+
+    private int halfOpenPermits;
+
+    private int halfOpenSuccesses;
+
+    private long openCount;
+
+    /**
+     * @param windowSize 滑动窗口的调用次数
+     * @param minimumCalls 窗口内至少有多少次调用才计算失败率
+     * @param failureRateThreshold 失败率阈值（百分比）
+     * @param openMillis 打开状态持续时间
+     * @param halfOpenCalls 半开状态放行的探测调用数
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openMillis, int halfOpenCalls) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * 是否放行本次调用，放行后必须调用onSuccess或onFailure
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits <= 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * 放行后没有实际发起调用时归还许可
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * 当前窗口的失败率（百分比）
+     */
+    public synchronized int getFailureRate() {
+        return recorded == 0 ? 0 : failures * 100 / recorded;
+    }
+
+    /**
+     * 累计打开次数
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openMillis;
+        openCount++;
+        resetWindow();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        position = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
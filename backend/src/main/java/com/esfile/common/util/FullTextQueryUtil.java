@@ -0,0 +1,77 @@
+package com.esfile.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MySQL全文检索式构建工具
+ * 把用户输入转换为BOOLEAN MODE检索式：去掉布尔运算符，每个词都必须出现（+词）；
+ * ngram分词器会把不短于分词长度的词拆成连续的ngram短语匹配，短于分词长度的词改为前缀匹配（+词*）
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public class FullTextQueryUtil {
+
+    // 与服务端ngram_token_size默认值一致
+    public static final int DEFAULT_NGRAM_TOKEN_SIZE = 2;
+
+    // 单次检索最多使用的词数
+    private static final int MAX_TERMS = 10;
+
+    private static final String OPERATOR_CHARS = "+-<>()~*\"@";
+
+    private FullTextQueryUtil() {
+    }
+
+    /**
+     * 构建BOOLEAN MODE检索式
+     *
+     * @param keyword 用户输入的关键词，多个词以空白分隔
+     * @param ngramTokenSize 服务端ngram_token_size
+     * @return 检索式，没有可用的词时返回null
+     */
+    public static String toBooleanQuery(String keyword, int ngramTokenSize) {
+        if (keyword == null) {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>();
+        for (String word : keyword.trim().split("\\s+")) {
+            String term = stripOperators(word);
+            if (term.isEmpty() || terms.contains(term)) {
+                continue;
+            }
+            terms.add(term);
+            if (terms.size() >= MAX_TERMS) {
+                break;
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder query = new StringBuilder();
+        for (String term : terms) {
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append('+').append(term);
+            if (term.codePointCount(0, term.length()) < ngramTokenSize) {
+                query.append('*');
+            }
+        }
+        return query.toString();
+    }
+
+    private static String stripOperators(String word) {
+        StringBuilder term = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (OPERATOR_CHARS.indexOf(c) < 0) {
+                term.append(c);
+            }
+        }
+        return term.toString();
+    }
+}
@@ -0,0 +1,252 @@
+package com.esfile.common.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 高频词统计（Count-Min Sketch + Space-Saving）
+ * Count-Min估计任意词的频次，内存与词的种类数无关；Space-Saving只保留估计频次最高的K个候选词，
+ * 取热门词时只排序这K个词。计数为浮点数，按比例衰减实现时间窗口；
+ * 哈希只依赖词本身，不同节点的计数矩阵可以直接相加合并
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public class HeavyHitterSketch {
+
+    private final int width;
+
+    private final int depth;
+
+    private final int capacity;
+
+    private final double[] counters;
+
+    // 所有词的计数之和
+    private double total;
+
+    // 候选词 -> 估计频次
+    private final Map<String, Double> candidates = new HashMap<>();
+
+    // 按估计频次排序的候选词，第一个为最小值
+    private final TreeSet<String> ranking;
+
+    public HeavyHitterSketch(int width, int depth, int capacity) {
+        this.width = width;
+        this.depth = depth;
+        this.capacity = capacity;
+        this.counters = new double[width * depth];
+        this.ranking = new TreeSet<>(Comparator.<String>comparingDouble(candidates::get).thenComparing(term -> term));
+    }
+
+    /**
+     * 记录一次出现
+     */
+    public synchronized void add(String term, double weight) {
+        total += weight;
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + bucket(term, row, width);
+            counters[index] += weight;
+            estimate = Math.min(estimate, counters[index]);
+        }
+
+        if (candidates.containsKey(term)) {
+            ranking.remove(term);
+            candidates.put(term, estimate);
+            ranking.add(term);
+        } else if (candidates.size() < capacity) {
+            candidates.put(term, estimate);
+            ranking.add(term);
+        } else if (estimate > candidates.get(ranking.first())) {
+            // 替换当前频次最低的候选词
+            candidates.remove(ranking.pollFirst());
+            candidates.put(term, estimate);
+            ranking.add(term);
+        }
+    }
+
+    /**
+     * 所有计数乘以衰减系数，排序不变
+     */
+    public synchronized void decay(double factor) {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] *= factor;
+        }
+        total *= factor;
+        candidates.replaceAll((term, count) -> count * factor);
+        // 等比例缩放后浮点舍入可能改变相等关系，重建排序
+        List<String> terms = new ArrayList<>(candidates.keySet());
+        ranking.clear();
+        ranking.addAll(terms);
+    }
+
+    /**
+     * 频次最高的词
+     */
+    public synchronized List<TermCount> top(int limit) {
+        List<TermCount> result = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (String term : ranking.descendingSet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(new TermCount(term, candidates.get(term)));
+        }
+        return result;
+    }
+
+    public synchronized double getTotal() {
+        return total;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(counters, 0);
+        total = 0;
+        candidates.clear();
+        ranking.clear();
+    }
+
+    /**
+     * 导出计数矩阵和候选词，用于跨节点合并
+     */
+    public synchronized Snapshot snapshot() {
+        ByteBuffer buffer = ByteBuffer.allocate(counters.length * Double.BYTES);
+        buffer.asDoubleBuffer().put(counters);
+        return new Snapshot(Base64.getEncoder().encodeToString(buffer.array()), total, new HashMap<>(candidates));
+    }
+
+    /**
+     * 合并多个节点的快照：计数矩阵逐项相加，用合并后的矩阵重新估计所有节点候选词的频次
+     */
+    public static Merged merge(Collection<Snapshot> snapshots, int width, int depth, int limit) {
+        double[] merged = new double[width * depth];
+        double total = 0;
+        Set<String> terms = new HashSet<>();
+        for (Snapshot snapshot : snapshots) {
+            double[] counters = new double[merged.length];
+            ByteBuffer.wrap(Base64.getDecoder().decode(snapshot.getCounters())).asDoubleBuffer().get(counters);
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += counters[i];
+            }
+            total += snapshot.getTotal();
+            terms.addAll(snapshot.getCandidates().keySet());
+        }
+
+        List<TermCount> ranked = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            double estimate = Double.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                estimate = Math.min(estimate, merged[row * width + bucket(term, row, width)]);
+            }
+            ranked.add(new TermCount(term, estimate));
+        }
+        ranked.sort(Comparator.comparingDouble(TermCount::getCount).reversed().thenComparing(TermCount::getTerm));
+        return new Merged(ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked, total);
+    }
+
+    /**
+     * 每行使用不同种子的FNV-1a哈希，保证各节点一致
+     */
+    private static int bucket(String term, int row, int width) {
+        int hash = 0x811C9DC5 ^ (row * 0x9E3779B9);
+        for (byte b : term.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % width;
+    }
+
+    /**
+     * 词及其估计频次
+     */
+    public static class TermCount {
+
+        private final String term;
+
+        private final double count;
+
+        public TermCount(String term, double count) {
+            this.term = term;
+            this.count = count;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public double getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * 单个节点的快照
+     */
+    public static class Snapshot {
+
+        // Base64编码的计数矩阵
+        private String counters;
+
+        private double total;
+
+        private Map<String, Double> candidates;
+
+        public Snapshot() {
+        }
+
+        public Snapshot(String counters, double total, Map<String, Double> candidates) {
+            this.counters = counters;
+            this.total = total;
+            this.candidates = candidates;
+        }
+
+        public String getCounters() {
+            return counters;
+        }
+
+        public void setCounters(String counters) {
+            this.counters = counters;
+        }
+
+        public double getTotal() {
+            return total;
+        }
+
+        public void setTotal(double total) {
+            this.total = total;
+        }
+
+        public Map<String, Double> getCandidates() {
+            return candidates;
+        }
+
+        public void setCandidates(Map<String, Double> candidates) {
+            this.candidates = candidates;
+        }
+    }
+
+    /**
+     * 合并结果
+     */
+    public static class Merged {
+
+        private final List<TermCount> top;
+
+        private final double total;
+
+        public Merged(List<TermCount> top, double total) {
+            this.top = top;
+            this.total = total;
+        }
+
+        public List<TermCount> getTop() {
+            return top;
+        }
+
+        public double getTotal() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.esfile.common.util;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.Part;
+
+/**
+ * MinIO分片上传客户端
+ * 暴露SDK中受保护的S3原生分片上传接口（创建、上传分片、合并、中止）
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public class MinioMultipartClient extends MinioAsyncClient {
+
+    public MinioMultipartClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * 创建分片上传任务
+     * 
+     * @return 分片上传ID
+     */
+    public String createMultipartUpload(String bucketName, String objectName, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        return createMultipartUploadAsync(bucketName, null, objectName, headers, null)
+            .get()
+            .result()
+            .uploadId();
+    }
+
+    /**
+     * 上传单个分片
+     * 
+     * @return 分片ETag
+     */
+    public String uploadPart(String bucketName, String objectName, String uploadId, 
+                             int partNumber, byte[] partData) throws Exception {
+        return uploadPartAsync(bucketName, null, objectName, partData, partData.length, 
+                               uploadId, partNumber, null, null)
+            .get()
+            .etag();
+    }
+
+    /**
+     * 合并分片完成上传
+     */
+    public void completeMultipartUpload(String bucketName, String objectName, String uploadId, 
+                                        Part[] parts) throws Exception {
+        completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, null, null).get();
+    }
+
+    /**
+     * 中止分片上传并释放已上传分片
+     */
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null).get();
+    }
+}
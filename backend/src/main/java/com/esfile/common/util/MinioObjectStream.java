@@ -0,0 +1,46 @@
+package com.esfile.common.util;
+
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+
+import java.io.FilterInputStream;
+
+/**
+ * MinIO对象输入流
+ * 携带GET响应头中的长度、ETag和内容类型，下载时无需再发起statObject请求
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public class MinioObjectStream extends FilterInputStream {
+
+    private final long contentLength;
+
+    private final String etag;
+
+    private final String contentType;
+
+    public MinioObjectStream(GetObjectResponse response) {
+        super(response);
+        Headers headers = response.headers();
+        String length = headers.get("Content-Length");
+        this.contentLength = length != null ? Long.parseLong(length) : -1;
+        this.etag = headers.get("ETag");
+        this.contentType = headers.get("Content-Type");
+    }
+
+    /**
+     * 本次响应的内容长度，未知时返回-1
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
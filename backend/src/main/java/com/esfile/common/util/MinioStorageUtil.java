@@ -4,6 +4,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -312,15 +313,9 @@ public class MinioStorageUtil {
      * @return MD5值
      */
     public static String calculateFileMd5(MultipartFile file) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(file.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b & 0xff));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException | IOException e) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return calculateMd5(inputStream);
+        } catch (IOException e) {
             throw new RuntimeException("计算文件MD5失败", e);
         }
     }
@@ -332,22 +327,69 @@ public class MinioStorageUtil {
      * @return MD5值
      */
     public static String calculateFileMd5(String filePath) {
-        try {
-            Path path = Paths.get(filePath);
-            byte[] fileBytes = Files.readAllBytes(path);
-            
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(fileBytes);
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b & 0xff));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException | IOException e) {
+        try (InputStream inputStream = Files.newInputStream(Paths.get(filePath))) {
+            return calculateMd5(inputStream);
+        } catch (IOException e) {
             throw new RuntimeException("计算文件MD5失败", e);
         }
     }
 
+    /**
+     * 流式计算输入流的MD5值，不在内存中缓存完整内容
+     * 
+     * @param inputStream 输入流
+     * @return MD5值
+     */
+    public static String calculateMd5(InputStream inputStream) throws IOException {
+        MessageDigest md = newMd5Digest();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            md.update(buffer, 0, read);
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * 创建MD5摘要器
+     * 
+     * @return MD5摘要器
+     */
+    public static MessageDigest newMd5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5算法不可用", e);
+        }
+    }
+
+    /**
+     * 创建SHA-256摘要器
+     * 
+     * @return SHA-256摘要器
+     */
+    public static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256算法不可用", e);
+        }
+    }
+
+    /**
+     * 摘要转十六进制字符串
+     * 
+     * @param digest 摘要字节
+     * @return 十六进制字符串
+     */
+    public static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
     /**
      * 格式化文件大小
      * 
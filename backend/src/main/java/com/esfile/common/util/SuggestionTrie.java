@@ -0,0 +1,290 @@
+package com.esfile.common.util;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 带权重的基数树（压缩前缀树）
+ * 单子节点链合并为一条边，子节点按首字符排序存放在数组中；每个节点记录子树最大权重，
+ * 取前缀的前N个结果时按最大权重优先展开，只访问与结果相关的节点，与词的总数无关
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public class SuggestionTrie {
+
+    private static final char[] EMPTY_CHARS = new char[0];
+
+    private static final Node[] EMPTY_NODES = new Node[0];
+
+    private final Node root = new Node(EMPTY_CHARS);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+
+    /**
+     * 调整词的权重，权重降到0时删除
+     *
+     * @param key 规范化后的词（用于前缀匹配）
+     * @param display 返回给用户的原文
+     * @param delta 权重变化
+     */
+    public void add(String key, String display, long delta) {
+        if (key.isEmpty() || delta == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            addLocked(key, display, delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按权重降序返回以prefix开头的词
+     */
+    public List<String> top(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            Node start = find(prefix);
+            if (start == null || limit <= 0) {
+                return new ArrayList<>();
+            }
+
+            // 节点按子树最大权重排序，结果按自身权重排序；取出的结果一定不小于队列中任何子树的权重
+            List<String> result = new ArrayList<>(limit);
+            PriorityQueue<Candidate> queue = new PriorityQueue<>();
+            queue.add(new Candidate(start, start.maxWeight, false));
+            while (!queue.isEmpty() && result.size() < limit) {
+                Candidate candidate = queue.poll();
+                Node node = candidate.node;
+                if (candidate.terminal) {
+                    result.add(node.display);
+                    continue;
+                }
+                if (node.weight > 0) {
+                    queue.add(new Candidate(node, node.weight, true));
+                }
+                for (Node child : node.children) {
+                    queue.add(new Candidate(child, child.maxWeight, false));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children = EMPTY_NODES;
+            root.firstChars = EMPTY_CHARS;
+            root.maxWeight = 0;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(String key, String display, long delta) {
+        Deque<Node> path = new ArrayDeque<>();
+        path.push(root);
+        Node node = root;
+        int offset = 0;
+        while (offset < key.length()) {
+            int index = Arrays.binarySearch(node.firstChars, key.charAt(offset));
+            if (index < 0) {
+                if (delta < 0) {
+                    return;
+                }
+                Node leaf = new Node(key.substring(offset).toCharArray());
+                insertChild(node, -index - 1, leaf);
+                node = leaf;
+                path.push(node);
+                offset = key.length();
+                break;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, offset);
+            if (common < child.label.length) {
+                if (delta < 0) {
+                    return;
+                }
+                // 在公共前缀处拆分边
+                Node middle = new Node(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                middle.firstChars = new char[]{child.label[0]};
+                middle.children = new Node[]{child};
+                middle.maxWeight = child.maxWeight;
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            path.push(node);
+            offset += common;
+        }
+
+        long before = node.weight;
+        node.weight = Math.max(0, node.weight + delta);
+        if (before == 0 && node.weight > 0) {
+            size++;
+            node.display = display;
+        } else if (before > 0 && node.weight == 0) {
+            size--;
+            node.display = null;
+        }
+
+        // 自底向上更新子树最大权重，并删除或合并不再需要的节点
+        Node current = path.pop();
+        while (!path.isEmpty()) {
+            Node parent = path.pop();
+            if (current.weight == 0 && current.children.length == 0) {
+                removeChild(parent, current);
+            } else if (current.weight == 0 && current.children.length == 1) {
+                Node only = current.children[0];
+                char[] merged = new char[current.label.length + only.label.length];
+                System.arraycopy(current.label, 0, merged, 0, current.label.length);
+                System.arraycopy(only.label, 0, merged, current.label.length, only.label.length);
+                only.label = merged;
+                parent.children[Arrays.binarySearch(parent.firstChars, merged[0])] = only;
+            } else {
+                updateMaxWeight(current);
+            }
+            current = parent;
+        }
+        updateMaxWeight(root);
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        int offset = 0;
+        while (offset < prefix.length()) {
+            int index = Arrays.binarySearch(node.firstChars, prefix.charAt(offset));
+            if (index < 0) {
+                return null;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, offset);
+            if (offset + common == prefix.length()) {
+                // 前缀在边的中间结束，该子树内的词都以前缀开头
+                return child;
+            }
+            if (common < child.label.length) {
+                return null;
+            }
+            node = child;
+            offset += common;
+        }
+        return node;
+    }
+
+    private static int commonPrefix(char[] label, String key, int offset) {
+        int length = Math.min(label.length, key.length() - offset);
+        int i = 0;
+        while (i < length && label[i] == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void insertChild(Node parent, int index, Node child) {
+        int length = parent.children.length;
+        char[] firstChars = new char[length + 1];
+        Node[] children = new Node[length + 1];
+        System.arraycopy(parent.firstChars, 0, firstChars, 0, index);
+        System.arraycopy(parent.children, 0, children, 0, index);
+        firstChars[index] = child.label[0];
+        children[index] = child;
+        System.arraycopy(parent.firstChars, index, firstChars, index + 1, length - index);
+        System.arraycopy(parent.children, index, children, index + 1, length - index);
+        parent.firstChars = firstChars;
+        parent.children = children;
+    }
+
+    private static void removeChild(Node parent, Node child) {
+        int index = Arrays.binarySearch(parent.firstChars, child.label[0]);
+        int length = parent.children.length;
+        if (length == 1) {
+            parent.firstChars = EMPTY_CHARS;
+            parent.children = EMPTY_NODES;
+            return;
+        }
+        char[] firstChars = new char[length - 1];
+        Node[] children = new Node[length - 1];
+        System.arraycopy(parent.firstChars, 0, firstChars, 0, index);
+        System.arraycopy(parent.children, 0, children, 0, index);
+        System.arraycopy(parent.firstChars, index + 1, firstChars, index, length - index - 1);
+        System.arraycopy(parent.children, index + 1, children, index, length - index - 1);
+        parent.firstChars = firstChars;
+        parent.children = children;
+    }
+
+    private static void updateMaxWeight(Node node) {
+        long max = node.weight;
+        for (Node child : node.children) {
+            max = Math.max(max, child.maxWeight);
+        }
+        node.maxWeight = max;
+    }
+
+    /**
+     * 树节点，label为从父节点到本节点的边
+     */
+    private static class Node {
+
+        private char[] label;
+
+        private char[] firstChars = EMPTY_CHARS;
+
+        private Node[] children = EMPTY_NODES;
+
+        private long weight;
+
+        private long maxWeight;
+
+        private String display;
+
+        Node(char[] label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 待展开的子树或待输出的词
+     */
+    private static class Candidate implements Comparable<Candidate> {
+
+        private final Node node;
+
+        private final long priority;
+
+        private final boolean terminal;
+
+        Candidate(Node node, long priority, boolean terminal) {
+            this.node = node;
+            this.priority = priority;
+            this.terminal = terminal;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int result = Long.compare(other.priority, priority);
+            // 权重相同时先输出词，再展开子树
+            return result != 0 ? result : Boolean.compare(other.terminal, terminal);
+        }
+    }
+}
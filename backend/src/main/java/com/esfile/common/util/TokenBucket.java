@@ -0,0 +1,72 @@
+package com.esfile.common.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶限速器
+ * 以"理论到达时间"记录令牌消耗，获取令牌只做一次CAS、不持锁；
+ * 令牌不足时返回需要等待的时间，由调用方自行等待，多个并发下载共享同一个桶
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public class TokenBucket {
+
+    /**
+     * 理论到达时间（纳秒），早于当前时间表示桶内有令牌
+     */
+    private final AtomicLong nextFreeNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * 每秒令牌数（字节），不大于0表示不限速
+     */
+    private volatile long ratePerSecond;
+
+    /**
+     * 允许的突发时长（纳秒）
+     */
+    private final long burstNanos;
+
+    public TokenBucket(long ratePerSecond, long burstMillis) {
+        this.ratePerSecond = ratePerSecond;
+        this.burstNanos = TimeUnit.MILLISECONDS.toNanos(burstMillis);
+    }
+
+    public long getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(long ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public boolean isUnlimited() {
+        return ratePerSecond <= 0;
+    }
+
+    /**
+     * 预占令牌
+     *
+     * @param permits 令牌数（字节）
+     * @return 需要等待的纳秒数，0表示可立即使用
+     */
+    public long reserve(long permits) {
+        long rate = ratePerSecond;
+        if (rate <= 0 || permits <= 0) {
+            return 0;
+        }
+        long costNanos = permits * TimeUnit.SECONDS.toNanos(1) / rate;
+
+        while (true) {
+            long now = System.nanoTime();
+            long current = nextFreeNanos.get();
+            // 空闲期间累积的令牌不超过突发上限
+            long start = Math.max(current, now - burstNanos);
+            long next = start + costNanos;
+            if (nextFreeNanos.compareAndSet(current, next)) {
+                return Math.max(0, start - now);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.esfile.common.vo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 聚合桶
+ * terms、date_histogram和range聚合的通用结果
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AggregationBucket implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 桶的键（日期桶为格式化后的日期）
+     */
+    private String key;
+
+    /**
+     * 文档数
+     */
+    private Long docCount;
+
+    /**
+     * 范围下界（仅range聚合）
+     */
+    private Double from;
+
+    /**
+     * 范围上界（仅range聚合）
+     */
+    private Double to;
+
+    public AggregationBucket() {}
+
+    public AggregationBucket(String key, Long docCount) {
+        this.key = key;
+        this.docCount = docCount;
+    }
+}
@@ -1,5 +1,7 @@
 package com.esfile.controller;
 
+import com.esfile.common.util.BufferPool;
+import com.esfile.common.util.MinioObjectStream;
 import com.esfile.common.vo.ResponseResult;
 import com.esfile.service.file.MinioStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,7 +9,6 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletResponse;
-import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,28 +66,22 @@ public class MinioStorageController {
             HttpServletResponse response) {
         
         try {
-            // 获取文件信息
-            Map<String, Object> fileInfo = minioStorageService.getFileInfo(objectName);
-            
-            // 设置响应头
-            String downloadFileName = fileName != null ? fileName : objectName.substring(objectName.lastIndexOf("/") + 1);
-            response.setContentType("application/octet-stream");
-            response.setHeader("Content-Disposition", "attachment; filename=" + downloadFileName);
-            
-            if (fileInfo.containsKey("size")) {
-                response.setContentLengthLong((Long) fileInfo.get("size"));
-            }
-            
-            // 下载文件
-            try (InputStream inputStream = minioStorageService.downloadFile(objectName);
-                 java.io.OutputStream outputStream = response.getOutputStream()) {
+            // 单次GET获取文件流，长度取自响应头
+            try (MinioObjectStream objectStream = minioStorageService.openObject(objectName)) {
+                
+                // 设置响应头
+                String downloadFileName = fileName != null ? fileName : objectName.substring(objectName.lastIndexOf("/") + 1);
+                response.setContentType("application/octet-stream");
+                response.setHeader("Content-Disposition", "attachment; filename=" + downloadFileName);
+                
+                if (objectStream.getContentLength() >= 0) {
+                    response.setContentLengthLong(objectStream.getContentLength());
+                }
                 
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
+                // 下载文件
+                try (java.io.OutputStream outputStream = response.getOutputStream()) {
+                    BufferPool.transfer(objectStream, outputStream);
                 }
-                outputStream.flush();
             }
             
         } catch (Exception e) {
@@ -1,12 +1,16 @@
 package com.esfile.controller.file;
 
 import com.esfile.common.vo.ResponseResult;
+import com.esfile.service.file.ContentExtractionService;
 import com.esfile.service.file.ElasticsearchIndexService;
+import com.esfile.service.file.FileIndexingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 /**
  * Elasticsearch索引管理控制器
  * 提供索引创建、重建、删除等管理功能
@@ -23,6 +27,12 @@ public class ElasticsearchIndexController {
     @Autowired
     private ElasticsearchIndexService elasticsearchIndexService;
 
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private ContentExtractionService contentExtractionService;
+
     /**
      * 创建索引
      */
@@ -70,9 +80,9 @@ public class ElasticsearchIndexController {
             logger.info("重建ES索引");
             boolean success = elasticsearchIndexService.rebuildIndex();
             if (success) {
-                return ResponseResult.success("索引重建成功");
+                return ResponseResult.success("索引重建已开始");
             } else {
-                return ResponseResult.fail("索引重建失败");
+                return ResponseResult.fail("索引正在重建中");
             }
         } catch (Exception e) {
             logger.error("重建索引失败", e);
@@ -80,6 +90,19 @@ public class ElasticsearchIndexController {
         }
     }
 
+    /**
+     * 获取重建进度
+     */
+    @GetMapping("/rebuild/status")
+    public ResponseResult<Map<String, Object>> getRebuildStatus() {
+        try {
+            return ResponseResult.success(elasticsearchIndexService.getRebuildStatus());
+        } catch (Exception e) {
+            logger.error("获取重建进度失败", e);
+            return ResponseResult.fail("获取重建进度失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 检查索引状态
      */
@@ -147,4 +170,30 @@ public class ElasticsearchIndexController {
             return ResponseResult.fail("刷新索引失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 获取索引管道状态
+     */
+    @GetMapping("/pipeline")
+    public ResponseResult<Map<String, Object>> getPipelineStats() {
+        try {
+            return ResponseResult.success(fileIndexingService.getStats());
+        } catch (Exception e) {
+            logger.error("获取索引管道状态失败", e);
+            return ResponseResult.fail("获取索引管道状态失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取文本提取状态
+     */
+    @GetMapping("/content")
+    public ResponseResult<Map<String, Object>> getContentExtractionStats() {
+        try {
+            return ResponseResult.success(contentExtractionService.getStats());
+        } catch (Exception e) {
+            logger.error("获取文本提取状态失败", e);
+            return ResponseResult.fail("获取文本提取状态失败: " + e.getMessage());
+        }
+    }
 }
@@ -4,6 +4,9 @@ import com.esfile.common.vo.ResponseResult;
 import com.esfile.entity.dto.FileSearchDto;
 import com.esfile.entity.elasticsearch.FileDocument;
 import com.esfile.service.file.ElasticsearchSearchService;
+import com.esfile.service.file.HotSearchTermService;
+import com.esfile.service.file.SearchCacheService;
+import com.esfile.service.file.SuggestionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +34,15 @@ public class ElasticsearchSearchController {
     @Autowired
     private ElasticsearchSearchService elasticsearchSearchService;
 
+    @Autowired
+    private SearchCacheService searchCacheService;
+
+    @Autowired
+    private HotSearchTermService hotSearchTermService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
     /**
      * 全文搜索
      */
@@ -88,6 +100,24 @@ public class ElasticsearchSearchController {
         }
     }
 
+    /**
+     * 高级搜索（游标分页，适合深分页）
+     */
+    @PostMapping("/advanced/cursor")
+    public ResponseResult<Map<String, Object>> advancedSearchAfter(
+            @RequestBody FileSearchDto searchDto,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            logger.info("执行游标高级搜索: {}", searchDto);
+            Map<String, Object> results = elasticsearchSearchService.advancedSearchAfter(searchDto, size, cursor);
+            return ResponseResult.success(results);
+        } catch (Exception e) {
+            logger.error("游标高级搜索失败: {}", searchDto, e);
+            return ResponseResult.fail("搜索失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 根据文件类型搜索
      */
@@ -312,6 +342,47 @@ public class ElasticsearchSearchController {
         }
     }
 
+    /**
+     * 获取统计概览（一次聚合请求）
+     */
+    @GetMapping("/stats/overview")
+    public ResponseResult<Map<String, Object>> getStatsOverview() {
+        try {
+            logger.info("获取搜索统计概览");
+            Map<String, Object> stats = elasticsearchSearchService.getStatsOverview();
+            return ResponseResult.success(stats);
+        } catch (Exception e) {
+            logger.error("获取搜索统计概览失败", e);
+            return ResponseResult.fail("获取搜索统计概览失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 搜索缓存统计
+     */
+    @GetMapping("/cache/stats")
+    public ResponseResult<Map<String, Object>> getCacheStats() {
+        try {
+            return ResponseResult.success(searchCacheService.getStats());
+        } catch (Exception e) {
+            logger.error("获取搜索缓存统计失败", e);
+            return ResponseResult.fail("获取搜索缓存统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 搜索建议前缀树统计
+     */
+    @GetMapping("/suggestions/stats")
+    public ResponseResult<Map<String, Object>> getSuggestionStats() {
+        try {
+            return ResponseResult.success(suggestionService.getStats());
+        } catch (Exception e) {
+            logger.error("获取搜索建议统计失败", e);
+            return ResponseResult.fail("获取搜索建议统计失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取热门搜索词
      */
@@ -327,6 +398,23 @@ public class ElasticsearchSearchController {
         }
     }
 
+    /**
+     * 获取热门搜索词排行（含估计频次）
+     * 
+     * @param window 时间窗口：hour、day、week
+     */
+    @GetMapping("/hot-terms/ranking")
+    public ResponseResult<List<Map<String, Object>>> getHotSearchTermRanking(
+            @RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseResult.success(hotSearchTermService.getHotTerms(window, size));
+        } catch (Exception e) {
+            logger.error("获取热门搜索词排行失败: {}", window, e);
+            return ResponseResult.fail("获取热门搜索词排行失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取相关搜索词
      */
@@ -351,9 +439,9 @@ public class ElasticsearchSearchController {
             logger.info("重建ES索引");
             boolean success = elasticsearchSearchService.rebuildIndex();
             if (success) {
-                return ResponseResult.success("索引重建成功");
+                return ResponseResult.success("索引重建已开始");
             } else {
-                return ResponseResult.fail("索引重建失败");
+                return ResponseResult.fail("索引正在重建中");
             }
         } catch (Exception e) {
             logger.error("重建ES索引失败", e);
@@ -130,15 +130,16 @@ public class FileController {
     public ResponseResult<Map<String, Object>> shareFile(
             @PathVariable Long id,
             @RequestParam(defaultValue = "public") String shareType,
+            @RequestParam(required = false) Long targetId,
             @RequestParam(required = false) Integer expireDays) {
         
         try {
-            logger.info("分享文件: id={}, shareType={}, expireDays={}", id, shareType, expireDays);
+            logger.info("分享文件: id={}, shareType={}, targetId={}, expireDays={}", id, shareType, targetId, expireDays);
             
             // TODO: 获取当前用户ID
             Long userId = 1L;
             
-            Map<String, Object> shareInfo = fileService.shareFile(id, userId, shareType, expireDays);
+            Map<String, Object> shareInfo = fileService.shareFile(id, userId, shareType, targetId, expireDays);
             if (shareInfo != null) {
                 return ResponseResult.success(shareInfo);
             } else {
@@ -248,6 +249,74 @@ public class FileController {
         }
     }
 
+    /**
+     * 设置文件标签（整体替换）
+     */
+    @PutMapping("/{id}/tags")
+    public ResponseResult<String> setFileTags(@PathVariable Long id, @RequestParam(required = false) String tags) {
+        try {
+            logger.info("设置文件标签: id={}, tags={}", id, tags);
+            
+            boolean success = fileService.setFileTags(id, tags);
+            if (success) {
+                return ResponseResult.success("标签设置成功");
+            } else {
+                return ResponseResult.error("标签设置失败");
+            }
+        } catch (Exception e) {
+            logger.error("设置文件标签失败", e);
+            return ResponseResult.error("设置文件标签失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按多个标签搜索文件，match为all时同时包含全部标签，为any时包含任一标签
+     */
+    @GetMapping("/by-tags")
+    public ResponseResult<Map<String, Object>> searchFilesByTags(
+            @RequestParam List<String> tags,
+            @RequestParam(defaultValue = "all") String match,
+            @RequestParam(defaultValue = "1") Integer page,
+            @RequestParam(defaultValue = "20") Integer size) {
+        try {
+            logger.info("按标签搜索文件: tags={}, match={}", tags, match);
+            
+            Map<String, Object> result = fileService.searchFilesByTags(tags, !"any".equalsIgnoreCase(match), page, size);
+            return ResponseResult.success(result);
+        } catch (Exception e) {
+            logger.error("按标签搜索文件失败", e);
+            return ResponseResult.error("按标签搜索文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取热门标签
+     */
+    @GetMapping("/tags/popular")
+    public ResponseResult<List<Map<String, Object>>> getPopularTags(@RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseResult.success(fileService.getPopularTags(limit));
+        } catch (Exception e) {
+            logger.error("获取热门标签失败", e);
+            return ResponseResult.error("获取热门标签失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按文件信息中的标签重建标签关联和计数
+     */
+    @PostMapping("/tags/rebuild")
+    public ResponseResult<Map<String, Object>> rebuildTags() {
+        try {
+            logger.info("重建文件标签");
+            
+            return ResponseResult.success(fileService.rebuildTags());
+        } catch (Exception e) {
+            logger.error("重建文件标签失败", e);
+            return ResponseResult.error("重建文件标签失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 根据标签获取文件
      */
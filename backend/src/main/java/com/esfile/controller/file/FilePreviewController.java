@@ -1,23 +1,37 @@
 package com.esfile.controller.file;
 
-import com.esfile.service.file.FileService;
+import com.esfile.service.file.FileDownloadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+
 /**
  * 文件预览控制器
  */
 @RestController
 @RequestMapping("/api/file/preview")
 public class FilePreviewController {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilePreviewController.class);
+
     @Autowired
-    private com.esfile.service.file.FileService fileService;
+    private FileDownloadService fileDownloadService;
 
     /**
-     * 文件预览
+     * 文件预览（支持Range请求）
      */
     @GetMapping("/{id}")
-    public String preview(@PathVariable Long id) {
-        // 使用正确的方法调用
-        return "文件预览功能待实现";
+    public void preview(@PathVariable Long id, HttpServletResponse response) {
+        try {
+            fileDownloadService.previewFile(id, response);
+        } catch (Exception e) {
+            logger.error("文件预览失败: id={}", id, e);
+            if (!response.isCommitted()) {
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
     }
 }
@@ -4,6 +4,7 @@ import com.esfile.common.vo.ResponseResult;
 import com.esfile.entity.dto.FileSearchDto;
 import com.esfile.entity.mybatis.FileInfo;
 import com.esfile.service.file.FileService;
+import com.esfile.service.file.SearchRouterService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +29,9 @@ public class FileQueryController {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private SearchRouterService searchRouterService;
+
     /**
      * 获取文件列表（分页）
      */
@@ -118,6 +122,19 @@ public class FileQueryController {
         }
     }
 
+    /**
+     * 获取搜索后端状态（熔断状态、健康分和延迟统计）
+     */
+    @GetMapping("/search/backends")
+    public ResponseResult<Map<String, Object>> getSearchBackendStats() {
+        try {
+            return ResponseResult.success(searchRouterService.getBackendStats());
+        } catch (Exception e) {
+            logger.error("获取搜索后端状态失败", e);
+            return ResponseResult.error("获取搜索后端状态失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取文件统计信息
      */
@@ -197,4 +214,18 @@ public class FileQueryController {
             return ResponseResult.error("获取文件夹结构失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 获取文件夹的面包屑路径
+     */
+    @GetMapping("/folders/{id}/breadcrumb")
+    public ResponseResult<?> getFolderBreadcrumb(@PathVariable Long id) {
+        try {
+            List<Map<String, Object>> breadcrumb = fileService.getFolderBreadcrumb(id);
+            return ResponseResult.success(breadcrumb);
+        } catch (Exception e) {
+            logger.error("获取文件夹路径失败", e);
+            return ResponseResult.error("获取文件夹路径失败: " + e.getMessage());
+        }
+    }
 }
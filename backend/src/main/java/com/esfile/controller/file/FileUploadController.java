@@ -4,6 +4,7 @@ import com.esfile.common.vo.ResponseResult;
 import com.esfile.entity.dto.FileUploadDto;
 import com.esfile.entity.mybatis.FileInfo;
 import com.esfile.service.file.FileService;
+import com.esfile.service.file.FileUploadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * 文件上传控制器
@@ -32,6 +34,9 @@ public class FileUploadController {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private FileUploadService fileUploadService;
+
     /**
      * 单文件上传
      */
@@ -57,6 +62,7 @@ public class FileUploadController {
             uploadDto.setIsPublic(isPublic != null ? (isPublic ? 1 : 0) : 0);
             uploadDto.setParentFolderId(parentFolderId);
             uploadDto.setUploadUserId(userId);
+            uploadDto.setUploadUserName(getCurrentUserName());
             
             FileInfo fileInfo = fileService.uploadFile(uploadDto);
             return ResponseResult.success(fileInfo);
@@ -82,6 +88,7 @@ public class FileUploadController {
             
             // 获取当前用户ID
             Long userId = getCurrentUserId();
+            String userName = getCurrentUserName();
             
             // 构建上传DTO列表
             List<FileUploadDto> uploadDtos = new ArrayList<>();
@@ -93,6 +100,7 @@ public class FileUploadController {
                 uploadDto.setIsPublic(isPublic != null ? (isPublic ? 1 : 0) : 0);
                 uploadDto.setParentFolderId(parentFolderId);
                 uploadDto.setUploadUserId(userId);
+                uploadDto.setUploadUserName(userName);
                 uploadDtos.add(uploadDto);
             }
             
@@ -104,6 +112,74 @@ public class FileUploadController {
         }
     }
 
+    /**
+     * 秒传预检
+     * 客户端先提交内容SHA-256与文件大小：内容已存储时返回内容抽查（偏移、长度、随机串），
+     * 客户端计算 SHA-256(随机串 + 文件中该范围的字节) 作为proof再次预检，校验通过后直接创建文件记录；
+     * 否则返回上传会话ID及服务端已持有的分片序号，客户端只需上传缺失分片
+     */
+    @PostMapping("/pre-upload")
+    public ResponseResult<Map<String, Object>> preUpload(
+            @RequestParam String contentHash,
+            @RequestParam Long fileSize,
+            @RequestParam String fileName,
+            @RequestParam(required = false) Integer totalChunks,
+            @RequestParam(required = false) String proof,
+            @RequestParam(required = false) String description,
+            @RequestParam(required = false) String tags,
+            @RequestParam(required = false) Boolean isPublic,
+            @RequestParam(required = false) Long parentFolderId) {
+        
+        try {
+            logger.info("秒传预检: {}, 大小: {}", fileName, fileSize);
+            
+            // 获取当前用户ID
+            Long userId = getCurrentUserId();
+            
+            FileUploadDto uploadDto = new FileUploadDto();
+            uploadDto.setDescription(description);
+            uploadDto.setTags(tags);
+            uploadDto.setIsPublic(isPublic != null ? (isPublic ? 1 : 0) : 0);
+            uploadDto.setParentFolderId(parentFolderId);
+            uploadDto.setUploadUserId(userId);
+            uploadDto.setUploadUserName(getCurrentUserName());
+            
+            Map<String, Object> result = fileUploadService.preUpload(contentHash, fileSize, fileName, totalChunks, proof, uploadDto);
+            return ResponseResult.success(result);
+        } catch (Exception e) {
+            logger.error("秒传预检失败", e);
+            return ResponseResult.error("秒传预检失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 分片上传
+     * 所有分片到达后自动完成上传并返回文件信息，未完成时返回空数据
+     */
+    @PostMapping("/chunk")
+    public ResponseResult<FileInfo> uploadChunk(
+            @RequestParam("file") MultipartFile chunk,
+            @RequestParam String uploadId,
+            @RequestParam Integer chunkNumber,
+            @RequestParam Integer totalChunks,
+            @RequestParam String fileName,
+            @RequestParam Long fileSize) {
+        
+        try {
+            logger.debug("上传分片: uploadId={}, chunk={}/{}", uploadId, chunkNumber, totalChunks);
+            
+            // 获取当前用户ID
+            Long userId = getCurrentUserId();
+            
+            FileInfo fileInfo = fileUploadService.uploadFileChunk(
+                uploadId, chunkNumber, totalChunks, chunk.getBytes(), fileName, fileSize, userId);
+            return ResponseResult.success(fileInfo);
+        } catch (Exception e) {
+            logger.error("上传分片失败", e);
+            return ResponseResult.error("上传分片失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 创建文件夹
      */
@@ -131,15 +207,17 @@ public class FileUploadController {
     }
 
     /**
-     * 获取上传进度（预留接口）
+     * 获取上传进度
      */
     @GetMapping("/upload/progress/{taskId}")
     public ResponseResult<Object> getUploadProgress(@PathVariable String taskId) {
         try {
             logger.info("获取上传进度: taskId={}", taskId);
             
-            // TODO: 实现上传进度查询
-            Object progress = new Object();
+            Map<String, Object> progress = fileUploadService.getUploadProgress(taskId, getCurrentUserId());
+            if (progress == null) {
+                return ResponseResult.notFound("上传会话不存在");
+            }
             return ResponseResult.success(progress);
         } catch (Exception e) {
             logger.error("获取上传进度失败", e);
@@ -148,14 +226,16 @@ public class FileUploadController {
     }
 
     /**
-     * 取消上传（预留接口）
+     * 取消上传
      */
     @PostMapping("/upload/cancel/{taskId}")
     public ResponseResult<String> cancelUpload(@PathVariable String taskId) {
         try {
             logger.info("取消上传: taskId={}", taskId);
             
-            // TODO: 实现上传取消逻辑
+            if (!fileUploadService.cancelUpload(taskId, getCurrentUserId())) {
+                return ResponseResult.error("取消上传失败");
+            }
             return ResponseResult.success("上传已取消");
         } catch (Exception e) {
             logger.error("取消上传失败", e);
@@ -179,4 +259,15 @@ public class FileUploadController {
         }
         return 1L; // 默认用户ID
     }
+
+    /**
+     * 获取当前登录用户名
+     */
+    private String getCurrentUserName() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            return authentication.getName();
+        }
+        return null;
+    }
 }
@@ -35,6 +35,11 @@ public class SearchDto {
      */
     private Integer size;
     
+    /**
+     * 翻页游标（上一页返回的nextCursor），有游标时忽略页码
+     */
+    private String cursor;
+    
     /**
      * 排序字段
      */
@@ -134,6 +139,14 @@ public class SearchDto {
         this.size = size;
     }
 
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
     public String getSortBy() {
         return sortBy;
     }
@@ -1,12 +1,18 @@
 package com.esfile.entity.elasticsearch;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.CompletionField;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
 
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * 文件文档ES实体类
@@ -15,7 +21,7 @@ import java.util.Date;
  * @author esfile
  * @since 1.0.0
  */
-@Document(indexName = "file_documents")
+@Document(indexName = "file_documents", createIndex = false)
 public class FileDocument {
 
     @Id
@@ -54,7 +60,10 @@ public class FileDocument {
     @Field(type = FieldType.Long)
     private Long uploadUserId;
 
-    @Field(type = FieldType.Text)
+    @MultiField(
+        mainField = @Field(type = FieldType.Text),
+        otherFields = @InnerField(suffix = "keyword", type = FieldType.Keyword)
+    )
     private String uploadUserName;
 
     @Field(type = FieldType.Integer)
@@ -63,12 +72,18 @@ public class FileDocument {
     @Field(type = FieldType.Integer)
     private Integer isPublic;
 
+    @Field(type = FieldType.Keyword)
+    private List<String> shareGrants; // 分享授权项（user:用户ID、role:角色ID，用于可见范围过滤）
+
     @Field(type = FieldType.Text)
     private String description;
 
     @Field(type = FieldType.Text)
     private String tags;
 
+    @Field(type = FieldType.Keyword)
+    private List<String> tagList; // 拆分后的标签（用于聚合统计）
+
     @Field(type = FieldType.Integer)
     private Integer downloadCount;
 
@@ -96,6 +111,9 @@ public class FileDocument {
     @Field(type = FieldType.Integer)
     private Integer priority;
 
+    @CompletionField(maxInputLength = 100)
+    private Completion suggest; // 文件名和标签（用于completion补全）
+
     // 构造函数
     public FileDocument() {}
 
@@ -121,7 +139,7 @@ public class FileDocument {
         this.status = status;
         this.isPublic = isPublic;
         this.description = description;
-        this.tags = tags;
+        setTags(tags);
         this.downloadCount = downloadCount;
         this.previewCount = previewCount;
         this.bucketName = bucketName;
@@ -254,6 +272,14 @@ public class FileDocument {
         this.isPublic = isPublic;
     }
 
+    public List<String> getShareGrants() {
+        return shareGrants;
+    }
+
+    public void setShareGrants(List<String> shareGrants) {
+        this.shareGrants = shareGrants;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -268,6 +294,15 @@ public class FileDocument {
 
     public void setTags(String tags) {
         this.tags = tags;
+        this.tagList = splitTags(tags);
+    }
+
+    public List<String> getTagList() {
+        return tagList;
+    }
+
+    public void setTagList(List<String> tagList) {
+        this.tagList = tagList;
     }
 
     public Integer getDownloadCount() {
@@ -342,6 +377,14 @@ public class FileDocument {
         this.priority = priority;
     }
 
+    public Completion getSuggest() {
+        return suggest;
+    }
+
+    public void setSuggest(Completion suggest) {
+        this.suggest = suggest;
+    }
+
     @Override
     public String toString() {
         return "FileDocument{" +
@@ -373,4 +416,21 @@ public class FileDocument {
                 ", priority=" + priority +
                 '}';
     }
+
+    /**
+     * 按逗号拆分标签，去除空白和重复项
+     */
+    private static List<String> splitTags(String tags) {
+        List<String> tagList = new ArrayList<>();
+        if (tags == null) {
+            return tagList;
+        }
+        for (String tag : tags.split("[,，]")) {
+            String trimmed = tag.trim();
+            if (!trimmed.isEmpty() && !tagList.contains(trimmed)) {
+                tagList.add(trimmed);
+            }
+        }
+        return tagList;
+    }
 }
@@ -0,0 +1,36 @@
+package com.esfile.entity.mybatis;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 索引死信实体类
+ * 批量索引最终失败的文件，同一文件只保留最后一次失败
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class EsIndexDeadLetter extends BaseEntity {
+    
+    /**
+     * 文件ID
+     */
+    private Long fileId;
+    
+    /**
+     * 操作类型：INDEX-索引，DELETE-删除
+     */
+    private String opType;
+    
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+    
+    /**
+     * 已重试次数
+     */
+    private Integer retryCount;
+}
@@ -0,0 +1,39 @@
+package com.esfile.entity.mybatis;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 索引同步发件箱实体类
+ * 与文件信息变更在同一事务中写入，由中继按ID顺序同步到ES
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class EsSyncOutbox extends BaseEntity {
+    
+    /**
+     * 文件ID
+     */
+    private Long fileId;
+    
+    /**
+     * 操作类型：INDEX-全量索引，PARTIAL-部分更新，DELETE-删除
+     */
+    private String opType;
+    
+    /**
+     * 部分更新的字段（逗号分隔）
+     */
+    private String fields;
+    
+    public EsSyncOutbox() {}
+    
+    public EsSyncOutbox(Long fileId, String opType, String fields) {
+        this.fileId = fileId;
+        this.opType = opType;
+        this.fields = fields;
+    }
+}
@@ -0,0 +1,46 @@
+package com.esfile.entity.mybatis;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 文件内容实体类
+ * 按内容哈希寻址的存储对象，多个文件记录可共享同一对象
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class FileBlob extends BaseEntity {
+    
+    /**
+     * 内容SHA-256哈希
+     */
+    private String contentHash;
+    
+    /**
+     * 内容MD5值
+     */
+    private String fileMd5;
+    
+    /**
+     * 内容大小（字节）
+     */
+    private Long fileSize;
+    
+    /**
+     * MinIO存储桶名称
+     */
+    private String bucketName;
+    
+    /**
+     * MinIO对象名称
+     */
+    private String objectName;
+    
+    /**
+     * 引用计数
+     */
+    private Integer refCount;
+}
@@ -0,0 +1,36 @@
+package com.esfile.entity.mybatis;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 文件提取文本实体类
+ * 按内容键缓存的全文检索文本，相同内容的文件共享
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class FileContentText extends BaseEntity {
+    
+    /**
+     * 内容键（SHA-256哈希，未去重的文件为MD5）
+     */
+    private String contentKey;
+    
+    /**
+     * 提取的文本
+     */
+    private String content;
+    
+    /**
+     * 是否因超过字符上限被截断
+     */
+    private Boolean truncated;
+    
+    /**
+     * 提取状态：SUCCESS-成功，FAILED-失败
+     */
+    private String status;
+}
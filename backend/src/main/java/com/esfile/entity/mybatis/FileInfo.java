@@ -1,5 +1,6 @@
 package com.esfile.entity.mybatis;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -53,11 +54,21 @@ public class FileInfo extends BaseEntity {
      */
     private String fileMd5;
     
+    /**
+     * 文件内容SHA-256哈希（内容寻址存储的键）
+     */
+    private String contentHash;
+    
     /**
      * 父级文件夹ID
      */
     private Long parentFolderId;
     
+    /**
+     * 祖先文件夹ID路径（物化路径），根目录下为/，位于文件夹1下的文件夹5中为/1/5/
+     */
+    private String folderPath;
+    
     /**
      * 上传用户ID
      */
@@ -107,4 +118,14 @@ public class FileInfo extends BaseEntity {
      * MinIO对象名称
      */
     private String objectName;
+    
+    /**
+     * 获取提取文本的缓存键
+     * 
+     * @return 内容SHA-256哈希，未去重的文件为MD5
+     */
+    @JsonIgnore
+    public String getContentKey() {
+        return contentHash != null ? contentHash : fileMd5;
+    }
 }
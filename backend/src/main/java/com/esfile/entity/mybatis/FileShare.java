@@ -0,0 +1,49 @@
+package com.esfile.entity.mybatis;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件分享实体类
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class FileShare extends BaseEntity {
+    
+    /**
+     * 文件ID
+     */
+    private Long fileId;
+    
+    /**
+     * 分享类型：LINK-链接分享，USER-分享给用户，ROLE-分享给角色
+     */
+    private String shareType;
+    
+    /**
+     * 被分享的用户ID或角色ID
+     */
+    private Long targetId;
+    
+    /**
+     * 分享码
+     */
+    private String shareCode;
+    
+    /**
+     * 分享人ID
+     */
+    private Long createUserId;
+    
+    /**
+     * 过期时间，为空时不过期
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private LocalDateTime expireTime;
+}
@@ -0,0 +1,25 @@
+package com.esfile.entity.mybatis;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 标签字典实体类
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class TagDict extends BaseEntity {
+    
+    /**
+     * 标签名
+     */
+    private String tagName;
+    
+    /**
+     * 使用该标签的文件数
+     */
+    private Integer fileCount;
+}
@@ -0,0 +1,49 @@
+package com.esfile.mapper;
+
+import com.esfile.entity.mybatis.EsIndexDeadLetter;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 索引死信Mapper接口
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Mapper
+public interface EsIndexDeadLetterMapper {
+    
+    /**
+     * 插入死信，同一文件已存在时覆盖操作类型和失败原因
+     * 
+     * @param deadLetter 死信
+     * @return 影响行数
+     */
+    int upsert(EsIndexDeadLetter deadLetter);
+    
+    /**
+     * 查询可重试的死信
+     * 
+     * @param maxRetries 最大重试次数
+     * @param limit 查询条数
+     * @return 死信列表
+     */
+    List<EsIndexDeadLetter> selectRetryable(@Param("maxRetries") int maxRetries, @Param("limit") int limit);
+    
+    /**
+     * 根据文件ID删除
+     * 
+     * @param fileId 文件ID
+     * @return 影响行数
+     */
+    int deleteByFileId(@Param("fileId") Long fileId);
+    
+    /**
+     * 统计死信数量
+     * 
+     * @return 死信数量
+     */
+    long count();
+}
@@ -0,0 +1,123 @@
+package com.esfile.mapper;
+
+import com.esfile.entity.mybatis.EsSyncOutbox;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 索引同步发件箱Mapper接口
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Mapper
+public interface EsSyncOutboxMapper {
+    
+    /**
+     * 写入发件箱记录
+     * 
+     * @param outbox 发件箱记录
+     * @return 影响行数
+     */
+    int insert(EsSyncOutbox outbox);
+    
+    /**
+     * 批量写入发件箱记录
+     * 
+     * @param outboxes 发件箱记录列表
+     * @return 影响行数
+     */
+    int insertBatch(@Param("outboxes") List<EsSyncOutbox> outboxes);
+    
+    /**
+     * 按ID顺序查询检查点之后的记录
+     * 
+     * @param lastId 检查点
+     * @param limit 查询条数
+     * @return 发件箱记录列表
+     */
+    List<EsSyncOutbox> selectAfterId(@Param("lastId") Long lastId, @Param("limit") int limit);
+    
+    /**
+     * 查询最大记录ID
+     * 
+     * @return 最大记录ID，没有记录时为null
+     */
+    Long selectMaxId();
+    
+    /**
+     * 删除已处理的记录
+     * 
+     * @param lastId 检查点
+     * @param limit 删除条数
+     * @return 影响行数
+     */
+    int deleteUpTo(@Param("lastId") Long lastId, @Param("limit") int limit);
+    
+    /**
+     * 按ID删除记录
+     * 
+     * @param ids 记录ID列表
+     * @return 影响行数
+     */
+    int deleteByIds(@Param("ids") List<Long> ids);
+    
+    /**
+     * 记录中继跳过的ID
+     * 
+     * @param ids 跳过的发件箱ID列表
+     * @return 影响行数
+     */
+    int insertGaps(@Param("ids") List<Long> ids);
+    
+    /**
+     * 查询中继跳过之后又已提交的记录
+     * 
+     * @param limit 查询条数
+     * @return 发件箱记录列表
+     */
+    List<EsSyncOutbox> selectLateCommitted(@Param("limit") int limit);
+    
+    /**
+     * 查询最小的跳过ID
+     * 
+     * @return 最小的跳过ID，没有时为null
+     */
+    Long selectMinGapId();
+    
+    /**
+     * 删除跳过的ID
+     * 
+     * @param ids 跳过的发件箱ID列表
+     * @return 影响行数
+     */
+    int deleteGaps(@Param("ids") List<Long> ids);
+    
+    /**
+     * 删除超过重新扫描时限的跳过ID
+     * 
+     * @param time 跳过时间早于该时间的删除
+     * @return 影响行数
+     */
+    int deleteGapsBefore(@Param("time") LocalDateTime time);
+    
+    /**
+     * 查询检查点
+     * 
+     * @param name 检查点名称
+     * @return 已处理的最大发件箱ID，没有时为null
+     */
+    Long selectCheckpoint(@Param("name") String name);
+    
+    /**
+     * 保存检查点
+     * 
+     * @param name 检查点名称
+     * @param lastId 已处理的最大发件箱ID
+     * @return 影响行数
+     */
+    int saveCheckpoint(@Param("name") String name, @Param("lastId") Long lastId);
+}
@@ -0,0 +1,55 @@
+package com.esfile.mapper;
+
+import com.esfile.entity.mybatis.FileBlob;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 文件内容Mapper接口
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Mapper
+public interface FileBlobMapper {
+    
+    /**
+     * 根据内容哈希查询
+     * 
+     * @param contentHash 内容哈希
+     * @return 文件内容
+     */
+    FileBlob selectByContentHash(@Param("contentHash") String contentHash);
+    
+    /**
+     * 插入文件内容，哈希已存在时引用计数加一
+     * 
+     * @param fileBlob 文件内容
+     * @return 影响行数
+     */
+    int insertOrIncrement(FileBlob fileBlob);
+    
+    /**
+     * 引用计数加一（仅对仍被引用的内容生效）
+     * 
+     * @param contentHash 内容哈希
+     * @return 影响行数
+     */
+    int incrementRefCount(@Param("contentHash") String contentHash);
+    
+    /**
+     * 引用计数减一
+     * 
+     * @param contentHash 内容哈希
+     * @return 影响行数
+     */
+    int decrementRefCount(@Param("contentHash") String contentHash);
+    
+    /**
+     * 删除引用计数为零的内容
+     * 
+     * @param contentHash 内容哈希
+     * @return 影响行数
+     */
+    int deleteUnreferenced(@Param("contentHash") String contentHash);
+}
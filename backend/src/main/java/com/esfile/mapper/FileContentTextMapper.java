@@ -0,0 +1,42 @@
+package com.esfile.mapper;
+
+import com.esfile.entity.mybatis.FileContentText;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文件提取文本Mapper接口
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Mapper
+public interface FileContentTextMapper {
+    
+    /**
+     * 根据内容键批量查询
+     * 
+     * @param contentKeys 内容键
+     * @return 提取文本列表
+     */
+    List<FileContentText> selectByKeys(@Param("contentKeys") Collection<String> contentKeys);
+    
+    /**
+     * 查询提取状态（不读取文本）
+     * 
+     * @param contentKey 内容键
+     * @return 提取状态，未提取时为null
+     */
+    String selectStatus(@Param("contentKey") String contentKey);
+    
+    /**
+     * 保存提取文本，内容键已存在时覆盖
+     * 
+     * @param contentText 提取文本
+     * @return 影响行数
+     */
+    int upsert(FileContentText contentText);
+}
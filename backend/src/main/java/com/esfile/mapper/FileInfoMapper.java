@@ -4,6 +4,8 @@ import com.esfile.entity.mybatis.FileInfo;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -48,14 +50,6 @@ public interface FileInfoMapper {
      */
     FileInfo selectById(@Param("id") Long id);
     
-    /**
-     * 根据文件名查询文件信息
-     * 
-     * @param fileName 文件名
-     * @return 文件信息列表
-     */
-    List<FileInfo> selectByFileName(@Param("fileName") String fileName);
-    
     /**
      * 根据文件类型查询文件信息
      * 
@@ -80,6 +74,23 @@ public interface FileInfoMapper {
      */
     FileInfo selectByFileMd5(@Param("fileMd5") String fileMd5);
     
+    /**
+     * 根据MD5值和上传用户查询文件信息
+     * 
+     * @param fileMd5 文件MD5值
+     * @param uploadUserId 上传用户ID
+     * @return 文件信息
+     */
+    FileInfo selectByFileMd5AndUserId(@Param("fileMd5") String fileMd5, @Param("uploadUserId") Long uploadUserId);
+    
+    /**
+     * 统计引用指定MinIO对象的文件数量
+     * 
+     * @param objectName MinIO对象名称
+     * @return 文件数量
+     */
+    long countByObjectName(@Param("objectName") String objectName);
+    
     /**
      * 查询所有文件信息
      * 
@@ -128,20 +139,47 @@ public interface FileInfoMapper {
     int updatePreviewCount(@Param("id") Long id);
     
     /**
-     * 根据关键词搜索文件
+     * 根据标签ID查询文件，按ID倒序
      * 
-     * @param keyword 关键词
+     * @param tagIds 标签ID
+     * @param matchCount 需要命中的标签数，传标签数表示同时包含全部标签，为空表示包含任一标签
+     * @param scope 可见范围（userId、roleIds），为空时不限制
+     * @param offset 跳过的条数
+     * @param limit 查询条数
      * @return 文件信息列表
      */
-    List<FileInfo> searchByKeyword(@Param("keyword") String keyword);
+    List<FileInfo> selectByTagIds(@Param("tagIds") Collection<Long> tagIds, @Param("matchCount") Integer matchCount,
+                                  @Param("scope") Map<String, Object> scope,
+                                  @Param("offset") int offset, @Param("limit") int limit);
     
     /**
-     * 根据标签查询文件
+     * 统计包含标签的文件数，最多数到上限
      * 
-     * @param tag 标签
-     * @return 文件信息列表
+     * @param tagIds 标签ID
+     * @param matchCount 需要命中的标签数，为空表示包含任一标签
+     * @param scope 可见范围（userId、roleIds），为空时不限制
+     * @param limit 计数上限
+     * @return 文件数
+     */
+    long countByTagIds(@Param("tagIds") Collection<Long> tagIds, @Param("matchCount") Integer matchCount,
+                       @Param("scope") Map<String, Object> scope, @Param("limit") long limit);
+    
+    /**
+     * 加锁查询文件信息，用于串行化同一文件的标签变更
+     * 
+     * @param id 文件ID
+     * @return 文件信息，文件不存在或已删除时为空
+     */
+    FileInfo selectByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * 更新文件的标签字符串
+     * 
+     * @param id 文件ID
+     * @param tags 标签，以逗号分隔
+     * @return 影响行数
      */
-    List<FileInfo> selectByTag(@Param("tag") String tag);
+    int updateTags(@Param("id") Long id, @Param("tags") String tags);
     
     /**
      * 根据文件夹ID查询文件
@@ -177,6 +215,66 @@ public interface FileInfoMapper {
      */
     List<FileInfo> selectBySizeRange(@Param("minSize") Long minSize, @Param("maxSize") Long maxSize);
     
+    /**
+     * 根据ID列表批量查询文件信息
+     * 
+     * @param ids 文件ID列表
+     * @return 文件信息列表（不保证与ID列表顺序一致）
+     */
+    List<FileInfo> selectByIds(@Param("ids") List<Long> ids);
+    
+    /**
+     * 按ID顺序分批查询文件信息（键集分页）
+     * 
+     * @param lastId 上一批最后一条的ID，首批传0
+     * @param limit 每批条数
+     * @return 文件信息列表
+     */
+    List<FileInfo> selectBatchAfterId(@Param("lastId") Long lastId, @Param("limit") int limit);
+    
+    /**
+     * 按创建时间倒序分页查询（键集分页），排序为(create_time DESC, id DESC)
+     * 
+     * @param condition 查询条件（fileName、fileType、uploadUserId、status、isPublic）
+     * @param keyword 全文检索式（BOOLEAN MODE），匹配文件名、描述和标签，可为空
+     * @param afterTime 上一页最后一条的创建时间，首页为空
+     * @param afterId 上一页最后一条的ID，首页为空
+     * @param scope 可见范围（userId、roleIds），为空时不限制
+     * @param offset 没有游标时跳过的条数
+     * @param limit 查询条数
+     * @return 文件信息列表
+     */
+    List<FileInfo> selectKeysetPage(@Param("condition") FileInfo condition, @Param("keyword") String keyword,
+                                    @Param("afterTime") LocalDateTime afterTime, @Param("afterId") Long afterId,
+                                    @Param("scope") Map<String, Object> scope,
+                                    @Param("offset") int offset, @Param("limit") int limit);
+    
+    /**
+     * 按全文检索相关度倒序分页查询，相关度相同时按ID倒序
+     * 
+     * @param condition 查询条件
+     * @param keyword 全文检索式（BOOLEAN MODE）
+     * @param scope 可见范围（userId、roleIds），为空时不限制
+     * @param offset 跳过的条数
+     * @param limit 查询条数
+     * @return 文件信息列表
+     */
+    List<FileInfo> selectPageByRelevance(@Param("condition") FileInfo condition, @Param("keyword") String keyword,
+                                         @Param("scope") Map<String, Object> scope,
+                                         @Param("offset") int offset, @Param("limit") int limit);
+    
+    /**
+     * 统计符合条件的文件数，最多数到上限
+     * 
+     * @param condition 查询条件
+     * @param keyword 全文检索式（BOOLEAN MODE），可为空
+     * @param scope 可见范围（userId、roleIds），为空时不限制
+     * @param limit 计数上限
+     * @return 文件数，等于上限时实际数量可能更多
+     */
+    long countByConditionLimited(@Param("condition") FileInfo condition, @Param("keyword") String keyword,
+                                 @Param("scope") Map<String, Object> scope, @Param("limit") long limit);
+    
     /**
      * 批量删除文件
      * 
@@ -240,6 +338,61 @@ public interface FileInfoMapper {
      */
     List<FileInfo> selectFoldersByParentId(@Param("parentId") Long parentId);
     
+    /**
+     * 按物化路径前缀查询子树中的全部文件夹，按名称排序
+     * 
+     * @param pathPrefix 子树根的子项路径，如/1/5/，根目录为/
+     * @return 文件夹列表
+     */
+    List<FileInfo> selectFoldersByPathPrefix(@Param("pathPrefix") String pathPrefix);
+    
+    /**
+     * 查询同一父文件夹下同一用户的同名文件夹
+     * 
+     * @param parentId 父级文件夹ID，根目录为0
+     * @param userId 用户ID
+     * @param folderName 文件夹名称
+     * @return 文件夹ID，不存在时为空
+     */
+    Long selectFolderIdByName(@Param("parentId") Long parentId, @Param("userId") Long userId,
+                              @Param("folderName") String folderName);
+    
+    /**
+     * 文件夹下是否有未删除的文件或文件夹
+     * 
+     * @param parentId 文件夹ID
+     * @return 是否非空
+     */
+    boolean existsByParentId(@Param("parentId") Long parentId);
+    
+    /**
+     * 查询文件夹并加共享锁，防止写入子项期间文件夹被删除或移动
+     * 
+     * @param id 文件夹ID
+     * @return 文件夹，不存在、已删除或不是文件夹时为空
+     */
+    FileInfo selectFolderForShare(@Param("id") Long id);
+    
+    /**
+     * 查询路径以指定前缀开头的记录中最长的物化路径长度
+     * 
+     * @param pathPrefix 路径前缀，如文件夹的子项路径
+     * @return 最长路径长度，没有记录时为null
+     */
+    Integer selectMaxFolderPathLength(@Param("pathPrefix") String pathPrefix);
+    
+    /**
+     * 移动文件或文件夹，文件夹的全部后代的物化路径在同一条语句中替换前缀
+     * 
+     * @param id 文件或文件夹ID
+     * @param parentId 目标文件夹ID，根目录为0
+     * @param oldPath 移动前的物化路径
+     * @param newPath 移动后的物化路径
+     * @return 影响行数
+     */
+    int moveToFolder(@Param("id") Long id, @Param("parentId") Long parentId,
+                     @Param("oldPath") String oldPath, @Param("newPath") String newPath);
+    
     /**
      * 查询总存储大小
      * 
@@ -0,0 +1,74 @@
+package com.esfile.mapper;
+
+import com.esfile.entity.mybatis.FileShare;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文件分享Mapper接口
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Mapper
+public interface FileShareMapper {
+    
+    /**
+     * 写入分享记录，同一文件重复分享给同一对象时更新过期时间
+     * 
+     * @param fileShare 分享记录
+     * @return 影响行数
+     */
+    int upsert(FileShare fileShare);
+    
+    /**
+     * 根据ID查询分享记录
+     * 
+     * @param id 分享ID
+     * @return 分享记录
+     */
+    FileShare selectById(Long id);
+    
+    /**
+     * 查询分享人的所有分享记录
+     * 
+     * @param createUserId 分享人ID
+     * @return 分享记录列表
+     */
+    List<FileShare> selectByCreateUserId(Long createUserId);
+    
+    /**
+     * 批量查询文件未过期的分享记录
+     * 
+     * @param fileIds 文件ID
+     * @return 分享记录列表
+     */
+    List<FileShare> selectActiveByFileIds(@Param("fileIds") Collection<Long> fileIds);
+    
+    /**
+     * 查询已过期的分享记录
+     * 
+     * @param limit 查询条数
+     * @return 分享记录列表
+     */
+    List<FileShare> selectExpired(@Param("limit") int limit);
+    
+    /**
+     * 根据ID删除分享记录
+     * 
+     * @param id 分享ID
+     * @return 影响行数
+     */
+    int deleteById(Long id);
+    
+    /**
+     * 批量删除分享记录
+     * 
+     * @param ids 分享ID
+     * @return 影响行数
+     */
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,51 @@
+package com.esfile.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文件标签关联Mapper接口
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Mapper
+public interface FileTagMapper {
+    
+    /**
+     * 加锁读取文件的标签ID（当前读，不受调用方事务快照的影响）
+     * 
+     * @param fileId 文件ID
+     * @return 标签ID列表
+     */
+    List<Long> selectTagIdsForUpdate(@Param("fileId") Long fileId);
+    
+    /**
+     * 查询文件的标签名，按添加顺序
+     * 
+     * @param fileId 文件ID
+     * @return 标签名列表
+     */
+    List<String> selectTagNamesByFileId(@Param("fileId") Long fileId);
+    
+    /**
+     * 批量添加文件标签
+     * 
+     * @param fileId 文件ID
+     * @param tagIds 标签ID
+     * @return 影响行数
+     */
+    int insertBatch(@Param("fileId") Long fileId, @Param("tagIds") Collection<Long> tagIds);
+    
+    /**
+     * 删除文件的指定标签
+     * 
+     * @param fileId 文件ID
+     * @param tagIds 标签ID
+     * @return 影响行数
+     */
+    int deleteByFileIdAndTagIds(@Param("fileId") Long fileId, @Param("tagIds") Collection<Long> tagIds);
+}
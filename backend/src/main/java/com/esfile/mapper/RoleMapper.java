@@ -73,4 +73,9 @@ public interface RoleMapper {
      * 查询角色用户列表
      */
     List<Map<String, Object>> selectRoleUsers(Long roleId);
+
+    /**
+     * 查询用户已启用的角色
+     */
+    List<Role> selectEnabledByUserId(Long userId);
 }
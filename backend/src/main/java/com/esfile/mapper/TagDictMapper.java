@@ -0,0 +1,58 @@
+package com.esfile.mapper;
+
+import com.esfile.entity.mybatis.TagDict;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标签字典Mapper接口
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Mapper
+public interface TagDictMapper {
+    
+    /**
+     * 写入标签名，已存在的忽略
+     * 
+     * @param tagNames 标签名
+     * @return 新写入的条数
+     */
+    int insertIgnore(@Param("tagNames") Collection<String> tagNames);
+    
+    /**
+     * 根据标签名查询标签
+     * 
+     * @param tagNames 标签名
+     * @return 标签列表，不存在的标签名没有对应项
+     */
+    List<TagDict> selectByNames(@Param("tagNames") Collection<String> tagNames);
+    
+    /**
+     * 增减标签的文件数，一条语句按ID顺序锁定全部涉及的标签
+     * 
+     * @param deltas 标签ID -> 变化量
+     * @return 影响行数
+     */
+    int updateFileCount(@Param("deltas") Map<Long, Integer> deltas);
+    
+    /**
+     * 按文件数倒序查询标签
+     * 
+     * @param limit 查询条数
+     * @return 标签列表
+     */
+    List<TagDict> selectPopular(@Param("limit") int limit);
+    
+    /**
+     * 按关联表重新统计所有标签的文件数
+     * 
+     * @return 影响行数
+     */
+    int recountFileCount();
+}
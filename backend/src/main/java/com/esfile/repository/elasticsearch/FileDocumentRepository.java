@@ -104,42 +104,6 @@ public interface FileDocumentRepository extends ElasticsearchRepository<FileDocu
     @Query("{\"multi_match\": {\"query\": \"?0\", \"fields\": [\"fileName^2\", \"description^1.5\", \"tags^1.2\", \"content^1\", \"uploadUserName^0.8\"]}}")
     Page<FileDocument> fullTextSearch(String query, Pageable pageable);
 
-    /**
-     * 根据文件类型统计
-     */
-    @Query("{\"aggs\": {\"file_types\": {\"terms\": {\"field\": \"fileType\"}}}}")
-    List<FileDocument> getFileTypeStats();
-
-    /**
-     * 根据上传用户统计
-     */
-    @Query("{\"aggs\": {\"upload_users\": {\"terms\": {\"field\": \"uploadUserName\"}}}}")
-    List<FileDocument> getUploadUserStats();
-
-    /**
-     * 根据标签统计
-     */
-    @Query("{\"aggs\": {\"tags\": {\"terms\": {\"field\": \"tags\"}}}}")
-    List<FileDocument> getTagStats();
-
-    /**
-     * 根据创建时间统计（按天）
-     */
-    @Query("{\"aggs\": {\"daily_uploads\": {\"date_histogram\": {\"field\": \"createTime\", \"interval\": \"1d\"}}}}")
-    List<FileDocument> getDailyUploadStats();
-
-    /**
-     * 根据文件大小统计
-     */
-    @Query("{\"aggs\": {\"size_ranges\": {\"range\": {\"field\": \"fileSize\", \"ranges\": [{\"to\": 1048576}, {\"from\": 1048576, \"to\": 10485760}, {\"from\": 10485760}]}}}}")
-    List<FileDocument> getSizeRangeStats();
-
-    /**
-     * 搜索建议（自动补全）
-     */
-    @Query("{\"suggest\": {\"file_suggest\": {\"prefix\": \"?0\", \"completion\": {\"field\": \"fileName_suggest\"}}}}")
-    List<FileDocument> getSearchSuggestions(String prefix);
-
     /**
      * 相似文件搜索（基于标签和描述）
      */
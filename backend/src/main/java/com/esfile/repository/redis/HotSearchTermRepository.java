@@ -0,0 +1,73 @@
+package com.esfile.repository.redis;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 热门搜索词仓库
+ * 各节点定期发布本节点的统计快照，快照带过期时间，停止发布的节点自动退出合并
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Repository
+public class HotSearchTermRepository {
+
+    private static final String SNAPSHOT_KEY_PREFIX = "search:hot:snapshot:";
+
+    private static final String NODES_KEY_PREFIX = "search:hot:nodes:";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 发布本节点的快照
+     *
+     * @param window 时间窗口
+     * @param nodeId 节点标识
+     * @param snapshot 快照JSON
+     * @param ttl 快照过期时间
+     */
+    public void publish(String window, String nodeId, String snapshot, Duration ttl) {
+        redisTemplate.opsForValue().set(snapshotKey(window, nodeId), snapshot, ttl);
+        redisTemplate.opsForSet().add(NODES_KEY_PREFIX + window, nodeId);
+    }
+
+    /**
+     * 读取所有节点仍有效的快照，并移除快照已过期的节点
+     */
+    public List<String> loadAll(String window) {
+        List<String> snapshots = new ArrayList<>();
+        Set<Object> nodes = redisTemplate.opsForSet().members(NODES_KEY_PREFIX + window);
+        if (nodes == null || nodes.isEmpty()) {
+            return snapshots;
+        }
+
+        List<String> nodeIds = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (Object node : nodes) {
+            nodeIds.add(node.toString());
+            keys.add(snapshotKey(window, node.toString()));
+        }
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+        for (int i = 0; i < nodeIds.size(); i++) {
+            Object value = values != null ? values.get(i) : null;
+            if (value != null) {
+                snapshots.add(value.toString());
+            } else {
+                redisTemplate.opsForSet().remove(NODES_KEY_PREFIX + window, nodeIds.get(i));
+            }
+        }
+        return snapshots;
+    }
+
+    private static String snapshotKey(String window, String nodeId) {
+        return SNAPSHOT_KEY_PREFIX + window + ":" + nodeId;
+    }
+}
@@ -0,0 +1,72 @@
+package com.esfile.repository.redis;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collections;
+
+/**
+ * 租约锁仓库
+ * 用于只能由集群中一个节点运行的后台任务，持有者需在租约过期前续期，节点宕机后租约自动释放；
+ * 比较持有者和续期、释放在同一个Lua脚本中完成，不会续期或删除已被其他节点取得的租约
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Repository
+public class LeaseLockRepository {
+
+    private static final String LOCK_KEY_PREFIX = "lease:";
+
+    /**
+     * 租约不存在时取得，持有者是自己时续期
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+        "local owner = redis.call('get', KEYS[1]) " +
+        "if not owner then " +
+        "  redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+        "  return 1 " +
+        "end " +
+        "if owner == ARGV[1] then " +
+        "  redis.call('pexpire', KEYS[1], ARGV[2]) " +
+        "  return 1 " +
+        "end " +
+        "return 0", Long.class);
+
+    /**
+     * 持有者是自己时删除
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+        "  return redis.call('del', KEYS[1]) " +
+        "end " +
+        "return 0", Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 获取或续期租约
+     *
+     * @param name 租约名称
+     * @param owner 持有者标识
+     * @param ttl 租约时长
+     * @return 当前节点是否持有租约
+     */
+    public boolean acquire(String name, String owner, Duration ttl) {
+        Long acquired = redisTemplate.execute(ACQUIRE_SCRIPT,
+            Collections.singletonList(LOCK_KEY_PREFIX + name), owner, ttl.toMillis());
+        return acquired != null && acquired == 1L;
+    }
+
+    /**
+     * 释放租约，只释放自己持有的
+     */
+    public void release(String name, String owner) {
+        redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(LOCK_KEY_PREFIX + name), owner);
+    }
+}
@@ -0,0 +1,77 @@
+package com.esfile.repository.redis;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 索引重建状态仓库
+ * 记录重建的目标索引和已写入的最大文件ID，重建中断后可从断点继续；
+ * 重建锁保证集群中同时只有一个节点在重建
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Repository
+public class ReindexStateRepository {
+
+    private static final String STATE_KEY = "es:reindex:state";
+
+    private static final String LOCK_KEY = "es:reindex:lock";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 获取重建锁
+     *
+     * @param owner 持有者标识
+     * @param ttl 锁过期时间，持有者需在过期前续期
+     */
+    public boolean tryLock(String owner, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, owner, ttl));
+    }
+
+    /**
+     * 续期重建锁，锁已被其他节点持有时返回false
+     */
+    public boolean renewLock(String owner, Duration ttl) {
+        if (!Objects.equals(owner, redisTemplate.opsForValue().get(LOCK_KEY))) {
+            return false;
+        }
+        redisTemplate.expire(LOCK_KEY, ttl);
+        return true;
+    }
+
+    public void unlock(String owner) {
+        if (Objects.equals(owner, redisTemplate.opsForValue().get(LOCK_KEY))) {
+            redisTemplate.delete(LOCK_KEY);
+        }
+    }
+
+    public boolean isLocked() {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(LOCK_KEY));
+    }
+
+    /**
+     * 获取重建状态，没有进行中的重建时返回空Map
+     */
+    public Map<String, Object> getState() {
+        Map<String, Object> state = new HashMap<>();
+        redisTemplate.opsForHash().entries(STATE_KEY).forEach((key, value) -> state.put(key.toString(), value));
+        return state;
+    }
+
+    public void saveState(Map<String, Object> state) {
+        redisTemplate.opsForHash().putAll(STATE_KEY, state);
+    }
+
+    public void clearState() {
+        redisTemplate.delete(STATE_KEY);
+    }
+}
@@ -0,0 +1,56 @@
+package com.esfile.repository.redis;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+/**
+ * 搜索结果缓存仓库
+ * 缓存键包含索引代数，索引刷新后代数加一，旧代数的缓存不再命中并随过期时间淘汰
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Repository
+public class SearchCacheRepository {
+
+    private static final String GENERATION_KEY = "search:generation";
+
+    private static final String RESULT_KEY_PREFIX = "search:result:";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 获取当前索引代数，未初始化时为0
+     */
+    public long getGeneration() {
+        Object value = redisTemplate.opsForValue().get(GENERATION_KEY);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * 索引代数加一
+     *
+     * @return 新的代数
+     */
+    public long incrementGeneration() {
+        Long generation = redisTemplate.opsForValue().increment(GENERATION_KEY);
+        return generation != null ? generation : 0L;
+    }
+
+    public String getResult(long generation, String fingerprint) {
+        Object value = redisTemplate.opsForValue().get(resultKey(generation, fingerprint));
+        return value != null ? value.toString() : null;
+    }
+
+    public void saveResult(long generation, String fingerprint, String json, Duration ttl) {
+        redisTemplate.opsForValue().set(resultKey(generation, fingerprint), json, ttl);
+    }
+
+    private static String resultKey(long generation, String fingerprint) {
+        return RESULT_KEY_PREFIX + generation + ":" + fingerprint;
+    }
+}
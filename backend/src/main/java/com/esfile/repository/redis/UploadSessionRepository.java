@@ -0,0 +1,296 @@
+package com.esfile.repository.redis;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片上传会话仓库
+ * 会话元数据、已接收分片位图和分片ETag存放在Redis中，任意节点都能续传和查询进度；
+ * 分片数据本身不进入Redis，只保存在MinIO分片上传或MinIO暂存对象中
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Repository
+public class UploadSessionRepository {
+
+    private static final String SESSION_KEY_PREFIX = "upload:session:";
+
+    private static final String CHUNKS_KEY_PREFIX = "upload:chunks:";
+
+    private static final String PARTS_KEY_PREFIX = "upload:parts:";
+
+    private static final String COMPLETING_KEY_PREFIX = "upload:completing:";
+
+    private static final String CHUNK_SIZE_KEY_PREFIX = "upload:chunksize:";
+
+    private static final String CHALLENGE_KEY_PREFIX = "upload:challenge:";
+
+    /**
+     * 活跃会话索引（score为最后更新时间），不设过期，供清理任务查找已过期的会话
+     */
+    private static final String SESSION_INDEX_KEY = "upload:sessions";
+
+    /**
+     * 未完成的MinIO分片上传（会话ID -> 对象名和分片上传ID），会话过期后据此中止
+     */
+    private static final String MULTIPART_INDEX_KEY = "upload:multipart";
+
+    /**
+     * 分片暂存为MinIO对象的会话（会话ID -> 分片数），会话过期后据此删除暂存对象
+     */
+    private static final String STAGED_INDEX_KEY = "upload:staged";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${file.upload.session-ttl:86400}")
+    private long sessionTtlSeconds;
+
+    /**
+     * 创建会话，已存在时不覆盖
+     *
+     * @return 是否由本次调用创建
+     */
+    public boolean createSession(String uploadId, Map<String, Object> session) {
+        Boolean created = redisTemplate.opsForValue().setIfAbsent(
+            SESSION_KEY_PREFIX + uploadId, session, Duration.ofSeconds(sessionTtlSeconds));
+        if (!Boolean.TRUE.equals(created)) {
+            return false;
+        }
+
+        redisTemplate.opsForZSet().add(SESSION_INDEX_KEY, uploadId, System.currentTimeMillis());
+        if (session.get("multipartUploadId") != null) {
+            Map<String, Object> multipart = new HashMap<>();
+            multipart.put("objectName", session.get("objectName"));
+            multipart.put("multipartUploadId", session.get("multipartUploadId"));
+            redisTemplate.opsForHash().put(MULTIPART_INDEX_KEY, uploadId, multipart);
+        } else {
+            redisTemplate.opsForHash().put(STAGED_INDEX_KEY, uploadId, session.get("totalChunks"));
+        }
+        return true;
+    }
+
+    /**
+     * 获取会话元数据，不存在或已过期时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getSession(String uploadId) {
+        Object session = redisTemplate.opsForValue().get(SESSION_KEY_PREFIX + uploadId);
+        return session instanceof Map ? (Map<String, Object>) session : null;
+    }
+
+    public boolean existsSession(String uploadId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(SESSION_KEY_PREFIX + uploadId));
+    }
+
+    /**
+     * 标记分片已接收并刷新会话过期时间
+     *
+     * @return 已接收的分片数
+     */
+    public int markChunkReceived(String uploadId, int chunkNumber) {
+        String chunksKey = CHUNKS_KEY_PREFIX + uploadId;
+        redisTemplate.opsForValue().setBit(chunksKey, chunkNumber, true);
+        touch(uploadId);
+        return countReceivedChunks(uploadId);
+    }
+
+    /**
+     * 获取已接收的分片序号（一次读取整个位图）
+     */
+    public List<Integer> getReceivedChunks(String uploadId) {
+        byte[] rawKey = (CHUNKS_KEY_PREFIX + uploadId).getBytes(StandardCharsets.UTF_8);
+        byte[] bitmap = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey));
+
+        List<Integer> chunkNumbers = new ArrayList<>();
+        if (bitmap == null) {
+            return chunkNumbers;
+        }
+        // Redis位图按字节从高位到低位编号
+        for (int i = 0; i < bitmap.length; i++) {
+            for (int bit = 0; bit < 8; bit++) {
+                if ((bitmap[i] & (0x80 >>> bit)) != 0) {
+                    chunkNumbers.add(i * 8 + bit);
+                }
+            }
+        }
+        return chunkNumbers;
+    }
+
+    public int countReceivedChunks(String uploadId) {
+        byte[] rawKey = (CHUNKS_KEY_PREFIX + uploadId).getBytes(StandardCharsets.UTF_8);
+        Long count = redisTemplate.execute((RedisCallback<Long>) connection -> connection.bitCount(rawKey));
+        return count != null ? count.intValue() : 0;
+    }
+
+    /**
+     * 记录会话的分片大小，已记录时不覆盖
+     *
+     * @param lastChunk true为最后一片的大小，false为其余分片的统一大小
+     * @return 会话中记录的大小
+     */
+    public long saveChunkSize(String uploadId, boolean lastChunk, long size) {
+        String sizeKey = CHUNK_SIZE_KEY_PREFIX + uploadId;
+        redisTemplate.opsForHash().putIfAbsent(sizeKey, lastChunk ? "last" : "chunk", size);
+        redisTemplate.expire(sizeKey, sessionTtlSeconds, TimeUnit.SECONDS);
+        Long recorded = getChunkSize(uploadId, lastChunk);
+        return recorded != null ? recorded : size;
+    }
+
+    /**
+     * 获取会话中记录的分片大小，还没有收到对应分片时返回null
+     */
+    public Long getChunkSize(String uploadId, boolean lastChunk) {
+        Object size = redisTemplate.opsForHash().get(CHUNK_SIZE_KEY_PREFIX + uploadId, lastChunk ? "last" : "chunk");
+        return size instanceof Number ? ((Number) size).longValue() : null;
+    }
+
+    /**
+     * 记录MinIO分片的ETag
+     */
+    public void savePartEtag(String uploadId, int partNumber, String etag) {
+        redisTemplate.opsForHash().put(PARTS_KEY_PREFIX + uploadId, String.valueOf(partNumber), etag);
+    }
+
+    /**
+     * 获取已上传分片的ETag（分片号 -> ETag）
+     */
+    public Map<Integer, String> getPartEtags(String uploadId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(PARTS_KEY_PREFIX + uploadId);
+        Map<Integer, String> partEtags = new TreeMap<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            partEtags.put(Integer.valueOf(entry.getKey().toString()), (String) entry.getValue());
+        }
+        return partEtags;
+    }
+
+    /**
+     * 抢占会话的完成权，保证多个节点同时收齐分片时只合并一次
+     */
+    public boolean tryStartCompletion(String uploadId) {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(
+            COMPLETING_KEY_PREFIX + uploadId, System.currentTimeMillis(), Duration.ofSeconds(sessionTtlSeconds));
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    /**
+     * 完成失败时释放完成权，允许重试
+     */
+    public void releaseCompletion(String uploadId) {
+        redisTemplate.delete(COMPLETING_KEY_PREFIX + uploadId);
+    }
+
+    /**
+     * 获取未完成的MinIO分片上传信息，会话元数据过期后仍可查到
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getMultipartUpload(String uploadId) {
+        Object multipart = redisTemplate.opsForHash().get(MULTIPART_INDEX_KEY, uploadId);
+        return multipart instanceof Map ? (Map<String, Object>) multipart : null;
+    }
+
+    /**
+     * 分片已在MinIO合并为完整对象，不能再中止；文件记录保存失败时保留该标记，
+     * 重试时跳过合并，放弃会话时删除对象
+     */
+    public void markMultipartCompleted(String uploadId) {
+        Map<String, Object> multipart = getMultipartUpload(uploadId);
+        if (multipart != null) {
+            multipart.put("completed", true);
+            redisTemplate.opsForHash().put(MULTIPART_INDEX_KEY, uploadId, multipart);
+        }
+    }
+
+    /**
+     * 分片上传已完成且对象已被文件记录引用，不再需要中止或删除
+     */
+    public void removeMultipartUpload(String uploadId) {
+        redisTemplate.opsForHash().delete(MULTIPART_INDEX_KEY, uploadId);
+    }
+
+    /**
+     * 获取分片暂存为MinIO对象的会话的分片数，会话元数据过期后仍可查到
+     */
+    public Integer getStagedChunkCount(String uploadId) {
+        Object totalChunks = redisTemplate.opsForHash().get(STAGED_INDEX_KEY, uploadId);
+        return totalChunks instanceof Number ? ((Number) totalChunks).intValue() : null;
+    }
+
+    /**
+     * 保存秒传的内容抽查，同一用户同一内容只保留最近一次
+     */
+    public void saveChallenge(String challengeId, Map<String, Object> challenge, long ttlSeconds) {
+        redisTemplate.opsForValue().set(CHALLENGE_KEY_PREFIX + challengeId, challenge, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 取出并删除秒传的内容抽查，每次抽查只能回答一次
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> takeChallenge(String challengeId) {
+        String challengeKey = CHALLENGE_KEY_PREFIX + challengeId;
+        Object challenge = redisTemplate.opsForValue().get(challengeKey);
+        if (!(challenge instanceof Map) || !Boolean.TRUE.equals(redisTemplate.delete(challengeKey))) {
+            return null;
+        }
+        return (Map<String, Object>) challenge;
+    }
+
+    /**
+     * 查找超过过期时间未更新的会话
+     */
+    public Set<String> findExpiredSessions() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(sessionTtlSeconds);
+        Set<Object> members = redisTemplate.opsForZSet().rangeByScore(SESSION_INDEX_KEY, 0, expireBefore);
+        Set<String> uploadIds = new HashSet<>();
+        if (members != null) {
+            for (Object member : members) {
+                uploadIds.add(member.toString());
+            }
+        }
+        return uploadIds;
+    }
+
+    /**
+     * 从索引中移除会话，多个节点同时清理时只有一个返回true
+     */
+    public boolean removeFromIndex(String uploadId) {
+        Long removed = redisTemplate.opsForZSet().remove(SESSION_INDEX_KEY, uploadId);
+        return removed != null && removed > 0;
+    }
+
+    /**
+     * 删除会话的全部数据
+     */
+    public void deleteSession(String uploadId) {
+        redisTemplate.delete(Arrays.asList(
+            SESSION_KEY_PREFIX + uploadId,
+            CHUNKS_KEY_PREFIX + uploadId,
+            PARTS_KEY_PREFIX + uploadId,
+            COMPLETING_KEY_PREFIX + uploadId,
+            CHUNK_SIZE_KEY_PREFIX + uploadId));
+        redisTemplate.opsForZSet().remove(SESSION_INDEX_KEY, uploadId);
+        redisTemplate.opsForHash().delete(MULTIPART_INDEX_KEY, uploadId);
+        redisTemplate.opsForHash().delete(STAGED_INDEX_KEY, uploadId);
+    }
+
+    /**
+     * 刷新会话过期时间
+     */
+    private void touch(String uploadId) {
+        redisTemplate.expire(SESSION_KEY_PREFIX + uploadId, sessionTtlSeconds, TimeUnit.SECONDS);
+        redisTemplate.expire(CHUNKS_KEY_PREFIX + uploadId, sessionTtlSeconds, TimeUnit.SECONDS);
+        redisTemplate.expire(PARTS_KEY_PREFIX + uploadId, sessionTtlSeconds, TimeUnit.SECONDS);
+        redisTemplate.expire(CHUNK_SIZE_KEY_PREFIX + uploadId, sessionTtlSeconds, TimeUnit.SECONDS);
+        redisTemplate.opsForZSet().add(SESSION_INDEX_KEY, uploadId, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,23 @@
+package com.esfile.service.file;
+
+import java.io.OutputStream;
+
+/**
+ * 下载带宽整形接口
+ * 包装下载输出流，按单次请求、用户和全局三级限速
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface BandwidthShaper {
+
+    /**
+     * 包装下载输出流
+     *
+     * @param outputStream 原始输出流
+     * @param userKey 用户标识（用户名或客户端IP）
+     * @param requestLimit 本次请求限速（字节/秒），为空或不大于0时只使用系统配置
+     * @return 限速后的输出流，关闭时释放用户配额
+     */
+    OutputStream shape(OutputStream outputStream, String userKey, Long requestLimit);
+}
@@ -0,0 +1,26 @@
+package com.esfile.service.file;
+
+import com.esfile.entity.mybatis.FileInfo;
+
+import java.util.Map;
+
+/**
+ * 文件文本提取服务接口
+ * 异步提取文件正文用于全文检索，按内容哈希缓存
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface ContentExtractionService {
+
+    /**
+     * 提交文本提取任务，在事务中调用时事务提交后再提交
+     * 相同内容已提取过时只更新该文件的索引
+     */
+    void submit(FileInfo fileInfo);
+
+    /**
+     * 获取提取状态（进行中、完成、失败、超时数量）
+     */
+    Map<String, Object> getStats();
+}
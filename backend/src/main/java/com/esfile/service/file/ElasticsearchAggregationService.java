@@ -0,0 +1,32 @@
+package com.esfile.service.file;
+
+import com.esfile.common.vo.AggregationBucket;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elasticsearch聚合服务接口
+ * 以size:0请求执行聚合，只返回聚合桶，不拉取文档
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface ElasticsearchAggregationService {
+
+    /**
+     * 在一次请求中执行多个聚合
+     * 
+     * @param query 过滤条件，为空时统计全部文档
+     * @param aggregations 聚合定义，结果按聚合名称返回；filter聚合会展开为其唯一的子聚合
+     * @return 聚合名称 -> 聚合桶
+     */
+    Map<String, List<AggregationBucket>> aggregate(QueryBuilder query, List<AggregationBuilder> aggregations);
+
+    /**
+     * 执行单个聚合
+     */
+    List<AggregationBucket> aggregate(QueryBuilder query, AggregationBuilder aggregation);
+}
@@ -1,5 +1,7 @@
 package com.esfile.service.file;
 
+import java.util.Map;
+
 /**
  * Elasticsearch索引服务接口
  * 提供索引创建、重建、删除等功能
@@ -21,9 +23,15 @@ public interface ElasticsearchIndexService {
 
     /**
      * 重建索引
+     * 在后台写入新版本索引后切换别名，重建期间搜索不中断；已有重建在进行时返回false
      */
     boolean rebuildIndex();
 
+    /**
+     * 获取重建进度
+     */
+    Map<String, Object> getRebuildStatus();
+
     /**
      * 检查索引是否存在
      */
@@ -29,9 +29,25 @@ public interface ElasticsearchSearchService {
 
     /**
      * 高级搜索
+     * ES不可用时抛出异常，不返回空结果
      */
     Page<FileDocument> advancedSearch(FileSearchDto searchDto, Pageable pageable);
 
+    /**
+     * 高级搜索的对冲请求
+     * 不经过搜索缓存（否则会合并到仍未返回的原请求上），也不记录热门搜索词
+     */
+    Page<FileDocument> hedgedAdvancedSearch(FileSearchDto searchDto, Pageable pageable);
+
+    /**
+     * 高级搜索（游标分页）
+     * 基于时间点快照和search_after翻页，适合深分页和导出
+     * 
+     * @param cursor 上一页返回的nextCursor，首页传空
+     * @return content、nextCursor（最后一页为空），首页额外返回total
+     */
+    Map<String, Object> advancedSearchAfter(FileSearchDto searchDto, int size, String cursor);
+
     /**
      * 根据文件类型搜索
      */
@@ -102,6 +118,11 @@ public interface ElasticsearchSearchService {
      */
     Map<String, Object> getSizeRangeStats();
 
+    /**
+     * 统计概览（文件类型、上传用户、标签、每日上传、大小分布合并为一次聚合请求）
+     */
+    Map<String, Object> getStatsOverview();
+
     /**
      * 索引文件到ES
      */
@@ -0,0 +1,37 @@
+package com.esfile.service.file;
+
+import com.esfile.entity.mybatis.FileBlob;
+
+/**
+ * 文件内容服务接口
+ * 按内容哈希寻址存储对象，并通过引用计数管理对象的物理删除
+ */
+public interface FileBlobService {
+
+    /**
+     * 是否启用内容去重
+     */
+    boolean isDeduplicationEnabled();
+
+    /**
+     * 根据内容哈希获取已存储的内容
+     */
+    FileBlob getBlob(String contentHash);
+
+    /**
+     * 为已存储的内容增加一次引用，内容不存在时返回null
+     */
+    FileBlob acquireExisting(String contentHash);
+
+    /**
+     * 登记新上传的内容
+     * 内容已存在时增加引用并删除本次上传的冗余对象，返回实际使用的内容
+     */
+    FileBlob register(String contentHash, String fileMd5, long fileSize, String bucketName, String objectName);
+
+    /**
+     * 释放文件对内容的引用，引用归零时在事务提交后删除MinIO对象
+     * 需在文件记录删除之后调用
+     */
+    void release(String contentHash, String objectName);
+}
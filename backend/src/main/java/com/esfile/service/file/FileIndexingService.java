@@ -0,0 +1,56 @@
+package com.esfile.service.file;
+
+import com.esfile.entity.elasticsearch.FileDocument;
+import com.esfile.entity.mybatis.FileInfo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件索引同步接口
+ * 文件变更写入索引同步发件箱，在调用方事务中调用时与数据变更一起提交或回滚；
+ * 后台中继按顺序读取发件箱批量写入ES
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface FileIndexingService {
+
+    /**
+     * 索引文件（写入时从数据库读取最新数据）
+     */
+    void enqueueIndex(Long fileId);
+
+    /**
+     * 批量索引文件
+     */
+    void enqueueIndex(Collection<Long> fileIds);
+
+    /**
+     * 部分更新文件索引（如下载次数、预览次数）
+     * 
+     * @param fields FileDocument中需要更新的字段
+     */
+    void enqueuePartialUpdate(Long fileId, String... fields);
+
+    /**
+     * 删除文件索引
+     */
+    void enqueueDelete(Long fileId);
+
+    /**
+     * 文件信息转换为ES文档
+     */
+    FileDocument toDocument(FileInfo fileInfo);
+
+    /**
+     * 批量转换为ES文档，并填充已提取的文件文本
+     */
+    List<FileDocument> toDocuments(List<FileInfo> fileInfos);
+
+    /**
+     * 获取同步状态（检查点、积压数量、死信数量等）
+     */
+    Map<String, Object> getStats();
+}
@@ -53,6 +53,20 @@ public interface FileOperationService {
      */
     List<Map<String, Object>> getFolderStructure(Long parentId);
 
+    /**
+     * 获取文件夹的面包屑路径，从根目录下的第一级到该文件夹
+     */
+    List<Map<String, Object>> getFolderBreadcrumb(Long folderId);
+
+    /**
+     * 计算放入文件夹的子项的物化路径，并对文件夹加共享锁直到事务结束
+     * 必须在写入文件记录的事务中调用，文件夹不存在时抛出异常
+     *
+     * @param parentId 文件夹ID，为空或0表示根目录
+     * @return 子项的物化路径
+     */
+    String resolveFolderPath(Long parentId);
+
     /**
      * 清理临时文件
      */
@@ -24,8 +24,11 @@ public interface FilePermissionService {
 
     /**
      * 分享文件
+     * 
+     * @param shareType 分享类型：link（链接分享）、user（分享给用户）、role（分享给角色）
+     * @param targetId 被分享的用户ID或角色ID，链接分享时忽略
      */
-    Map<String, Object> shareFile(Long fileId, Long userId, String shareType, Integer expireDays);
+    Map<String, Object> shareFile(Long fileId, Long userId, String shareType, Long targetId, Integer expireDays);
 
     /**
      * 取消文件分享
@@ -1,5 +1,6 @@
 package com.esfile.service.file;
 
+import com.esfile.entity.dto.FileSearchDto;
 import com.esfile.entity.dto.SearchDto;
 import com.esfile.entity.mybatis.FileInfo;
 
@@ -28,8 +29,19 @@ public interface FileSearchService {
 
     /**
      * 全文搜索
+     * 
+     * @param cursor 上一页返回的nextCursor，首页为空
+     * @return list、nextCursor（没有下一页时为空）；首页另含total、totalApproximate
      */
-    Map<String, Object> fullTextSearch(String keyword, Integer page, Integer size);
+    Map<String, Object> fullTextSearch(String keyword, String cursor, Integer size);
+
+    /**
+     * 按条件搜索，不记录搜索统计，供搜索路由降级使用
+     * 只支持关键词、文件类型、上传用户、状态和是否公开，其余条件忽略
+     * 
+     * @return list、page、size、total、totalApproximate，总数未超过上限时另含pages
+     */
+    Map<String, Object> searchByCondition(FileSearchDto searchDto);
 
     /**
      * 按标签搜索
@@ -38,8 +50,10 @@ public interface FileSearchService {
 
     /**
      * 按类型搜索
+     * 
+     * @param cursor 上一页返回的nextCursor，首页为空
      */
-    List<FileInfo> searchByType(String fileType, Integer page, Integer size);
+    Map<String, Object> searchByType(String fileType, String cursor, Integer size);
 
     /**
      * 按大小范围搜索
@@ -53,8 +67,10 @@ public interface FileSearchService {
 
     /**
      * 按用户搜索
+     * 
+     * @param cursor 上一页返回的nextCursor，首页为空
      */
-    List<FileInfo> searchByUser(Long userId, Integer page, Integer size);
+    Map<String, Object> searchByUser(Long userId, String cursor, Integer size);
 
     /**
      * 获取搜索建议
@@ -99,6 +99,11 @@ public interface FileService {
      */
     List<Map<String, Object>> getFolderStructure(Long parentId);
 
+    /**
+     * 获取文件夹的面包屑路径
+     */
+    List<Map<String, Object>> getFolderBreadcrumb(Long folderId);
+
     /**
      * 创建文件夹
      */
@@ -157,7 +162,7 @@ public interface FileService {
     /**
      * 文件分享
      */
-    Map<String, Object> shareFile(Long fileId, Long userId, String shareType, Integer expireDays);
+    Map<String, Object> shareFile(Long fileId, Long userId, String shareType, Long targetId, Integer expireDays);
 
     /**
      * 取消文件分享
@@ -188,4 +193,26 @@ public interface FileService {
      * 根据标签搜索文件
      */
     List<FileInfo> getFilesByTag(String tag);
+
+    /**
+     * 设置文件标签（整体替换）
+     */
+    boolean setFileTags(Long fileId, String tags);
+
+    /**
+     * 按多个标签搜索文件
+     *
+     * @param matchAll true表示同时包含全部标签，false表示包含任一标签
+     */
+    Map<String, Object> searchFilesByTags(List<String> tags, boolean matchAll, Integer page, Integer size);
+
+    /**
+     * 获取使用最多的标签
+     */
+    List<Map<String, Object>> getPopularTags(int limit);
+
+    /**
+     * 重建文件标签关联
+     */
+    Map<String, Object> rebuildTags();
 }
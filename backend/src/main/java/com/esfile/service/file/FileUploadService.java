@@ -22,10 +22,10 @@ public interface FileUploadService {
     List<FileInfo> batchUploadFiles(List<FileUploadDto> uploadDtos);
 
     /**
-     * 分片上传文件
+     * 分片上传文件，会话只允许创建者访问
      */
     FileInfo uploadFileChunk(String chunkId, Integer chunkNumber, Integer totalChunks, 
-                           byte[] chunkData, String fileName, Long fileSize);
+                           byte[] chunkData, String fileName, Long fileSize, Long userId);
 
     /**
      * 合并分片文件
@@ -33,20 +33,30 @@ public interface FileUploadService {
     FileInfo mergeFileChunks(String chunkId, String fileName, Long fileSize, 
                            Integer totalChunks, Long userId);
 
+    /**
+     * 秒传预检
+     * 内容已存储时先返回内容抽查，携带抽查结果再次预检时创建文件记录；
+     * 内容未存储时返回上传会话ID及服务端已持有的分片序号
+     *
+     * @param proof 内容抽查结果，首次预检时为null
+     */
+    Map<String, Object> preUpload(String contentHash, Long fileSize, String fileName, 
+                                  Integer totalChunks, String proof, FileUploadDto uploadDto);
+
     /**
      * 断点续传
      */
-    FileInfo resumeUpload(String uploadId, Integer chunkNumber, byte[] chunkData);
+    FileInfo resumeUpload(String uploadId, Integer chunkNumber, byte[] chunkData, Long userId);
 
     /**
      * 取消上传
      */
-    boolean cancelUpload(String uploadId);
+    boolean cancelUpload(String uploadId, Long userId);
 
     /**
      * 获取上传进度
      */
-    Map<String, Object> getUploadProgress(String uploadId);
+    Map<String, Object> getUploadProgress(String uploadId, Long userId);
 
     /**
      * 验证文件类型
@@ -0,0 +1,38 @@
+package com.esfile.service.file;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热门搜索词服务接口
+ * 按小时、天、周三个衰减窗口统计搜索词频次，内存占用固定
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface HotSearchTermService {
+
+    /**
+     * 记录一次搜索
+     */
+    void record(String term);
+
+    /**
+     * 获取热门搜索词
+     * 
+     * @param window 时间窗口：hour、day、week
+     * @param limit 返回数量，不超过候选词容量
+     * @return term、count（估计频次），按频次降序
+     */
+    List<Map<String, Object>> getHotTerms(String window, int limit);
+
+    /**
+     * 获取窗口内的搜索总次数（估计值）
+     */
+    long getTotal(String window);
+
+    /**
+     * 清空本节点的统计
+     */
+    void clear();
+}
@@ -1,9 +1,11 @@
 package com.esfile.service.file;
 
+import com.esfile.common.util.MinioObjectStream;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 /**
  * MinIO存储服务接口
@@ -33,6 +35,55 @@ public interface MinioStorageService {
      */
     String uploadBytes(byte[] fileData, String objectName, String contentType);
 
+    /**
+     * 上传输入流（按已知大小流式写入，不在内存中缓存完整文件）
+     * 
+     * @param inputStream 文件输入流
+     * @param size 文件大小（字节）
+     * @param objectName 对象名称
+     * @param contentType 内容类型
+     * @return 文件访问URL
+     */
+    String uploadStream(InputStream inputStream, long size, String objectName, String contentType);
+
+    /**
+     * 创建分片上传任务
+     * 
+     * @param objectName 对象名称
+     * @param contentType 内容类型
+     * @return 分片上传ID
+     */
+    String createMultipartUpload(String objectName, String contentType);
+
+    /**
+     * 上传单个分片
+     * 
+     * @param objectName 对象名称
+     * @param uploadId 分片上传ID
+     * @param partNumber 分片编号（从1开始）
+     * @param partData 分片数据
+     * @return 分片ETag
+     */
+    String uploadPart(String objectName, String uploadId, int partNumber, byte[] partData);
+
+    /**
+     * 合并分片完成上传
+     * 
+     * @param objectName 对象名称
+     * @param uploadId 分片上传ID
+     * @param partEtags 分片编号与ETag映射
+     * @return 文件访问URL
+     */
+    String completeMultipartUpload(String objectName, String uploadId, Map<Integer, String> partEtags);
+
+    /**
+     * 中止分片上传
+     * 
+     * @param objectName 对象名称
+     * @param uploadId 分片上传ID
+     */
+    void abortMultipartUpload(String objectName, String uploadId);
+
     /**
      * 下载文件
      * 
@@ -41,6 +92,25 @@ public interface MinioStorageService {
      */
     InputStream downloadFile(String objectName);
 
+    /**
+     * 打开对象输入流（单次GET请求）
+     * 对象不存在时抛出"文件不存在"异常，长度和ETag取自响应头
+     * 
+     * @param objectName 对象名称
+     * @return 携带响应头信息的对象输入流
+     */
+    MinioObjectStream openObject(String objectName);
+
+    /**
+     * 下载文件的指定字节区间
+     * 
+     * @param objectName 对象名称
+     * @param offset 起始偏移
+     * @param length 读取长度
+     * @return 区间内容输入流
+     */
+    InputStream downloadFileRange(String objectName, long offset, long length);
+
     /**
      * 删除文件
      * 
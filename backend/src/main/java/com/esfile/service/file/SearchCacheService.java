@@ -0,0 +1,39 @@
+package com.esfile.service.file;
+
+import com.esfile.entity.elasticsearch.FileDocument;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * 搜索结果缓存接口
+ * 本地LRU和Redis两级缓存，索引刷新后整体失效
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface SearchCacheService {
+
+    /**
+     * 读取分页搜索结果，未命中时调用loader查询ES；相同查询并发未命中时只查询一次
+     * 
+     * @param name 查询名称
+     * @param pageable 分页和排序
+     * @param loader 查询ES
+     * @param params 查询条件，与名称、分页、调用者可见范围一起组成缓存键
+     */
+    Page<FileDocument> getPage(String name, Pageable pageable, Callable<Page<FileDocument>> loader, 
+                               Object... params) throws Exception;
+
+    /**
+     * 索引代数加一，使所有缓存失效（索引刷新后调用）
+     */
+    void invalidate();
+
+    /**
+     * 获取缓存统计（命中、未命中、合并的查询数等）
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,28 @@
+package com.esfile.service.file;
+
+import com.esfile.entity.dto.FileSearchDto;
+
+import java.util.Map;
+
+/**
+ * 搜索路由服务接口
+ * 统一的文件搜索入口，优先使用ES，ES熔断、超时或失败时降级到数据库全文检索
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface SearchRouterService {
+
+    /**
+     * 搜索文件
+     *
+     * @param searchDto 搜索条件，page从1开始
+     * @return list（FileDocument）、total、page、size、pages，以及backend（实际返回结果的后端）和degraded（是否降级）
+     */
+    Map<String, Object> search(FileSearchDto searchDto);
+
+    /**
+     * 获取各搜索后端的熔断状态、健康分和延迟统计
+     */
+    Map<String, Object> getBackendStats();
+}
@@ -0,0 +1,34 @@
+package com.esfile.service.file;
+
+import org.elasticsearch.index.query.QueryBuilder;
+
+import java.util.Map;
+
+/**
+ * 搜索可见范围服务接口
+ * 把调用者可见的文件（公开、本人上传、分享给本人或所属角色）编译为ES过滤条件或数据库查询参数
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface SearchScopeService {
+
+    /**
+     * 获取当前调用者的可见范围过滤条件
+     * 
+     * @return 过滤条件，管理员不限制范围时为null
+     */
+    QueryBuilder currentScopeFilter();
+
+    /**
+     * 获取当前调用者在数据库查询中的可见范围
+     * 
+     * @return userId（未登录时为空）和roleIds，管理员不限制范围时为null
+     */
+    Map<String, Object> currentScopeParams();
+
+    /**
+     * 用户角色变化后清除其缓存的可见范围
+     */
+    void evict(Long userId);
+}
@@ -0,0 +1,33 @@
+package com.esfile.service.file;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 搜索建议服务接口
+ * 在内存前缀树中按权重返回文件名、标签和热门搜索词的补全结果
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface SuggestionService {
+
+    /**
+     * 获取以前缀开头的建议，按权重降序
+     *
+     * @param prefix 用户输入的前缀
+     * @param limit 返回数量
+     * @return 建议列表，前缀树未加载完成时为空
+     */
+    List<String> suggest(String prefix, int limit);
+
+    /**
+     * 前缀树是否已加载完成
+     */
+    boolean isReady();
+
+    /**
+     * 获取前缀树统计
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,80 @@
+package com.esfile.service.file;
+
+import com.esfile.entity.mybatis.FileInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件标签服务接口
+ * 标签名保存在标签字典中，文件与标签按ID关联；file_info.tags保留规范化后的标签字符串供全文检索和ES索引使用
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+public interface TagService {
+
+    /**
+     * 解析标签字符串：按中英文逗号拆分，去除首尾空白、合并连续空白并去重
+     *
+     * @param tags 标签字符串
+     * @return 标签列表，保持原有顺序
+     */
+    List<String> parseTags(String tags);
+
+    /**
+     * 按file_info.tags同步文件的标签关联，必须在写入文件记录的事务中调用；
+     * 标签字符串会被规范化并回写到文件信息，索引同步由调用方负责
+     */
+    void syncTags(FileInfo fileInfo);
+
+    /**
+     * 设置文件标签（整体替换）
+     */
+    boolean setFileTags(Long fileId, String tags);
+
+    /**
+     * 添加文件标签
+     */
+    boolean addFileTag(Long fileId, String tag);
+
+    /**
+     * 移除文件标签
+     */
+    boolean removeFileTag(Long fileId, String tag);
+
+    /**
+     * 获取文件标签
+     */
+    List<String> getFileTags(Long fileId);
+
+    /**
+     * 解除文件的全部标签关联，用于删除文件，必须在删除文件记录的事务中调用
+     */
+    void unbindTags(Long fileId);
+
+    /**
+     * 按标签搜索文件，按当前用户的可见范围过滤，按ID倒序
+     *
+     * @param tags 标签
+     * @param matchAll true表示同时包含全部标签，false表示包含任一标签
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     * @return list、page、size、total、totalApproximate，总数未超过上限时另含pages
+     */
+    Map<String, Object> searchByTags(List<String> tags, boolean matchAll, Integer page, Integer size);
+
+    /**
+     * 获取使用最多的标签
+     *
+     * @return tag、count
+     */
+    List<Map<String, Object>> getPopularTags(int limit);
+
+    /**
+     * 按file_info.tags重建全部文件的标签关联并重新统计标签的文件数，用于初始化和修复
+     *
+     * @return files（处理的文件数）、failed（失败的文件数）
+     */
+    Map<String, Object> rebuildTags();
+}
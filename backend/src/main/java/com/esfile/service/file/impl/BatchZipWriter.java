@@ -0,0 +1,222 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.util.BufferPool;
+import com.esfile.entity.mybatis.FileInfo;
+import com.esfile.service.file.MinioStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 批量下载压缩包写出器
+ * 在有界窗口内并发预取对象（同时计算CRC32），按原顺序写入压缩包；
+ * 已压缩格式以STORED方式写入，超过4GB或65535个条目时由ZipOutputStream自动使用ZIP64
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+class BatchZipWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchZipWriter.class);
+
+    // 不超过该大小的对象预取到内存，否则预取到临时文件
+    private static final long MEMORY_PREFETCH_LIMIT = 1024 * 1024;
+
+    // 已压缩的文件格式，再做DEFLATE只消耗CPU
+    private static final Set<String> STORED_EXTENSIONS = new HashSet<>(Arrays.asList(
+        "jpg", "jpeg", "png", "gif", "webp", "mp4", "mov", "avi", "mkv", "mp3", "aac", "ogg",
+        "zip", "rar", "7z", "gz", "bz2", "xz", "docx", "xlsx", "pptx"
+    ));
+
+    private final MinioStorageService minioStorageService;
+
+    private final Executor executor;
+
+    private final Path tempDir;
+
+    private final int window;
+
+    BatchZipWriter(MinioStorageService minioStorageService, Executor executor, Path tempDir, int window) {
+        this.minioStorageService = minioStorageService;
+        this.executor = executor;
+        this.tempDir = tempDir;
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * 写出压缩包
+     *
+     * @param files 按输出顺序排列的文件
+     * @param outputStream 输出流
+     * @param onEntryWritten 每个文件写入后回调
+     * @return 成功写入的文件数
+     */
+    int write(List<FileInfo> files, OutputStream outputStream, Consumer<FileInfo> onEntryWritten) throws IOException {
+        Deque<CompletableFuture<PrefetchedEntry>> pending = new ArrayDeque<>();
+        Set<String> usedNames = new HashSet<>();
+        int nextToSubmit = 0;
+        int written = 0;
+
+        try (ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
+            while (nextToSubmit < files.size() && pending.size() < window) {
+                pending.add(prefetch(files.get(nextToSubmit++)));
+            }
+
+            while (!pending.isEmpty()) {
+                PrefetchedEntry entry = pending.poll().join();
+                // 写出当前条目前补充窗口，保持预取与写出并行
+                if (nextToSubmit < files.size()) {
+                    pending.add(prefetch(files.get(nextToSubmit++)));
+                }
+                if (entry.error != null) {
+                    logger.warn("添加文件到压缩包失败: {}", entry.fileInfo.getFileName(), entry.error);
+                    continue;
+                }
+
+                try {
+                    writeEntry(zipOut, entry, uniqueEntryName(entry.fileInfo.getFileName(), usedNames));
+                } finally {
+                    entry.discard();
+                }
+                written++;
+                onEntryWritten.accept(entry.fileInfo);
+            }
+            return written;
+        } finally {
+            // 客户端中断时清理仍在预取的条目
+            for (CompletableFuture<PrefetchedEntry> future : pending) {
+                future.thenAccept(PrefetchedEntry::discard);
+            }
+        }
+    }
+
+    private void writeEntry(ZipOutputStream zipOut, PrefetchedEntry entry, String entryName) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(entryName);
+        if (STORED_EXTENSIONS.contains(getFileExtension(entry.fileInfo.getFileName()))) {
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(entry.size);
+            zipEntry.setCompressedSize(entry.size);
+            zipEntry.setCrc(entry.crc);
+        }
+        zipOut.putNextEntry(zipEntry);
+        try (InputStream inputStream = entry.open()) {
+            BufferPool.transfer(inputStream, zipOut);
+        }
+        zipOut.closeEntry();
+    }
+
+    /**
+     * 异步预取对象到内存或临时文件，同时计算CRC32
+     */
+    private CompletableFuture<PrefetchedEntry> prefetch(FileInfo fileInfo) {
+        return CompletableFuture.supplyAsync(() -> {
+            PrefetchedEntry entry = new PrefetchedEntry(fileInfo);
+            CRC32 crc32 = new CRC32();
+            try (InputStream inputStream = new CheckedInputStream(
+                    minioStorageService.downloadFile(fileInfo.getObjectName()), crc32)) {
+                Long fileSize = fileInfo.getFileSize();
+                if (fileSize != null && fileSize <= MEMORY_PREFETCH_LIMIT) {
+                    ByteArrayOutputStream data = new ByteArrayOutputStream(fileSize.intValue());
+                    entry.size = BufferPool.transfer(inputStream, data);
+                    entry.data = data.toByteArray();
+                } else {
+                    Files.createDirectories(tempDir);
+                    entry.tempFile = Files.createTempFile(tempDir, "zip-", ".tmp");
+                    try (OutputStream fileOut = Files.newOutputStream(entry.tempFile)) {
+                        entry.size = BufferPool.transfer(inputStream, fileOut);
+                    }
+                }
+                entry.crc = crc32.getValue();
+            } catch (Exception e) {
+                entry.discard();
+                entry.error = e;
+            }
+            return entry;
+        }, executor);
+    }
+
+    /**
+     * 生成不重复的条目名称，并去掉路径分隔符防止解压到目录之外
+     */
+    private String uniqueEntryName(String fileName, Set<String> usedNames) {
+        String name = fileName == null || fileName.trim().isEmpty() ? "file" : fileName.trim();
+        name = name.replace('/', '_').replace('\\', '_');
+        if (name.equals(".") || name.equals("..")) {
+            name = "file";
+        }
+
+        String baseName = name;
+        String extension = "";
+        int dotIndex = name.lastIndexOf('.');
+        if (dotIndex > 0) {
+            baseName = name.substring(0, dotIndex);
+            extension = name.substring(dotIndex);
+        }
+
+        String candidate = name;
+        for (int i = 1; !usedNames.add(candidate.toLowerCase()); i++) {
+            candidate = baseName + " (" + i + ")" + extension;
+        }
+        return candidate;
+    }
+
+    private static String getFileExtension(String fileName) {
+        if (fileName == null || !fileName.contains(".")) {
+            return "";
+        }
+        return fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+    }
+
+    /**
+     * 已预取的条目
+     */
+    private static class PrefetchedEntry {
+
+        private final FileInfo fileInfo;
+
+        private byte[] data;
+
+        private Path tempFile;
+
+        private long size;
+
+        private long crc;
+
+        private Exception error;
+
+        PrefetchedEntry(FileInfo fileInfo) {
+            this.fileInfo = fileInfo;
+        }
+
+        InputStream open() throws IOException {
+            return data != null ? new ByteArrayInputStream(data) : Files.newInputStream(tempFile);
+        }
+
+        void discard() {
+            data = null;
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    logger.warn("删除压缩包临时文件失败: {}", tempFile, e);
+                }
+                tempFile = null;
+            }
+        }
+    }
+}
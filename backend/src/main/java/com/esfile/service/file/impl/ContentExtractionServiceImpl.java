@@ -0,0 +1,241 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.entity.mybatis.FileContentText;
+import com.esfile.entity.mybatis.FileInfo;
+import com.esfile.mapper.FileContentTextMapper;
+import com.esfile.service.file.ContentExtractionService;
+import com.esfile.service.file.FileIndexingService;
+import com.esfile.service.file.MinioStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文件文本提取服务实现类
+ * 在有界线程池中下载文件到临时目录并提取文本，每个文件有字符上限和超时；
+ * 结果按内容键保存，相同内容的文件只提取一次，提取完成后部分更新所有等待的文件索引
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class ContentExtractionServiceImpl implements ContentExtractionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentExtractionServiceImpl.class);
+
+    private static final String STATUS_SUCCESS = "SUCCESS";
+
+    private static final String STATUS_FAILED = "FAILED";
+
+    @Autowired
+    private MinioStorageService minioStorageService;
+
+    @Autowired
+    private FileContentTextMapper fileContentTextMapper;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    @Qualifier("contentExtractExecutor")
+    private ThreadPoolTaskExecutor contentExtractExecutor;
+
+    @Value("${file.content.max-chars:200000}")
+    private int maxChars;
+
+    @Value("${file.content.timeout:30000}")
+    private long timeoutMillis;
+
+    // 超过该大小的文件不提取
+    @Value("${file.content.max-file-size-mb:100}")
+    private long maxFileSizeMb;
+
+    @Value("${file.upload.temp-dir:/tmp/upload}")
+    private String tempDir;
+
+    // 内容键 -> 等待该内容提取结果的文件ID
+    private final Map<String, Set<Long>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong extractedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private ContentExtractor extractor;
+
+    private Path extractDir;
+
+    @PostConstruct
+    public void init() {
+        extractor = new ContentExtractor(maxChars, timeoutMillis);
+        extractDir = Paths.get(tempDir, "extract");
+    }
+
+    @Override
+    public void submit(FileInfo fileInfo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            schedule(fileInfo);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                schedule(fileInfo);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("queueSize", contentExtractExecutor.getThreadPoolExecutor().getQueue().size());
+        stats.put("extractedCount", extractedCount.get());
+        stats.put("failedCount", failedCount.get());
+        stats.put("timeoutCount", timeoutCount.get());
+        stats.put("rejectedCount", rejectedCount.get());
+        return stats;
+    }
+
+    private void schedule(FileInfo fileInfo) {
+        String contentKey = fileInfo.getContentKey();
+        String extension = getFileExtension(fileInfo.getFileName());
+        if (contentKey == null || !ContentExtractor.supports(extension)) {
+            return;
+        }
+        if (fileInfo.getFileSize() != null && fileInfo.getFileSize() > maxFileSizeMb * 1024 * 1024) {
+            logger.debug("文件过大，跳过文本提取: {}, {} bytes", fileInfo.getFileName(), fileInfo.getFileSize());
+            return;
+        }
+
+        try {
+            String status = fileContentTextMapper.selectStatus(contentKey);
+            if (status != null) {
+                // 已提取过：索引时已读取缓存文本，这里补一次部分更新，覆盖索引早于缓存写入的情况
+                if (STATUS_SUCCESS.equals(status)) {
+                    fileIndexingService.enqueuePartialUpdate(fileInfo.getId(), "content");
+                }
+                return;
+            }
+
+            // 相同内容正在提取时只登记文件ID
+            boolean[] first = new boolean[1];
+            inFlight.compute(contentKey, (key, fileIds) -> {
+                if (fileIds == null) {
+                    fileIds = new HashSet<>();
+                    first[0] = true;
+                }
+                fileIds.add(fileInfo.getId());
+                return fileIds;
+            });
+            if (!first[0]) {
+                return;
+            }
+
+            try {
+                contentExtractExecutor.execute(() -> extract(contentKey, extension, fileInfo));
+            } catch (TaskRejectedException e) {
+                // 队列已满时放弃提取，文件仍可按文件名、描述等字段检索
+                inFlight.remove(contentKey);
+                rejectedCount.incrementAndGet();
+                logger.warn("文本提取队列已满，跳过: {}", fileInfo.getFileName());
+            }
+        } catch (Exception e) {
+            logger.error("提交文本提取失败: {}", fileInfo.getFileName(), e);
+        }
+    }
+
+    private void extract(String contentKey, String extension, FileInfo fileInfo) {
+        FileContentText contentText = new FileContentText();
+        contentText.setContentKey(contentKey);
+        contentText.setTruncated(false);
+
+        ContentExtractor.TextSink sink = extractor.newSink();
+        Path file = null;
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(extractDir);
+            file = Files.createTempFile(extractDir, "extract-", "." + extension);
+            Files.delete(file);
+            extractor.download(minioStorageService.downloadFile(fileInfo.getObjectName()), file, sink);
+            extractor.extract(file, extension, sink);
+
+            contentText.setContent(sink.getText());
+            contentText.setTruncated(sink.isTruncated());
+            contentText.setStatus(STATUS_SUCCESS);
+            extractedCount.incrementAndGet();
+            logger.debug("文本提取完成: {}, {}字符, 耗时{}ms", fileInfo.getFileName(),
+                contentText.getContent().length(), System.currentTimeMillis() - start);
+        } catch (ContentExtractor.ExtractionTimeoutException e) {
+            contentText.setStatus(STATUS_FAILED);
+            timeoutCount.incrementAndGet();
+            logger.warn("文本提取超时: {}, 超时时间: {}ms", fileInfo.getFileName(), timeoutMillis);
+        } catch (Exception e) {
+            // 损坏或加密的文件只记录失败，不影响其他任务
+            contentText.setStatus(STATUS_FAILED);
+            failedCount.incrementAndGet();
+            logger.warn("文本提取失败: {}", fileInfo.getFileName(), e);
+        } finally {
+            deleteQuietly(file);
+        }
+
+        Set<Long> fileIds = null;
+        try {
+            // 失败也记录，避免相同内容反复提取
+            fileContentTextMapper.upsert(contentText);
+            fileIds = inFlight.remove(contentKey);
+            if (STATUS_SUCCESS.equals(contentText.getStatus()) && fileIds != null) {
+                for (Long fileId : fileIds) {
+                    fileIndexingService.enqueuePartialUpdate(fileId, "content");
+                }
+            }
+        } catch (Exception e) {
+            logger.error("保存提取文本失败: {}", fileInfo.getFileName(), e);
+        } finally {
+            if (fileIds == null) {
+                inFlight.remove(contentKey);
+            }
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("删除提取临时文件失败: {}", file, e);
+        }
+    }
+
+    private static String getFileExtension(String fileName) {
+        if (fileName == null || !fileName.contains(".")) {
+            return "";
+        }
+        return fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+    }
+}
@@ -0,0 +1,411 @@
+package com.esfile.service.file.impl;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.extractor.ExtractorFactory;
+import org.apache.poi.extractor.POITextExtractor;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 文件文本提取器
+ * PDF逐页提取，DOCX/PPTX以SAX方式解析正文XML，XLSX使用POI事件模型逐行读取，
+ * 纯文本按BOM和UTF-8校验识别编码；达到字符上限或超时后停止解析，不读取剩余内容
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+class ContentExtractor {
+
+    private static final String DOCX_MAIN_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml";
+
+    private static final String PPTX_SLIDE_TYPE = "application/vnd.openxmlformats-officedocument.presentationml.slide+xml";
+
+    private static final Pattern SLIDE_NUMBER = Pattern.compile("(\\d+)\\.xml$");
+
+    private static final Set<String> TEXT_EXTENSIONS = new HashSet<>(Arrays.asList(
+        "txt", "md", "csv", "log", "json", "xml", "html", "htm", "yml", "yaml", "properties", "sql",
+        "java", "js", "ts", "py", "go", "c", "cpp", "h", "sh"
+    ));
+
+    private static final Set<String> OLE2_EXTENSIONS = new HashSet<>(Arrays.asList("doc", "xls", "ppt"));
+
+    // 识别编码时读取的字节数
+    private static final int CHARSET_SAMPLE_SIZE = 8192;
+
+    private static final int READ_BUFFER_CHARS = 8192;
+
+    private static final Charset GB18030 = Charset.forName("GB18030");
+
+    private final int maxChars;
+
+    private final long timeoutMillis;
+
+    ContentExtractor(int maxChars, long timeoutMillis) {
+        this.maxChars = maxChars;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    static boolean supports(String extension) {
+        return "pdf".equals(extension) || "docx".equals(extension) || "pptx".equals(extension)
+            || "xlsx".equals(extension) || OLE2_EXTENSIONS.contains(extension) || TEXT_EXTENSIONS.contains(extension);
+    }
+
+    /**
+     * 新建一次提取的预算，下载文件的时间也计入超时
+     */
+    TextSink newSink() {
+        return new TextSink(maxChars, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * 提取文本
+     *
+     * @param file 已下载到本地的文件
+     * @param extension 小写扩展名
+     * @param sink 文本输出
+     */
+    void extract(Path file, String extension, TextSink sink) throws Exception {
+        try {
+            if ("pdf".equals(extension)) {
+                extractPdf(file, sink);
+            } else if ("docx".equals(extension)) {
+                extractOoxmlParts(file, DOCX_MAIN_TYPE, sink);
+            } else if ("pptx".equals(extension)) {
+                extractOoxmlParts(file, PPTX_SLIDE_TYPE, sink);
+            } else if ("xlsx".equals(extension)) {
+                extractXlsx(file, sink);
+            } else if (OLE2_EXTENSIONS.contains(extension)) {
+                extractOle2(file, sink);
+            } else {
+                extractText(file, sink);
+            }
+        } catch (LimitReachedException e) {
+            // 达到字符上限，已提取的文本有效
+        }
+    }
+
+    /**
+     * 下载到本地文件，检查超时
+     */
+    void download(InputStream inputStream, Path target, TextSink sink) throws IOException {
+        try (InputStream in = inputStream) {
+            Files.copy(new DeadlineInputStream(in, sink), target);
+        }
+    }
+
+    private void extractPdf(Path file, TextSink sink) throws IOException {
+        // 页面内容按需解析，解析缓冲使用临时文件，不把整份文档放进堆
+        try (PDDocument document = PDDocument.load(file.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            int pages = document.getNumberOfPages();
+            for (int page = 1; page <= pages; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                sink.append(stripper.getText(document));
+            }
+        }
+    }
+
+    private void extractOoxmlParts(Path file, String contentType, TextSink sink) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            List<PackagePart> parts = pkg.getPartsByContentType(contentType);
+            // 幻灯片按编号排序（slide10在slide2之后）
+            parts.sort(Comparator.comparingInt(part -> partNumber(part.getPartName().getName())));
+            for (PackagePart part : parts) {
+                XMLReader reader = XMLHelper.newXMLReader();
+                reader.setContentHandler(new RunTextHandler(sink));
+                try (InputStream in = part.getInputStream()) {
+                    reader.parse(new InputSource(in));
+                }
+            }
+        }
+    }
+
+    private void extractXlsx(Path file, TextSink sink) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = xssfReader.getStylesTable();
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader reader = XMLHelper.newXMLReader();
+                    reader.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new SheetTextHandler(sink), false));
+                    reader.parse(new InputSource(sheet));
+                }
+            }
+        }
+    }
+
+    /**
+     * 旧版二进制格式没有流式解析接口，整体读取后按字符上限截断
+     */
+    private void extractOle2(Path file, TextSink sink) throws IOException {
+        try (POITextExtractor extractor = ExtractorFactory.createExtractor(file.toFile())) {
+            sink.append(extractor.getText());
+        }
+    }
+
+    private void extractText(Path file, TextSink sink) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), CHARSET_SAMPLE_SIZE)) {
+            Charset charset = detectCharset(in);
+            try (Reader reader = new InputStreamReader(in, charset)) {
+                char[] buffer = new char[READ_BUFFER_CHARS];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    sink.append(CharBuffer.wrap(buffer, 0, read));
+                }
+            }
+        }
+    }
+
+    /**
+     * 识别文本编码：有BOM时按BOM（并跳过BOM），样本是合法UTF-8时按UTF-8，否则按GB18030
+     */
+    static Charset detectCharset(InputStream in) throws IOException {
+        in.mark(CHARSET_SAMPLE_SIZE);
+        byte[] sample = new byte[CHARSET_SAMPLE_SIZE];
+        int length = 0;
+        int read;
+        while (length < sample.length && (read = in.read(sample, length, sample.length - length)) != -1) {
+            length += read;
+        }
+        in.reset();
+
+        if (length >= 3 && (sample[0] & 0xFF) == 0xEF && (sample[1] & 0xFF) == 0xBB && (sample[2] & 0xFF) == 0xBF) {
+            in.skip(3);
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 2 && (sample[0] & 0xFF) == 0xFF && (sample[1] & 0xFF) == 0xFE) {
+            in.skip(2);
+            return StandardCharsets.UTF_16LE;
+        }
+        if (length >= 2 && (sample[0] & 0xFF) == 0xFE && (sample[1] & 0xFF) == 0xFF) {
+            in.skip(2);
+            return StandardCharsets.UTF_16BE;
+        }
+
+        // 样本末尾可能截断多字节字符，去掉不完整的尾部再校验
+        int end = length;
+        if (length == sample.length) {
+            int back = 0;
+            while (back < 3 && end > 0 && (sample[end - 1] & 0xC0) == 0x80) {
+                end--;
+                back++;
+            }
+            if (end > 0 && (sample[end - 1] & 0xC0) == 0xC0) {
+                end--;
+            }
+        }
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(sample, 0, end));
+            return StandardCharsets.UTF_8;
+        } catch (CharacterCodingException e) {
+            return GB18030;
+        }
+    }
+
+    private static int partNumber(String partName) {
+        Matcher matcher = SLIDE_NUMBER.matcher(partName);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    /**
+     * 提取结果，限制字符数和截止时间
+     */
+    static class TextSink {
+
+        private final StringBuilder text = new StringBuilder();
+
+        private final int maxChars;
+
+        private final long deadlineNanos;
+
+        private boolean truncated;
+
+        TextSink(int maxChars, long deadlineNanos) {
+            this.maxChars = maxChars;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        void append(CharSequence chars) {
+            checkDeadline();
+            int remaining = maxChars - text.length();
+            if (chars.length() > remaining) {
+                text.append(chars, 0, remaining);
+                truncated = true;
+                throw new LimitReachedException();
+            }
+            text.append(chars);
+        }
+
+        void checkDeadline() {
+            if (System.nanoTime() - deadlineNanos > 0) {
+                throw new ExtractionTimeoutException();
+            }
+        }
+
+        void newLine() {
+            if (text.length() > 0 && text.charAt(text.length() - 1) != '\n') {
+                append("\n");
+            }
+        }
+
+        String getText() {
+            return text.toString().trim();
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    /**
+     * 提取超时
+     */
+    static class ExtractionTimeoutException extends RuntimeException {
+
+        ExtractionTimeoutException() {
+            super("文本提取超时");
+        }
+    }
+
+    /**
+     * 达到字符上限，用于中断解析
+     */
+    private static class LimitReachedException extends RuntimeException {
+
+        LimitReachedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 收集w:t/a:t文本，段落结束时换行
+     */
+    private static class RunTextHandler extends DefaultHandler {
+
+        private final TextSink sink;
+
+        private boolean inText;
+
+        RunTextHandler(TextSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("t".equals(localName)) {
+                inText = true;
+            } else if ("tab".equals(localName)) {
+                sink.append("\t");
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("t".equals(localName)) {
+                inText = false;
+            } else if ("p".equals(localName)) {
+                sink.newLine();
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) {
+                sink.append(CharBuffer.wrap(ch, start, length));
+            }
+        }
+    }
+
+    /**
+     * 工作表按行输出，单元格以制表符分隔
+     */
+    private static class SheetTextHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final TextSink sink;
+
+        private boolean firstCell;
+
+        SheetTextHandler(TextSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            firstCell = true;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            sink.newLine();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (formattedValue == null || formattedValue.isEmpty()) {
+                return;
+            }
+            if (!firstCell) {
+                sink.append("\t");
+            }
+            sink.append(formattedValue);
+            firstCell = false;
+        }
+    }
+
+    /**
+     * 下载时检查截止时间
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+
+        private final TextSink sink;
+
+        DeadlineInputStream(InputStream in, TextSink sink) {
+            super(in);
+            this.sink = sink;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            sink.checkDeadline();
+            return super.read(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.vo.AggregationBucket;
+import com.esfile.service.file.ElasticsearchAggregationService;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregation;
+import org.elasticsearch.search.aggregations.bucket.range.Range;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Elasticsearch聚合服务实现类
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class ElasticsearchAggregationServiceImpl implements ElasticsearchAggregationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElasticsearchAggregationServiceImpl.class);
+
+    private static final String INDEX_NAME = "file_documents";
+
+    @Autowired
+    private RestHighLevelClient elasticsearchClient;
+
+    @Override
+    public Map<String, List<AggregationBucket>> aggregate(QueryBuilder query, List<AggregationBuilder> aggregations) {
+        // 不返回文档、不统计总数，耗时只取决于聚合本身
+        SearchSourceBuilder source = new SearchSourceBuilder()
+            .size(0)
+            .trackTotalHits(false);
+        if (query != null) {
+            source.query(query);
+        }
+        for (AggregationBuilder aggregation : aggregations) {
+            source.aggregation(aggregation);
+        }
+
+        try {
+            SearchResponse response = elasticsearchClient.search(
+                new SearchRequest(INDEX_NAME).source(source).requestCache(true), RequestOptions.DEFAULT);
+            logger.debug("聚合查询完成: {}, took={}", source, response.getTook());
+
+            Map<String, List<AggregationBucket>> result = new LinkedHashMap<>();
+            Aggregations responseAggregations = response.getAggregations();
+            for (AggregationBuilder aggregation : aggregations) {
+                Aggregation agg = responseAggregations != null ? responseAggregations.get(aggregation.getName()) : null;
+                result.put(aggregation.getName(), toBuckets(agg));
+            }
+            return result;
+        } catch (Exception e) {
+            logger.error("聚合查询失败: {}", source, e);
+            throw new RuntimeException("聚合查询失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<AggregationBucket> aggregate(QueryBuilder query, AggregationBuilder aggregation) {
+        return aggregate(query, Collections.singletonList(aggregation)).get(aggregation.getName());
+    }
+
+    /**
+     * 转换聚合结果，filter等单桶聚合展开为其子聚合
+     */
+    private List<AggregationBucket> toBuckets(Aggregation aggregation) {
+        List<AggregationBucket> buckets = new ArrayList<>();
+        if (aggregation instanceof SingleBucketAggregation) {
+            Iterator<Aggregation> subAggregations = ((SingleBucketAggregation) aggregation).getAggregations().iterator();
+            return subAggregations.hasNext() ? toBuckets(subAggregations.next()) : buckets;
+        }
+        if (!(aggregation instanceof MultiBucketsAggregation)) {
+            return buckets;
+        }
+
+        for (MultiBucketsAggregation.Bucket bucket : ((MultiBucketsAggregation) aggregation).getBuckets()) {
+            AggregationBucket item = new AggregationBucket(bucket.getKeyAsString(), bucket.getDocCount());
+            if (bucket instanceof Range.Bucket) {
+                item.setFrom(toDouble(((Range.Bucket) bucket).getFrom()));
+                item.setTo(toDouble(((Range.Bucket) bucket).getTo()));
+            }
+            buckets.add(item);
+        }
+        return buckets;
+    }
+
+    private static Double toDouble(Object value) {
+        if (!(value instanceof Number)) {
+            return null;
+        }
+        double number = ((Number) value).doubleValue();
+        return Double.isInfinite(number) ? null : number;
+    }
+}
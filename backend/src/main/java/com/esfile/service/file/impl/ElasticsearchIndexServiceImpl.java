@@ -1,29 +1,59 @@
 package com.esfile.service.file.impl;
 
+import com.esfile.common.util.TokenBucket;
 import com.esfile.entity.elasticsearch.FileDocument;
+import com.esfile.entity.mybatis.EsSyncOutbox;
+import com.esfile.entity.mybatis.FileInfo;
+import com.esfile.mapper.EsSyncOutboxMapper;
+import com.esfile.mapper.FileInfoMapper;
+import com.esfile.repository.redis.ReindexStateRepository;
 import com.esfile.service.file.ElasticsearchIndexService;
+import com.esfile.service.file.FileIndexingService;
+import com.esfile.service.file.SearchCacheService;
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.CreateIndexRequest;
 import org.elasticsearch.client.indices.GetIndexRequest;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.xcontent.XContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Elasticsearch索引服务实现类
- * 提供索引创建、重建、删除等功能
- * 
+ * 物理索引按版本命名（file_documents_v{n}），读写都通过同名别名；
+ * 重建时写入新版本索引，按发件箱重放期间的变更后原子切换别名，搜索不中断
+ *
  * @author esfile
  * @since 1.0.0
  */
@@ -32,63 +62,91 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
 
     private static final Logger logger = LoggerFactory.getLogger(ElasticsearchIndexServiceImpl.class);
     private static final String INDEX_NAME = "file_documents";
+    private static final String VERSION_PREFIX = INDEX_NAME + "_v";
+
+    // 索引同步中继的检查点名称
+    private static final String RELAY_CHECKPOINT = "file_documents";
+
+    // 重建锁过期时间，每批写入后续期
+    private static final Duration REBUILD_LOCK_TTL = Duration.ofMinutes(10);
+
+    // 批量写入遇到429时的最大重试次数
+    private static final int MAX_BULK_RETRIES = 5;
 
     @Autowired
     private RestHighLevelClient elasticsearchClient;
 
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private ElasticsearchConverter elasticsearchConverter;
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private EsSyncOutboxMapper outboxMapper;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private ReindexStateRepository reindexStateRepository;
+
+    @Autowired
+    private SearchCacheService searchCacheService;
+
+    @Autowired
+    @Qualifier("indexRebuildExecutor")
+    private Executor indexRebuildExecutor;
+
+    @Value("${file.index.shards:1}")
+    private int numberOfShards;
+
+    @Value("${file.index.replicas:0}")
+    private int numberOfReplicas;
+
+    @Value("${file.index.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    // 重建写入速率（文档/秒），不大于0表示不限速
+    @Value("${file.index.rebuild-docs-per-second:2000}")
+    private long rebuildDocsPerSecond;
+
+    // 当前节点标识，用作重建锁的持有者
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
     @Override
     public boolean createIndex() {
         try {
             logger.info("创建ES索引: {}", INDEX_NAME);
-            
-            // 检查索引是否已存在
+
+            // 检查索引是否已存在（别名或旧版的同名物理索引）
             if (indexExists()) {
                 logger.info("索引已存在: {}", INDEX_NAME);
                 return true;
             }
 
-            // 创建索引请求
-            CreateIndexRequest createIndexRequest = new CreateIndexRequest(INDEX_NAME);
-            
-            // 设置分片和副本
-            createIndexRequest.settings(Settings.builder()
-                .put("index.number_of_shards", 1)
-                .put("index.number_of_replicas", 0)
-                .put("index.max_result_window", 10000)
-                .put("index.refresh_interval", "1s")
-            );
-
-            // 读取映射文件
-            try {
-                ClassPathResource mappingResource = new ClassPathResource("es-mapping.json");
-                String mapping = readInputStream(mappingResource.getInputStream());
-                createIndexRequest.mapping(mapping, XContentType.JSON);
-            } catch (IOException e) {
-                logger.warn("无法读取映射文件，使用默认映射: {}", e.getMessage());
-                // 使用默认映射
-                createIndexRequest.mapping("{\"properties\":{\"fileName\":{\"type\":\"text\"}}}", XContentType.JSON);
-            }
-
-            // 读取设置文件
-            try {
-                ClassPathResource settingsResource = new ClassPathResource("es-settings.json");
-                String settings = readInputStream(settingsResource.getInputStream());
-                createIndexRequest.settings(settings, XContentType.JSON);
-            } catch (IOException e) {
-                logger.warn("无法读取设置文件，使用默认设置: {}", e.getMessage());
-            }
-
-            // 执行创建索引
-            boolean acknowledged = elasticsearchClient.indices().create(createIndexRequest, RequestOptions.DEFAULT).isAcknowledged();
-            
+            String indexName = VERSION_PREFIX + 1;
+            if (!createVersionedIndex(indexName, false)) {
+                logger.error("索引创建失败: {}", indexName);
+                return false;
+            }
+
+            IndicesAliasesRequest aliasesRequest = new IndicesAliasesRequest()
+                .addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                    .index(indexName).alias(INDEX_NAME).writeIndex(true));
+            boolean acknowledged = elasticsearchClient.indices().updateAliases(aliasesRequest, RequestOptions.DEFAULT).isAcknowledged();
+
             if (acknowledged) {
-                logger.info("索引创建成功: {}", INDEX_NAME);
+                logger.info("索引创建成功: {} -> {}", INDEX_NAME, indexName);
                 return true;
             } else {
-                logger.error("索引创建失败: {}", INDEX_NAME);
+                logger.error("索引别名创建失败: {}", INDEX_NAME);
                 return false;
             }
-            
+
         } catch (Exception e) {
             logger.error("创建索引异常: {}", INDEX_NAME, e);
             return false;
@@ -99,23 +157,26 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
     public boolean deleteIndex() {
         try {
             logger.info("删除ES索引: {}", INDEX_NAME);
-            
-            if (!indexExists()) {
+
+            List<String> indices = resolveIndices();
+            if (indices.isEmpty()) {
                 logger.info("索引不存在: {}", INDEX_NAME);
                 return true;
             }
 
-            DeleteIndexRequest deleteIndexRequest = new DeleteIndexRequest(INDEX_NAME);
+            // 别名不能直接删除，删除其指向的物理索引
+            DeleteIndexRequest deleteIndexRequest = new DeleteIndexRequest(indices.toArray(new String[0]));
             boolean acknowledged = elasticsearchClient.indices().delete(deleteIndexRequest, RequestOptions.DEFAULT).isAcknowledged();
-            
+
             if (acknowledged) {
-                logger.info("索引删除成功: {}", INDEX_NAME);
+                searchCacheService.invalidate();
+                logger.info("索引删除成功: {}", indices);
                 return true;
             } else {
-                logger.error("索引删除失败: {}", INDEX_NAME);
+                logger.error("索引删除失败: {}", indices);
                 return false;
             }
-            
+
         } catch (Exception e) {
             logger.error("删除索引异常: {}", INDEX_NAME, e);
             return false;
@@ -124,36 +185,46 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
 
     @Override
     public boolean rebuildIndex() {
+        if (!reindexStateRepository.tryLock(nodeId, REBUILD_LOCK_TTL)) {
+            logger.warn("索引正在重建中: {}", reindexStateRepository.getState());
+            return false;
+        }
+
         try {
-            logger.info("重建ES索引: {}", INDEX_NAME);
-            
-            // 删除旧索引
-            if (!deleteIndex()) {
-                logger.error("删除旧索引失败");
-                return false;
-            }
-            
-            // 等待删除完成
-            Thread.sleep(1000);
-            
-            // 创建新索引
-            if (!createIndex()) {
-                logger.error("创建新索引失败");
-                return false;
-            }
-            
-            logger.info("索引重建成功: {}", INDEX_NAME);
+            indexRebuildExecutor.execute(() -> {
+                try {
+                    doRebuildIndex();
+                } catch (Exception e) {
+                    // 保留重建状态，下次重建从断点继续
+                    logger.error("重建索引异常: {}", INDEX_NAME, e);
+                } finally {
+                    reindexStateRepository.unlock(nodeId);
+                }
+            });
             return true;
-            
         } catch (Exception e) {
-            logger.error("重建索引异常: {}", INDEX_NAME, e);
+            reindexStateRepository.unlock(nodeId);
+            logger.error("提交重建索引任务失败", e);
             return false;
         }
     }
 
+    @Override
+    public Map<String, Object> getRebuildStatus() {
+        Map<String, Object> status = new HashMap<>(reindexStateRepository.getState());
+        status.put("running", reindexStateRepository.isLocked());
+        try {
+            status.put("indices", resolveIndices());
+        } catch (Exception e) {
+            logger.warn("获取别名指向的索引失败: {}", e.getMessage());
+        }
+        return status;
+    }
+
     @Override
     public boolean indexExists() {
         try {
+            // 别名同样可以用索引存在性检查
             GetIndexRequest getIndexRequest = new GetIndexRequest(INDEX_NAME);
             return elasticsearchClient.indices().exists(getIndexRequest, RequestOptions.DEFAULT);
         } catch (Exception e) {
@@ -165,13 +236,16 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
     @Override
     public String getIndexStatus() {
         try {
+            if (reindexStateRepository.isLocked()) {
+                return "REBUILDING";
+            }
             if (!indexExists()) {
                 return "NOT_EXISTS";
             }
-            
+
             // 这里可以添加更详细的索引状态检查
             return "EXISTS";
-            
+
         } catch (Exception e) {
             logger.error("获取索引状态异常: {}", INDEX_NAME, e);
             return "ERROR";
@@ -185,12 +259,12 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
                 logger.warn("索引不存在，无法优化: {}", INDEX_NAME);
                 return false;
             }
-            
+
             logger.info("优化ES索引: {}", INDEX_NAME);
-            // 在ES 7.x中，optimize已被forcemerge替代，这里暂时跳过
-            logger.info("索引优化跳过（ES 7.x中已废弃）: {}", INDEX_NAME);
+            forceMerge(INDEX_NAME);
+            logger.info("索引优化完成: {}", INDEX_NAME);
             return true;
-            
+
         } catch (Exception e) {
             logger.error("优化索引异常: {}", INDEX_NAME, e);
             return false;
@@ -204,20 +278,279 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
                 logger.warn("索引不存在，无法刷新: {}", INDEX_NAME);
                 return false;
             }
-            
+
             logger.info("刷新ES索引: {}", INDEX_NAME);
             RefreshRequest refreshRequest = new RefreshRequest(INDEX_NAME);
             elasticsearchClient.indices().refresh(refreshRequest, RequestOptions.DEFAULT);
-            
+            searchCacheService.invalidate();
+
             logger.info("索引刷新成功: {}", INDEX_NAME);
             return true;
-            
+
         } catch (Exception e) {
             logger.error("刷新索引异常: {}", INDEX_NAME, e);
             return false;
         }
     }
 
+    /**
+     * 执行重建：写入新版本索引 -> 恢复刷新和副本 -> 段合并 -> 重放发件箱追平变更 -> 切换别名
+     * 分享授权、提取内容等变更不更新file_info.update_time，只能以发件箱判断重建期间变更过的文件
+     */
+    private void doRebuildIndex() throws Exception {
+        Map<String, Object> state = reindexStateRepository.getState();
+        String targetIndex = (String) state.get("targetIndex");
+        long lastId = state.get("lastId") != null ? ((Number) state.get("lastId")).longValue() : 0L;
+        long startTime = state.get("startTime") != null ? ((Number) state.get("startTime")).longValue() : 0L;
+        long outboxMark = state.get("outboxMark") != null ? ((Number) state.get("outboxMark")).longValue() : 0L;
+
+        if (targetIndex != null && indexExists(targetIndex)) {
+            logger.info("从断点继续重建索引: {}, lastId={}", targetIndex, lastId);
+        } else {
+            targetIndex = VERSION_PREFIX + nextVersion();
+            lastId = 0L;
+            startTime = System.currentTimeMillis();
+            // 中继检查点之后的记录可能还未同步，先于读取数据库记录，重放时全部覆盖
+            Long checkpoint = outboxMapper.selectCheckpoint(RELAY_CHECKPOINT);
+            outboxMark = checkpoint != null ? checkpoint : 0L;
+            if (!createVersionedIndex(targetIndex, true)) {
+                throw new RuntimeException("创建索引失败: " + targetIndex);
+            }
+            state.clear();
+            state.put("targetIndex", targetIndex);
+            state.put("lastId", lastId);
+            state.put("startTime", startTime);
+            state.put("outboxMark", outboxMark);
+            state.put("indexed", 0L);
+            reindexStateRepository.saveState(state);
+            logger.info("开始重建索引: {}", targetIndex);
+        }
+
+        // 按ID顺序分批读取数据库，限速写入新索引
+        TokenBucket throttle = new TokenBucket(rebuildDocsPerSecond, 1000);
+        long indexed = state.get("indexed") != null ? ((Number) state.get("indexed")).longValue() : 0L;
+        List<FileInfo> batch;
+        while (!(batch = fileInfoMapper.selectBatchAfterId(lastId, rebuildBatchSize)).isEmpty()) {
+            long waitNanos = throttle.reserve(batch.size());
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+
+            bulkWrite(targetIndex, batch, Collections.emptyList());
+            lastId = batch.get(batch.size() - 1).getId();
+            indexed += batch.size();
+
+            Map<String, Object> progress = new HashMap<>();
+            progress.put("lastId", lastId);
+            progress.put("indexed", indexed);
+            reindexStateRepository.saveState(progress);
+            if (!reindexStateRepository.renewLock(nodeId, REBUILD_LOCK_TTL)) {
+                throw new RuntimeException("重建锁已失效");
+            }
+        }
+        logger.info("索引数据写入完成: {}, 共{}条", targetIndex, indexed);
+
+        // 恢复刷新间隔和副本数，合并段
+        UpdateSettingsRequest settingsRequest = new UpdateSettingsRequest(targetIndex).settings(Settings.builder()
+            .put("index.refresh_interval", "1s")
+            .put("index.number_of_replicas", numberOfReplicas));
+        elasticsearchClient.indices().putSettings(settingsRequest, RequestOptions.DEFAULT);
+        forceMerge(targetIndex);
+
+        // 重放重建期间的变更（此时中继仍写入旧索引）
+        Long replayCheckpoint = outboxMapper.selectCheckpoint(RELAY_CHECKPOINT);
+        replayOutbox(targetIndex, outboxMark);
+        elasticsearchClient.indices().refresh(new RefreshRequest(targetIndex), RequestOptions.DEFAULT);
+
+        swapAlias(targetIndex);
+        searchCacheService.invalidate();
+
+        // 重放开始后到切换前中继写入旧索引的变更，重新入队由中继写入新索引
+        Set<Long> lateIds = collectChangedFileIds(replayCheckpoint != null ? replayCheckpoint : outboxMark);
+        if (!lateIds.isEmpty()) {
+            fileIndexingService.enqueueIndex(lateIds);
+        }
+
+        reindexStateRepository.clearState();
+        logger.info("索引重建成功: {} -> {}", INDEX_NAME, targetIndex);
+    }
+
+    /**
+     * 将发件箱中标记之后的变更写入新索引：按文件从数据库重新读取完整文档，已删除的文件从新索引删除
+     * 标记之后的记录在重建期间不会被清理（见发件箱清理任务）
+     */
+    private void replayOutbox(String targetIndex, long outboxMark) throws Exception {
+        long lastId = outboxMark;
+        long replayed = 0;
+        List<EsSyncOutbox> outboxes;
+        while (!(outboxes = outboxMapper.selectAfterId(lastId, rebuildBatchSize)).isEmpty()) {
+            List<Long> ids = outboxes.stream().map(EsSyncOutbox::getFileId).distinct().collect(Collectors.toList());
+            List<FileInfo> files = fileInfoMapper.selectByIds(ids);
+            Set<Long> existing = files.stream().map(FileInfo::getId).collect(Collectors.toSet());
+            List<Long> deletedIds = ids.stream().filter(id -> !existing.contains(id)).collect(Collectors.toList());
+            bulkWrite(targetIndex, files, deletedIds);
+            lastId = outboxes.get(outboxes.size() - 1).getId();
+            replayed += outboxes.size();
+            if (!reindexStateRepository.renewLock(nodeId, REBUILD_LOCK_TTL)) {
+                throw new RuntimeException("重建锁已失效");
+            }
+        }
+        logger.info("重放重建期间的发件箱记录: {}条, 截至ID: {}", replayed, lastId);
+    }
+
+    /**
+     * 查询发件箱中指定ID之后变更过的文件ID
+     */
+    private Set<Long> collectChangedFileIds(long afterId) {
+        Set<Long> fileIds = new LinkedHashSet<>();
+        long lastId = afterId;
+        List<EsSyncOutbox> outboxes;
+        while (!(outboxes = outboxMapper.selectAfterId(lastId, rebuildBatchSize)).isEmpty()) {
+            outboxes.forEach(outbox -> fileIds.add(outbox.getFileId()));
+            lastId = outboxes.get(outboxes.size() - 1).getId();
+        }
+        return fileIds;
+    }
+
+    /**
+     * 原子切换别名：指向新索引并移除旧索引，保留上一版本用于回滚，更早的版本删除
+     */
+    private void swapAlias(String targetIndex) throws Exception {
+        List<String> currentIndices = resolveIndices();
+        boolean legacyIndex = currentIndices.contains(INDEX_NAME);
+
+        IndicesAliasesRequest aliasesRequest = new IndicesAliasesRequest();
+        if (legacyIndex) {
+            // 旧版直接以别名为名的物理索引，与添加别名在同一请求中删除
+            aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(INDEX_NAME));
+        }
+        aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+            .index(targetIndex).alias(INDEX_NAME).writeIndex(true));
+        for (String index : currentIndices) {
+            if (!index.equals(INDEX_NAME) && !index.equals(targetIndex)) {
+                aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(index).alias(INDEX_NAME));
+            }
+        }
+        if (!elasticsearchClient.indices().updateAliases(aliasesRequest, RequestOptions.DEFAULT).isAcknowledged()) {
+            throw new RuntimeException("切换索引别名失败: " + targetIndex);
+        }
+        logger.info("索引别名已切换: {} -> {}", INDEX_NAME, targetIndex);
+
+        List<String> staleIndices = listVersionedIndices().stream()
+            .filter(index -> versionOf(index) < versionOf(targetIndex) - 1)
+            .collect(Collectors.toList());
+        if (!staleIndices.isEmpty()) {
+            elasticsearchClient.indices().delete(new DeleteIndexRequest(staleIndices.toArray(new String[0])), RequestOptions.DEFAULT);
+            logger.info("删除过期索引: {}", staleIndices);
+        }
+    }
+
+    /**
+     * 批量写入指定索引，被拒绝（429）的条目退避后重试
+     */
+    private void bulkWrite(String targetIndex, List<FileInfo> files, List<Long> deletedIds) throws Exception {
+        BulkRequest request = new BulkRequest();
+        for (FileDocument document : fileIndexingService.toDocuments(files)) {
+            request.add(new IndexRequest(targetIndex).id(document.getId())
+                .source(elasticsearchConverter.mapObject(document).toJson(), XContentType.JSON));
+        }
+        for (Long id : deletedIds) {
+            request.add(new DeleteRequest(targetIndex, String.valueOf(id)));
+        }
+
+        long backoffMillis = 100;
+        for (int attempt = 0; request.numberOfActions() > 0; attempt++) {
+            BulkResponse response = elasticsearchClient.bulk(request, RequestOptions.DEFAULT);
+            if (!response.hasFailures()) {
+                return;
+            }
+
+            BulkRequest retryRequest = new BulkRequest();
+            BulkItemResponse[] items = response.getItems();
+            for (int i = 0; i < items.length; i++) {
+                if (!items[i].isFailed()) {
+                    continue;
+                }
+                if (items[i].status() != RestStatus.TOO_MANY_REQUESTS || attempt >= MAX_BULK_RETRIES) {
+                    throw new RuntimeException("批量写入索引失败: " + items[i].getFailureMessage());
+                }
+                retryRequest.add(request.requests().get(i));
+            }
+            TimeUnit.MILLISECONDS.sleep(backoffMillis);
+            backoffMillis *= 2;
+            request = retryRequest;
+        }
+    }
+
+    /**
+     * 创建版本化的物理索引，批量写入阶段关闭刷新并且不分配副本
+     */
+    private boolean createVersionedIndex(String indexName, boolean bulkLoading) throws IOException {
+        CreateIndexRequest createIndexRequest = new CreateIndexRequest(indexName);
+
+        // 设置分片和副本
+        createIndexRequest.settings(Settings.builder()
+            .put("index.number_of_shards", numberOfShards)
+            .put("index.number_of_replicas", bulkLoading ? 0 : numberOfReplicas)
+            .put("index.max_result_window", 10000)
+            .put("index.refresh_interval", bulkLoading ? "-1" : "1s")
+        );
+
+        // 读取映射文件，没有时按FileDocument的字段注解生成
+        try {
+            ClassPathResource mappingResource = new ClassPathResource("es-mapping.json");
+            String mapping = readInputStream(mappingResource.getInputStream());
+            createIndexRequest.mapping(mapping, XContentType.JSON);
+        } catch (IOException e) {
+            logger.info("未找到映射文件，按实体注解生成映射: {}", e.getMessage());
+            String mapping = elasticsearchOperations.indexOps(FileDocument.class).createMapping().toJson();
+            createIndexRequest.mapping(mapping, XContentType.JSON);
+        }
+
+        return elasticsearchClient.indices().create(createIndexRequest, RequestOptions.DEFAULT).isAcknowledged();
+    }
+
+    private void forceMerge(String indexName) throws IOException {
+        ForceMergeRequest forceMergeRequest = new ForceMergeRequest(indexName).maxNumSegments(1);
+        elasticsearchClient.indices().forcemerge(forceMergeRequest, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * 别名当前指向的物理索引；旧版部署中为同名物理索引
+     */
+    private List<String> resolveIndices() throws IOException {
+        GetAliasesRequest aliasesRequest = new GetAliasesRequest(INDEX_NAME);
+        if (elasticsearchClient.indices().existsAlias(aliasesRequest, RequestOptions.DEFAULT)) {
+            return new ArrayList<>(elasticsearchClient.indices().getAlias(aliasesRequest, RequestOptions.DEFAULT).getAliases().keySet());
+        }
+        return indexExists() ? Collections.singletonList(INDEX_NAME) : Collections.emptyList();
+    }
+
+    private List<String> listVersionedIndices() throws IOException {
+        GetIndexRequest request = new GetIndexRequest(VERSION_PREFIX + "*").indicesOptions(IndicesOptions.lenientExpandOpen());
+        return Arrays.asList(elasticsearchClient.indices().get(request, RequestOptions.DEFAULT).getIndices());
+    }
+
+    private int nextVersion() throws IOException {
+        int maxVersion = 0;
+        for (String index : listVersionedIndices()) {
+            maxVersion = Math.max(maxVersion, versionOf(index));
+        }
+        return maxVersion + 1;
+    }
+
+    private static int versionOf(String indexName) {
+        try {
+            return Integer.parseInt(indexName.substring(VERSION_PREFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private boolean indexExists(String indexName) throws IOException {
+        return elasticsearchClient.indices().exists(new GetIndexRequest(indexName), RequestOptions.DEFAULT);
+    }
+
     /**
      * 读取输入流内容（Java 8兼容）
      */
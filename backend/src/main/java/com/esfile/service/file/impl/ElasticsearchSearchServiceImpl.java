@@ -1,9 +1,43 @@
 package com.esfile.service.file.impl;
 
+import com.esfile.common.vo.AggregationBucket;
 import com.esfile.entity.dto.FileSearchDto;
 import com.esfile.entity.elasticsearch.FileDocument;
 import com.esfile.repository.elasticsearch.FileDocumentRepository;
+import com.esfile.service.file.ElasticsearchAggregationService;
+import com.esfile.service.file.ElasticsearchIndexService;
 import com.esfile.service.file.ElasticsearchSearchService;
+import com.esfile.service.file.FileIndexingService;
+import com.esfile.service.file.HotSearchTermService;
+import com.esfile.service.file.SearchCacheService;
+import com.esfile.service.file.SearchScopeService;
+import com.esfile.service.file.SuggestionService;
+import com.esfile.service.file.TagService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.action.search.*;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MoreLikeThisQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.LongBounds;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.search.suggest.SuggestBuilder;
+import org.elasticsearch.search.suggest.SuggestBuilders;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,12 +46,16 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
 import org.springframework.stereotype.Service;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Elasticsearch搜索服务实现类
@@ -30,16 +68,73 @@ import java.util.stream.Collectors;
 public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchService {
 
     private static final Logger logger = LoggerFactory.getLogger(ElasticsearchSearchServiceImpl.class);
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String INDEX_NAME = "file_documents";
+
+    // 与索引的max_result_window一致，超出部分改用search_after
+    private static final int MAX_RESULT_WINDOW = 10000;
+
+    // 时间点快照的保持时间，每次翻页时续期
+    private static final TimeValue PIT_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    // terms统计返回的桶数
+    private static final int TERMS_STATS_SIZE = 50;
+
+    // 每日上传统计的天数
+    private static final int DAILY_STATS_DAYS = 30;
+
+    // 搜索建议返回的条数
+    private static final int SUGGESTION_SIZE = 10;
+
+    private static final String SUGGESTION_NAME = "file_suggest";
+
+    // 允许排序的字段（text字段不可排序）
+    private static final Set<String> SORTABLE_FIELDS = new HashSet<>(Arrays.asList(
+        "createTime", "updateTime", "fileSize", "downloadCount", "previewCount", "priority", "fileType", "fileExtension"
+    ));
 
     @Autowired
     private FileDocumentRepository fileDocumentRepository;
 
+    @Autowired
+    private RestHighLevelClient elasticsearchClient;
+
+    @Autowired
+    private ElasticsearchConverter elasticsearchConverter;
+
+    @Autowired
+    private ElasticsearchAggregationService elasticsearchAggregationService;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private ElasticsearchIndexService elasticsearchIndexService;
+
+    @Autowired
+    private SearchCacheService searchCacheService;
+
+    @Autowired
+    private HotSearchTermService hotSearchTermService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private SearchScopeService searchScopeService;
+
+    @Autowired
+    private TagService tagService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     @Override
     public Page<FileDocument> fullTextSearch(String query, Pageable pageable) {
         try {
             logger.info("执行全文搜索: {}", query);
-            return fileDocumentRepository.fullTextSearch(query, pageable);
+            hotSearchTermService.record(query);
+            return searchCacheService.getPage("fullText", pageable, 
+                () -> searchPage(fullTextQuery(query), Collections.singletonList(SortBuilders.scoreSort()), pageable), query);
         } catch (Exception e) {
             logger.error("全文搜索失败: {}", query, e);
             return Page.empty(pageable);
@@ -50,7 +145,9 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Page<FileDocument> keywordSearch(String keyword, Pageable pageable) {
         try {
             logger.info("执行关键词搜索: {}", keyword);
-            return fileDocumentRepository.searchByKeyword(keyword, pageable);
+            hotSearchTermService.record(keyword);
+            return searchCacheService.getPage("keyword", pageable, 
+                () -> searchPage(keywordQuery(keyword), Collections.singletonList(SortBuilders.scoreSort()), pageable), keyword);
         } catch (Exception e) {
             logger.error("关键词搜索失败: {}", keyword, e);
             return Page.empty(pageable);
@@ -61,66 +158,66 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Page<FileDocument> advancedSearch(FileSearchDto searchDto, Pageable pageable) {
         try {
             logger.info("执行高级搜索: {}", searchDto);
+            hotSearchTermService.record(searchDto.getKeyword());
+            return searchCacheService.getPage("advanced", pageable, 
+                () -> doAdvancedSearch(searchDto, pageable), searchDto);
+        } catch (Exception e) {
+            // 抛出而不是返回空结果，由调用方区分无结果和ES不可用
+            logger.error("高级搜索失败: {}", searchDto, e);
+            throw new RuntimeException("高级搜索失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Page<FileDocument> hedgedAdvancedSearch(FileSearchDto searchDto, Pageable pageable) {
+        try {
+            return doAdvancedSearch(searchDto, pageable);
+        } catch (Exception e) {
+            logger.error("高级搜索对冲请求失败: {}", searchDto, e);
+            throw new RuntimeException("高级搜索失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> advancedSearchAfter(FileSearchDto searchDto, int size, String cursor) {
+        try {
+            logger.info("执行游标高级搜索: {}, cursor: {}", searchDto, cursor);
             
-            // 构建搜索条件
-            List<FileDocument> results = new ArrayList<>();
-            
-            // 关键词搜索
-            if (searchDto.getKeyword() != null && !searchDto.getKeyword().trim().isEmpty()) {
-                Page<FileDocument> keywordResults = keywordSearch(searchDto.getKeyword(), pageable);
-                results.addAll(keywordResults.getContent());
-            }
-            
-            // 文件类型过滤
-            if (searchDto.getFileType() != null && !searchDto.getFileType().trim().isEmpty()) {
-                List<FileDocument> typeResults = searchByFileType(searchDto.getFileType());
-                results = filterResults(results, typeResults);
-            }
+            Map<String, Object> cursorData = decodeCursor(cursor);
+            boolean firstPage = cursorData == null;
+            String pitId = firstPage ? openPointInTime() : (String) cursorData.get("pit");
             
-            // 标签过滤
-            if (searchDto.getTags() != null && !searchDto.getTags().trim().isEmpty()) {
-                List<FileDocument> tagResults = searchByTags(searchDto.getTags());
-                results = filterResults(results, tagResults);
+            SearchSourceBuilder source = buildAdvancedSearchSource(searchDto)
+                .size(size)
+                .trackTotalHits(firstPage)
+                .pointInTimeBuilder(new PointInTimeBuilder(pitId).setKeepAlive(PIT_KEEP_ALIVE));
+            if (!firstPage) {
+                source.searchAfter(((List<?>) cursorData.get("after")).toArray());
             }
             
-            // 上传用户过滤
-            if (searchDto.getUploadUserName() != null && !searchDto.getUploadUserName().trim().isEmpty()) {
-                List<FileDocument> userResults = searchByUploadUser(searchDto.getUploadUserName());
-                results = filterResults(results, userResults);
+            SearchResponse response = elasticsearchClient.search(new SearchRequest().source(source), RequestOptions.DEFAULT);
+            if (response.pointInTimeId() != null) {
+                pitId = response.pointInTimeId();
             }
+            SearchHit[] hits = response.getHits().getHits();
             
-            // 文件大小范围过滤
-            if (searchDto.getMinSize() != null || searchDto.getMaxSize() != null) {
-                Long minSize = searchDto.getMinSize() != null ? searchDto.getMinSize() : 0L;
-                Long maxSize = searchDto.getMaxSize() != null ? searchDto.getMaxSize() : Long.MAX_VALUE;
-                List<FileDocument> sizeResults = searchByFileSizeRange(minSize, maxSize);
-                results = filterResults(results, sizeResults);
+            Map<String, Object> result = new HashMap<>();
+            result.put("content", toDocuments(response.getHits()));
+            if (firstPage && response.getHits().getTotalHits() != null) {
+                result.put("total", response.getHits().getTotalHits().value);
             }
-            
-            // 时间范围过滤
-            if (searchDto.getStartTime() != null || searchDto.getEndTime() != null) {
-                String startTime = searchDto.getStartTime() != null ? searchDto.getStartTime() : "1970-01-01 00:00:00";
-                String endTime = searchDto.getEndTime() != null ? searchDto.getEndTime() : "2099-12-31 23:59:59";
-                List<FileDocument> timeResults = searchByTimeRange(startTime, endTime);
-                results = filterResults(results, timeResults);
+            if (hits.length < size) {
+                // 已到最后一页，释放时间点快照
+                closePointInTime(pitId);
+                result.put("nextCursor", null);
+            } else {
+                result.put("nextCursor", encodeCursor(pitId, hits[hits.length - 1].getSortValues()));
             }
-            
-            // 去重和排序
-            results = results.stream()
-                .distinct()
-                .sorted(Comparator.comparing(FileDocument::getCreateTime).reversed())
-                .collect(Collectors.toList());
-            
-            // 分页
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), results.size());
-            List<FileDocument> pageContent = results.subList(start, end);
-            
-            return new PageImpl<>(pageContent, pageable, results.size());
+            return result;
             
         } catch (Exception e) {
-            logger.error("高级搜索失败: {}", searchDto, e);
-            return Page.empty(pageable);
+            logger.error("游标高级搜索失败: {}", searchDto, e);
+            throw new RuntimeException("搜索失败: " + e.getMessage());
         }
     }
 
@@ -128,7 +225,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public List<FileDocument> searchByFileType(String fileType) {
         try {
             logger.info("根据文件类型搜索: {}", fileType);
-            return fileDocumentRepository.findByFileType(fileType);
+            return searchList(QueryBuilders.termQuery("fileType", fileType));
         } catch (Exception e) {
             logger.error("根据文件类型搜索失败: {}", fileType, e);
             return new ArrayList<>();
@@ -139,7 +236,12 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public List<FileDocument> searchByTags(String tags) {
         try {
             logger.info("根据标签搜索: {}", tags);
-            return fileDocumentRepository.findByTagsContaining(tags);
+            List<String> tagList = tagService.parseTags(tags);
+            if (tagList.isEmpty()) {
+                return new ArrayList<>();
+            }
+            // 标签按keyword精确匹配，包含任一标签即命中
+            return searchList(QueryBuilders.termsQuery("tagList", tagList));
         } catch (Exception e) {
             logger.error("根据标签搜索失败: {}", tags, e);
             return new ArrayList<>();
@@ -150,7 +252,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public List<FileDocument> searchByUploadUser(String uploadUserName) {
         try {
             logger.info("根据上传用户搜索: {}", uploadUserName);
-            return fileDocumentRepository.findByUploadUserNameContaining(uploadUserName);
+            return searchList(QueryBuilders.matchQuery("uploadUserName", uploadUserName));
         } catch (Exception e) {
             logger.error("根据上传用户搜索失败: {}", uploadUserName, e);
             return new ArrayList<>();
@@ -161,7 +263,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public List<FileDocument> searchByFileSizeRange(Long minSize, Long maxSize) {
         try {
             logger.info("根据文件大小范围搜索: {} - {}", minSize, maxSize);
-            return fileDocumentRepository.findByFileSizeBetween(minSize, maxSize);
+            return searchList(QueryBuilders.rangeQuery("fileSize").gte(minSize).lte(maxSize));
         } catch (Exception e) {
             logger.error("根据文件大小范围搜索失败: {} - {}", minSize, maxSize, e);
             return new ArrayList<>();
@@ -172,12 +274,12 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public List<FileDocument> searchByTimeRange(String startTime, String endTime) {
         try {
             logger.info("根据时间范围搜索: {} - {}", startTime, endTime);
-            Date startDate = DATE_FORMAT.parse(startTime);
-            Date endDate = DATE_FORMAT.parse(endTime);
-            return fileDocumentRepository.findByCreateTimeBetween(startDate, endDate);
-        } catch (ParseException e) {
-            logger.error("时间格式解析失败: {} - {}", startTime, endTime, e);
-            return new ArrayList<>();
+            Long startMillis = parseTimeMillis(startTime);
+            Long endMillis = parseTimeMillis(endTime);
+            if (startMillis == null || endMillis == null) {
+                return new ArrayList<>();
+            }
+            return searchList(QueryBuilders.rangeQuery("createTime").format("epoch_millis").gte(startMillis).lte(endMillis));
         } catch (Exception e) {
             logger.error("根据时间范围搜索失败: {} - {}", startTime, endTime, e);
             return new ArrayList<>();
@@ -186,14 +288,33 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
 
     @Override
     public List<String> getSearchSuggestions(String prefix) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> suggestions = suggestionService.suggest(prefix, SUGGESTION_SIZE);
+        if (!suggestions.isEmpty() || suggestionService.isReady()) {
+            return suggestions;
+        }
+
+        // 本节点前缀树未加载完成时使用ES的completion补全
         try {
-            logger.info("获取搜索建议: {}", prefix);
-            List<FileDocument> suggestions = fileDocumentRepository.getSearchSuggestions(prefix);
-            return suggestions.stream()
-                .map(FileDocument::getFileName)
-                .distinct()
-                .limit(10)
-                .collect(Collectors.toList());
+            SearchSourceBuilder source = new SearchSourceBuilder()
+                .fetchSource(false)
+                .suggest(new SuggestBuilder().addSuggestion(SUGGESTION_NAME,
+                    SuggestBuilders.completionSuggestion("suggest")
+                        .prefix(prefix.trim())
+                        .skipDuplicates(true)
+                        .size(SUGGESTION_SIZE)));
+            SearchResponse response = elasticsearchClient.search(
+                new SearchRequest(INDEX_NAME).source(source), RequestOptions.DEFAULT);
+
+            CompletionSuggestion completion = response.getSuggest().getSuggestion(SUGGESTION_NAME);
+            for (CompletionSuggestion.Entry entry : completion.getEntries()) {
+                for (CompletionSuggestion.Entry.Option option : entry.getOptions()) {
+                    suggestions.add(option.getText().string());
+                }
+            }
+            return suggestions;
         } catch (Exception e) {
             logger.error("获取搜索建议失败: {}", prefix, e);
             return new ArrayList<>();
@@ -204,8 +325,9 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public List<FileDocument> findSimilarFiles(String fileId, Pageable pageable) {
         try {
             logger.info("查找相似文件: {}", fileId);
-            Page<FileDocument> page = fileDocumentRepository.findSimilarFiles(fileId, pageable);
-            return page != null ? page.getContent() : new ArrayList<>();
+            QueryBuilder query = QueryBuilders.moreLikeThisQuery(new String[]{"tags", "description"}, null,
+                new MoreLikeThisQueryBuilder.Item[]{new MoreLikeThisQueryBuilder.Item(INDEX_NAME, fileId)});
+            return searchPage(query, Collections.singletonList(SortBuilders.scoreSort()), pageable).getContent();
         } catch (Exception e) {
             logger.error("查找相似文件失败: {}", fileId, e);
             return new ArrayList<>();
@@ -216,7 +338,10 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Page<FileDocument> findPopularFiles(Pageable pageable) {
         try {
             logger.info("查找热门文件");
-            return fileDocumentRepository.findPopularFiles(pageable);
+            return searchCacheService.getPage("popular", pageable, 
+                () -> searchPage(QueryBuilders.matchAllQuery(), Arrays.asList(
+                    SortBuilders.fieldSort("downloadCount").order(SortOrder.DESC),
+                    SortBuilders.fieldSort("previewCount").order(SortOrder.DESC)), pageable));
         } catch (Exception e) {
             logger.error("查找热门文件失败", e);
             return Page.empty(pageable);
@@ -227,7 +352,9 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Page<FileDocument> findRecentFiles(Pageable pageable) {
         try {
             logger.info("查找最近上传文件");
-            return fileDocumentRepository.findRecentFiles(pageable);
+            return searchCacheService.getPage("recent", pageable, 
+                () -> searchPage(QueryBuilders.matchAllQuery(), 
+                    Collections.singletonList(SortBuilders.fieldSort("createTime").order(SortOrder.DESC)), pageable));
         } catch (Exception e) {
             logger.error("查找最近上传文件失败", e);
             return Page.empty(pageable);
@@ -238,16 +365,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Map<String, Object> getFileTypeStats() {
         try {
             logger.info("获取文件类型统计");
-            // 由于聚合查询可能返回空结果，这里使用基础查询
-            Iterable<FileDocument> allFilesIter = fileDocumentRepository.findAll();
-            List<FileDocument> allFiles = new ArrayList<>();
-            allFilesIter.forEach(allFiles::add);
-            
-            Map<String, Long> typeStats = allFiles.stream()
-                .collect(Collectors.groupingBy(
-                    doc -> doc.getFileType() != null ? doc.getFileType() : "unknown",
-                    Collectors.counting()
-                ));
+            Map<String, Long> typeStats = toCountMap(elasticsearchAggregationService.aggregate(searchScopeService.currentScopeFilter(), fileTypeAggregation()));
             
             Map<String, Object> result = new HashMap<>();
             result.put("fileTypes", typeStats);
@@ -263,16 +381,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Map<String, Object> getUploadUserStats() {
         try {
             logger.info("获取上传用户统计");
-            // 使用基础查询统计用户
-            Iterable<FileDocument> allFilesIter = fileDocumentRepository.findAll();
-            List<FileDocument> allFiles = new ArrayList<>();
-            allFilesIter.forEach(allFiles::add);
-            
-            Map<String, Long> userStats = allFiles.stream()
-                .collect(Collectors.groupingBy(
-                    doc -> doc.getUploadUserName() != null ? doc.getUploadUserName() : "unknown",
-                    Collectors.counting()
-                ));
+            Map<String, Long> userStats = toCountMap(elasticsearchAggregationService.aggregate(searchScopeService.currentScopeFilter(), uploadUserAggregation()));
             
             Map<String, Object> result = new HashMap<>();
             result.put("uploadUsers", userStats);
@@ -288,7 +397,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Map<String, Object> getTagStats() {
         try {
             logger.info("获取标签统计");
-            List<FileDocument> stats = fileDocumentRepository.getTagStats();
+            List<AggregationBucket> stats = elasticsearchAggregationService.aggregate(searchScopeService.currentScopeFilter(), tagAggregation());
             Map<String, Object> result = new HashMap<>();
             result.put("tags", stats);
             result.put("totalTags", stats.size());
@@ -303,7 +412,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Map<String, Object> getDailyUploadStats() {
         try {
             logger.info("获取每日上传统计");
-            List<FileDocument> stats = fileDocumentRepository.getDailyUploadStats();
+            List<AggregationBucket> stats = elasticsearchAggregationService.aggregate(searchScopeService.currentScopeFilter(), dailyUploadAggregation());
             Map<String, Object> result = new HashMap<>();
             result.put("dailyUploads", stats);
             result.put("totalDays", stats.size());
@@ -318,7 +427,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public Map<String, Object> getSizeRangeStats() {
         try {
             logger.info("获取文件大小分布统计");
-            List<FileDocument> stats = fileDocumentRepository.getSizeRangeStats();
+            List<AggregationBucket> stats = elasticsearchAggregationService.aggregate(searchScopeService.currentScopeFilter(), sizeRangeAggregation());
             Map<String, Object> result = new HashMap<>();
             result.put("sizeRanges", stats);
             result.put("totalRanges", stats.size());
@@ -329,11 +438,38 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
         }
     }
 
+    @Override
+    public Map<String, Object> getStatsOverview() {
+        try {
+            logger.info("获取搜索统计概览");
+            // 五个聚合合并为一次请求
+            Map<String, List<AggregationBucket>> buckets = elasticsearchAggregationService.aggregate(searchScopeService.currentScopeFilter(), Arrays.asList(
+                fileTypeAggregation(),
+                uploadUserAggregation(),
+                tagAggregation(),
+                dailyUploadAggregation(),
+                sizeRangeAggregation()
+            ));
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("fileTypes", toCountMap(buckets.get("fileTypes")));
+            result.put("uploadUsers", toCountMap(buckets.get("uploadUsers")));
+            result.put("tags", buckets.get("tags"));
+            result.put("dailyUploads", buckets.get("dailyUploads"));
+            result.put("sizeRanges", buckets.get("sizeRanges"));
+            return result;
+        } catch (Exception e) {
+            logger.error("获取搜索统计概览失败", e);
+            return new HashMap<>();
+        }
+    }
+
     @Override
     public boolean indexFile(FileDocument fileDocument) {
         try {
             logger.info("索引文件到ES: {}", fileDocument.getFileName());
             fileDocumentRepository.save(fileDocument);
+            searchCacheService.invalidate();
             return true;
         } catch (Exception e) {
             logger.error("索引文件到ES失败: {}", fileDocument.getFileName(), e);
@@ -345,7 +481,14 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public boolean batchIndexFiles(List<FileDocument> fileDocuments) {
         try {
             logger.info("批量索引文件到ES: {}", fileDocuments.size());
-            fileDocumentRepository.saveAll(fileDocuments);
+            // 交给索引管道批量写入，不在请求线程上等待ES
+            List<Long> fileIds = new ArrayList<>();
+            for (FileDocument fileDocument : fileDocuments) {
+                if (fileDocument.getFileId() != null) {
+                    fileIds.add(fileDocument.getFileId());
+                }
+            }
+            fileIndexingService.enqueueIndex(fileIds);
             return true;
         } catch (Exception e) {
             logger.error("批量索引文件到ES失败: {}", fileDocuments.size(), e);
@@ -358,6 +501,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
         try {
             logger.info("从ES删除文件索引: {}", fileId);
             fileDocumentRepository.deleteById(fileId);
+            searchCacheService.invalidate();
             return true;
         } catch (Exception e) {
             logger.error("从ES删除文件索引失败: {}", fileId, e);
@@ -370,6 +514,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
         try {
             logger.info("更新ES中的文件索引: {}", fileDocument.getFileName());
             fileDocumentRepository.save(fileDocument);
+            searchCacheService.invalidate();
             return true;
         } catch (Exception e) {
             logger.error("更新ES中的文件索引失败: {}", fileDocument.getFileName(), e);
@@ -381,9 +526,7 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public boolean rebuildIndex() {
         try {
             logger.info("重建ES索引");
-            // 这里可以实现重建索引的逻辑
-            // 比如从数据库读取所有文件信息，重新索引到ES
-            return true;
+            return elasticsearchIndexService.rebuildIndex();
         } catch (Exception e) {
             logger.error("重建ES索引失败", e);
             return false;
@@ -418,8 +561,11 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     public List<String> getHotSearchTerms() {
         try {
             logger.info("获取热门搜索词");
-            // TODO: 实现热门搜索词功能
-            return Arrays.asList("文档", "图片", "视频", "PDF", "Excel");
+            List<String> terms = new ArrayList<>();
+            for (Map<String, Object> hotTerm : hotSearchTermService.getHotTerms("day", 10)) {
+                terms.add((String) hotTerm.get("term"));
+            }
+            return terms;
         } catch (Exception e) {
             logger.error("获取热门搜索词失败", e);
             return new ArrayList<>();
@@ -439,22 +585,346 @@ public class ElasticsearchSearchServiceImpl implements ElasticsearchSearchServic
     }
 
     /**
-     * 过滤搜索结果
+     * 根据搜索条件构建查询
+     * 关键词放在must中参与评分，其余结构化条件放在filter中，不评分且可被ES缓存
+     */
+    private SearchSourceBuilder buildAdvancedSearchSource(FileSearchDto searchDto) {
+        BoolQueryBuilder query = QueryBuilders.boolQuery();
+        boolean hasKeyword = hasText(searchDto.getKeyword());
+        
+        if (hasKeyword) {
+            query.must(QueryBuilders.multiMatchQuery(searchDto.getKeyword().trim())
+                .field("fileName", 2.0f)
+                .field("description", 1.5f)
+                .field("tags", 1.2f)
+                .field("content", 1.0f)
+                .field("uploadUserName", 0.8f));
+        }
+        
+        if (hasText(searchDto.getFileType())) {
+            query.filter(QueryBuilders.termQuery("fileType", searchDto.getFileType().trim()));
+        }
+        // 每个标签一个keyword过滤条件，同时包含全部标签才命中
+        if (hasText(searchDto.getTags())) {
+            for (String tag : searchDto.getTags().split("[,，]")) {
+                String name = tag.trim().replaceAll("\\s+", " ");
+                if (!name.isEmpty()) {
+                    query.filter(QueryBuilders.termQuery("tagList", name));
+                }
+            }
+        }
+        if (hasText(searchDto.getUploadUserName())) {
+            query.filter(QueryBuilders.matchQuery("uploadUserName", searchDto.getUploadUserName().trim()).operator(Operator.AND));
+        }
+        if (searchDto.getUploadUserId() != null) {
+            query.filter(QueryBuilders.termQuery("uploadUserId", searchDto.getUploadUserId()));
+        }
+        if (hasText(searchDto.getCategory())) {
+            query.filter(QueryBuilders.termQuery("category", searchDto.getCategory().trim()));
+        }
+        if (searchDto.getPriority() != null) {
+            query.filter(QueryBuilders.termQuery("priority", searchDto.getPriority()));
+        }
+        if (searchDto.getStatus() != null) {
+            query.filter(QueryBuilders.termQuery("status", searchDto.getStatus()));
+        }
+        if (searchDto.getIsPublic() != null) {
+            query.filter(QueryBuilders.termQuery("isPublic", searchDto.getIsPublic()));
+        }
+        if (searchDto.getParentFolderId() != null) {
+            query.filter(QueryBuilders.termQuery("parentFolderId", searchDto.getParentFolderId()));
+        }
+        QueryBuilder scope = searchScopeService.currentScopeFilter();
+        if (scope != null) {
+            query.filter(scope);
+        }
+        
+        // 文件大小范围过滤
+        if (searchDto.getMinSize() != null || searchDto.getMaxSize() != null) {
+            RangeQueryBuilder sizeRange = QueryBuilders.rangeQuery("fileSize");
+            if (searchDto.getMinSize() != null) {
+                sizeRange.gte(searchDto.getMinSize());
+            }
+            if (searchDto.getMaxSize() != null) {
+                sizeRange.lte(searchDto.getMaxSize());
+            }
+            query.filter(sizeRange);
+        }
+        
+        // 时间范围过滤
+        Long startMillis = parseTimeMillis(searchDto.getStartTime());
+        Long endMillis = parseTimeMillis(searchDto.getEndTime());
+        if (startMillis != null || endMillis != null) {
+            RangeQueryBuilder timeRange = QueryBuilders.rangeQuery("createTime").format("epoch_millis");
+            if (startMillis != null) {
+                timeRange.gte(startMillis);
+            }
+            if (endMillis != null) {
+                timeRange.lte(endMillis);
+            }
+            query.filter(timeRange);
+        }
+        
+        SearchSourceBuilder source = new SearchSourceBuilder().query(query);
+        for (SortBuilder<?> sort : buildSorts(searchDto, hasKeyword)) {
+            source.sort(sort);
+        }
+        return source;
+    }
+
+    /**
+     * 构建排序：指定字段优先，有关键词时按相关度，最后按创建时间和文件ID保证顺序稳定
      */
-    private List<FileDocument> filterResults(List<FileDocument> mainResults, List<FileDocument> filterResults) {
-        if (mainResults.isEmpty()) {
-            return filterResults;
+    private List<SortBuilder<?>> buildSorts(FileSearchDto searchDto, boolean hasKeyword) {
+        List<SortBuilder<?>> sorts = new ArrayList<>();
+        String orderBy = searchDto.getOrderBy();
+        if (orderBy != null && SORTABLE_FIELDS.contains(orderBy)) {
+            SortOrder order = "asc".equalsIgnoreCase(searchDto.getOrderDirection()) ? SortOrder.ASC : SortOrder.DESC;
+            sorts.add(SortBuilders.fieldSort(orderBy).order(order));
+        } else if (hasKeyword) {
+            sorts.add(SortBuilders.scoreSort());
         }
-        if (filterResults.isEmpty()) {
-            return mainResults;
+        if (!"createTime".equals(orderBy)) {
+            sorts.add(SortBuilders.fieldSort("createTime").order(SortOrder.DESC));
         }
+        sorts.add(SortBuilders.fieldSort("fileId").order(SortOrder.ASC).missing("_last"));
+        return sorts;
+    }
+
+    /**
+     * 高级搜索：所有条件合并为一个bool查询，排序和分页都在ES端完成
+     */
+    private Page<FileDocument> doAdvancedSearch(FileSearchDto searchDto, Pageable pageable) throws Exception {
+        return executePage(buildAdvancedSearchSource(searchDto), pageable);
+    }
+
+    /**
+     * 按指定排序分页查询，最后按文件ID排序保证深分页时顺序稳定
+     */
+    private Page<FileDocument> searchPage(QueryBuilder query, List<SortBuilder<?>> sorts, Pageable pageable) throws Exception {
+        SearchSourceBuilder source = new SearchSourceBuilder().query(scoped(query));
+        for (SortBuilder<?> sort : sorts) {
+            source.sort(sort);
+        }
+        source.sort(SortBuilders.fieldSort("fileId").order(SortOrder.ASC).missing("_last"));
+        return executePage(source, pageable);
+    }
+
+    private Page<FileDocument> executePage(SearchSourceBuilder source, Pageable pageable) throws Exception {
+        source.size(pageable.getPageSize()).trackTotalHits(true);
+        int from = (int) pageable.getOffset();
         
-        Set<Long> filterIds = filterResults.stream()
-            .map(FileDocument::getFileId)
-            .collect(Collectors.toSet());
+        if (from + pageable.getPageSize() <= MAX_RESULT_WINDOW) {
+            source.from(from);
+            SearchResponse response = elasticsearchClient.search(
+                new SearchRequest(INDEX_NAME).source(source), RequestOptions.DEFAULT);
+            return new PageImpl<>(toDocuments(response.getHits()), pageable, 
+                response.getHits().getTotalHits().value);
+        }
         
-        return mainResults.stream()
-            .filter(doc -> filterIds.contains(doc.getFileId()))
-            .collect(Collectors.toList());
+        // 超出结果窗口的深分页：在时间点快照上用search_after跳过前面的结果
+        return searchDeepPage(source, from, pageable);
+    }
+
+    /**
+     * 不分页的条件查询，最多返回一个结果窗口
+     */
+    private List<FileDocument> searchList(QueryBuilder query) throws Exception {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+            .query(scoped(query))
+            .size(MAX_RESULT_WINDOW);
+        SearchResponse response = elasticsearchClient.search(
+            new SearchRequest(INDEX_NAME).source(source), RequestOptions.DEFAULT);
+        return toDocuments(response.getHits());
+    }
+
+    /**
+     * 查询加上调用者的可见范围，放在filter中由ES在计数和分页之前过滤
+     */
+    private QueryBuilder scoped(QueryBuilder query) {
+        QueryBuilder scope = searchScopeService.currentScopeFilter();
+        return scope != null ? QueryBuilders.boolQuery().must(query).filter(scope) : query;
+    }
+
+    private QueryBuilder fullTextQuery(String query) {
+        return QueryBuilders.multiMatchQuery(query)
+            .field("fileName", 2.0f)
+            .field("description", 1.5f)
+            .field("tags", 1.2f)
+            .field("content", 1.0f)
+            .field("uploadUserName", 0.8f);
+    }
+
+    private QueryBuilder keywordQuery(String keyword) {
+        return QueryBuilders.boolQuery()
+            .should(QueryBuilders.matchQuery("fileName", keyword))
+            .should(QueryBuilders.matchQuery("description", keyword))
+            .should(QueryBuilders.matchQuery("tags", keyword))
+            .should(QueryBuilders.matchQuery("content", keyword));
+    }
+
+    /**
+     * 深分页：先只取排序值跳过前面的结果，再取目标页
+     */
+    private Page<FileDocument> searchDeepPage(SearchSourceBuilder source, int from, Pageable pageable) throws Exception {
+        String pitId = openPointInTime();
+        try {
+            Object[] searchAfter = null;
+            long total = -1;
+            int skipped = 0;
+            
+            while (skipped < from) {
+                int batchSize = Math.min(MAX_RESULT_WINDOW, from - skipped);
+                SearchSourceBuilder skipSource = copySource(source, pitId, searchAfter)
+                    .size(batchSize)
+                    .fetchSource(false)
+                    .trackTotalHits(total < 0);
+                SearchResponse response = elasticsearchClient.search(new SearchRequest().source(skipSource), RequestOptions.DEFAULT);
+                pitId = response.pointInTimeId() != null ? response.pointInTimeId() : pitId;
+                if (total < 0) {
+                    total = response.getHits().getTotalHits().value;
+                }
+                
+                SearchHit[] hits = response.getHits().getHits();
+                if (hits.length == 0) {
+                    return new PageImpl<>(new ArrayList<>(), pageable, total);
+                }
+                searchAfter = hits[hits.length - 1].getSortValues();
+                skipped += hits.length;
+            }
+            
+            SearchSourceBuilder pageSource = copySource(source, pitId, searchAfter)
+                .size(pageable.getPageSize())
+                .trackTotalHits(false);
+            SearchResponse response = elasticsearchClient.search(new SearchRequest().source(pageSource), RequestOptions.DEFAULT);
+            pitId = response.pointInTimeId() != null ? response.pointInTimeId() : pitId;
+            return new PageImpl<>(toDocuments(response.getHits()), pageable, total);
+        } finally {
+            closePointInTime(pitId);
+        }
+    }
+
+    private SearchSourceBuilder copySource(SearchSourceBuilder source, String pitId, Object[] searchAfter) {
+        SearchSourceBuilder copy = new SearchSourceBuilder()
+            .query(source.query())
+            .pointInTimeBuilder(new PointInTimeBuilder(pitId).setKeepAlive(PIT_KEEP_ALIVE));
+        for (SortBuilder<?> sort : source.sorts()) {
+            copy.sort(sort);
+        }
+        if (searchAfter != null) {
+            copy.searchAfter(searchAfter);
+        }
+        return copy;
+    }
+
+    private String openPointInTime() throws Exception {
+        OpenPointInTimeRequest request = new OpenPointInTimeRequest(INDEX_NAME).keepAlive(PIT_KEEP_ALIVE);
+        return elasticsearchClient.openPointInTime(request, RequestOptions.DEFAULT).getPointInTimeId();
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(new ClosePointInTimeRequest(pitId), RequestOptions.DEFAULT);
+        } catch (Exception e) {
+            // 关闭失败时快照会在保持时间后自动释放
+            logger.warn("关闭时间点快照失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 游标编码：时间点快照ID和最后一条结果的排序值
+     */
+    private String encodeCursor(String pitId, Object[] sortValues) throws Exception {
+        Map<String, Object> cursor = new HashMap<>();
+        cursor.put("pit", pitId);
+        cursor.put("after", sortValues);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> decodeCursor(String cursor) {
+        if (!hasText(cursor)) {
+            return null;
+        }
+        try {
+            Map<String, Object> cursorData = objectMapper.readValue(
+                new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8), Map.class);
+            if (cursorData.get("pit") == null || !(cursorData.get("after") instanceof List)) {
+                throw new IllegalArgumentException("游标格式错误");
+            }
+            return cursorData;
+        } catch (Exception e) {
+            throw new RuntimeException("无效的搜索游标");
+        }
+    }
+
+    private List<FileDocument> toDocuments(SearchHits searchHits) {
+        List<FileDocument> documents = new ArrayList<>();
+        for (SearchHit hit : searchHits.getHits()) {
+            FileDocument document = elasticsearchConverter.read(FileDocument.class, Document.from(hit.getSourceAsMap()));
+            document.setId(hit.getId());
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    private AggregationBuilder fileTypeAggregation() {
+        return AggregationBuilders.terms("fileTypes").field("fileType").missing("unknown").size(TERMS_STATS_SIZE);
+    }
+
+    private AggregationBuilder uploadUserAggregation() {
+        return AggregationBuilders.terms("uploadUsers").field("uploadUserName.keyword").missing("unknown").size(TERMS_STATS_SIZE);
+    }
+
+    private AggregationBuilder tagAggregation() {
+        return AggregationBuilders.terms("tags").field("tagList").size(TERMS_STATS_SIZE);
+    }
+
+    /**
+     * 最近若干天的每日上传数，没有上传的日期也返回0
+     */
+    private AggregationBuilder dailyUploadAggregation() {
+        String since = "now-" + (DAILY_STATS_DAYS - 1) + "d/d";
+        return AggregationBuilders.filter("dailyUploads", QueryBuilders.rangeQuery("createTime").gte(since))
+            .subAggregation(AggregationBuilders.dateHistogram("dailyUploads")
+                .field("createTime")
+                .calendarInterval(DateHistogramInterval.DAY)
+                .format("yyyy-MM-dd")
+                .timeZone(ZoneId.systemDefault())
+                .minDocCount(0)
+                .extendedBounds(new LongBounds(since, "now/d")));
+    }
+
+    private AggregationBuilder sizeRangeAggregation() {
+        return AggregationBuilders.range("sizeRanges").field("fileSize")
+            .addUnboundedTo("<1MB", 1048576)
+            .addRange("1MB-10MB", 1048576, 10485760)
+            .addRange("10MB-100MB", 10485760, 104857600)
+            .addUnboundedFrom(">=100MB", 104857600);
+    }
+
+    private static Map<String, Long> toCountMap(List<AggregationBucket> buckets) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (AggregationBucket bucket : buckets) {
+            counts.put(bucket.getKey(), bucket.getDocCount());
+        }
+        return counts;
+    }
+
+    private Long parseTimeMillis(String time) {
+        if (!hasText(time)) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(time.trim(), DATE_TIME_FORMATTER)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            logger.warn("时间格式解析失败: {}", time);
+            return null;
+        }
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
     }
 }
@@ -0,0 +1,127 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.entity.mybatis.FileBlob;
+import com.esfile.mapper.FileBlobMapper;
+import com.esfile.mapper.FileInfoMapper;
+import com.esfile.service.file.FileBlobService;
+import com.esfile.service.file.MinioStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 文件内容服务实现类
+ * 相同内容只在MinIO中保存一份，文件记录通过内容哈希共享对象
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class FileBlobServiceImpl implements FileBlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobServiceImpl.class);
+
+    @Autowired
+    private FileBlobMapper fileBlobMapper;
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private MinioStorageService minioStorageService;
+
+    @Value("${storage.deduplication:true}")
+    private boolean deduplication;
+
+    @Override
+    public boolean isDeduplicationEnabled() {
+        return deduplication;
+    }
+
+    @Override
+    public FileBlob getBlob(String contentHash) {
+        if (!deduplication || contentHash == null) {
+            return null;
+        }
+        return fileBlobMapper.selectByContentHash(contentHash);
+    }
+
+    @Override
+    @Transactional
+    public FileBlob acquireExisting(String contentHash) {
+        if (!deduplication || contentHash == null) {
+            return null;
+        }
+        
+        // 只对仍被引用的内容加引用，避免复活正在回收的对象
+        if (fileBlobMapper.incrementRefCount(contentHash) == 0) {
+            return null;
+        }
+        return fileBlobMapper.selectByContentHash(contentHash);
+    }
+
+    @Override
+    @Transactional
+    public FileBlob register(String contentHash, String fileMd5, long fileSize, 
+                             String bucketName, String objectName) {
+        if (!deduplication || contentHash == null) {
+            return null;
+        }
+        
+        FileBlob fileBlob = new FileBlob();
+        fileBlob.setContentHash(contentHash);
+        fileBlob.setFileMd5(fileMd5);
+        fileBlob.setFileSize(fileSize);
+        fileBlob.setBucketName(bucketName);
+        fileBlob.setObjectName(objectName);
+        fileBlobMapper.insertOrIncrement(fileBlob);
+        
+        FileBlob stored = fileBlobMapper.selectByContentHash(contentHash);
+        if (!objectName.equals(stored.getObjectName())) {
+            // 内容已存在，本次上传的对象没有任何引用，直接删除
+            minioStorageService.deleteFile(objectName);
+            logger.info("内容已存在，复用对象: {} -> {}", objectName, stored.getObjectName());
+        }
+        return stored;
+    }
+
+    @Override
+    @Transactional
+    public void release(String contentHash, String objectName) {
+        FileBlob fileBlob = getBlob(contentHash);
+        if (fileBlob != null) {
+            fileBlobMapper.decrementRefCount(contentHash);
+            if (fileBlobMapper.deleteUnreferenced(contentHash) > 0) {
+                deleteObjectAfterCommit(fileBlob.getObjectName());
+            }
+            return;
+        }
+        
+        // 未登记内容的历史文件：没有其他文件引用该对象时才删除
+        if (objectName != null && fileInfoMapper.countByObjectName(objectName) == 0) {
+            deleteObjectAfterCommit(objectName);
+        }
+    }
+
+    /**
+     * 事务提交后再删除MinIO对象，避免回滚后记录指向已删除的对象
+     */
+    private void deleteObjectAfterCommit(String objectName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            minioStorageService.deleteFile(objectName);
+            return;
+        }
+        
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                minioStorageService.deleteFile(objectName);
+            }
+        });
+    }
+}
@@ -1,13 +1,26 @@
 package com.esfile.service.file.impl;
 
+import com.esfile.common.util.BufferPool;
+import com.esfile.common.util.MinioObjectStream;
 import com.esfile.entity.mybatis.FileInfo;
 import com.esfile.mapper.FileInfoMapper;
+import com.esfile.service.file.BandwidthShaper;
 import com.esfile.service.file.FileDownloadService;
+import com.esfile.service.file.FileIndexingService;
 import com.esfile.service.file.MinioStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -16,9 +29,9 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
  * 文件下载服务实现类
@@ -29,46 +42,43 @@ public class FileDownloadServiceImpl implements FileDownloadService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileDownloadServiceImpl.class);
 
+    // 合并后仍超过该数量的多区间请求直接返回完整内容，避免被拆成大量小请求
+    private static final int MAX_RANGES = 16;
+
     @Autowired
     private FileInfoMapper fileInfoMapper;
 
     @Autowired
     private MinioStorageService minioStorageService;
 
+    @Autowired
+    private BandwidthShaper bandwidthShaper;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("zipPrefetchExecutor")
+    private Executor zipPrefetchExecutor;
+
+    // 单个批量下载请求同时预取的文件数
+    @Value("${file.download.zip-window:8}")
+    private int zipWindow;
+
+    @Value("${file.upload.temp-dir:/tmp/upload}")
+    private String tempDir;
+
     /**
      * 下载单个文件
      */
     @Override
     public void downloadFile(Long id, HttpServletResponse response) {
-        FileInfo fileInfo = fileInfoMapper.selectById(id);
-        if (fileInfo == null) {
-            throw new RuntimeException("文件不存在");
-        }
-
-        // 设置响应头
-        setDownloadHeaders(response, fileInfo.getFileName(), fileInfo.getFileSize());
-        
-        try (InputStream inputStream = minioStorageService.downloadFile(fileInfo.getObjectName());
-             OutputStream outputStream = response.getOutputStream()) {
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-            outputStream.flush();
-            
-            // 更新下载次数
-            updateDownloadCount(id);
-            
-            logger.info("文件下载成功: {}, 大小: {} bytes", fileInfo.getFileName(), fileInfo.getFileSize());
-            
-        } catch (IOException e) {
-            logger.error("文件下载失败: {}", fileInfo.getFileName(), e);
-            throw new RuntimeException("文件下载失败: " + e.getMessage());
-        }
+        // 请求带Range头时按区间返回
+        downloadWithRange(id, response, getRequestHeader("Range"));
     }
-
     /**
      * 批量下载文件
      */
@@ -88,22 +98,24 @@ public class FileDownloadServiceImpl implements FileDownloadService {
             response.setHeader("Content-Disposition", "attachment; filename=" + zipFileName);
         }
 
-        try (ZipOutputStream zipOut = new ZipOutputStream(response.getOutputStream())) {
-            
-            for (Long id : ids) {
-                FileInfo fileInfo = fileInfoMapper.selectById(id);
-                if (fileInfo != null) {
-                    try (InputStream inputStream = minioStorageService.downloadFile(fileInfo.getObjectName())) {
-                        addFileToZip(zipOut, fileInfo, inputStream);
-                        updateDownloadCount(id);
-                    } catch (Exception e) {
-                        logger.warn("添加文件到压缩包失败: {}", fileInfo.getFileName(), e);
-                    }
-                }
+        // 一次查询全部文件信息，按请求顺序排列并去重
+        Map<Long, FileInfo> fileInfoMap = new HashMap<>();
+        for (FileInfo fileInfo : fileInfoMapper.selectByIds(ids)) {
+            fileInfoMap.put(fileInfo.getId(), fileInfo);
+        }
+        List<FileInfo> files = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            FileInfo fileInfo = fileInfoMap.get(id);
+            if (fileInfo != null) {
+                files.add(fileInfo);
             }
-            
-            zipOut.finish();
-            logger.info("批量下载完成，共下载 {} 个文件", ids.size());
+        }
+
+        BatchZipWriter zipWriter = new BatchZipWriter(minioStorageService, zipPrefetchExecutor, 
+            Paths.get(tempDir, "zip"), zipWindow);
+        try (OutputStream outputStream = openOutputStream(response, true, null)) {
+            int written = zipWriter.write(files, outputStream, fileInfo -> updateDownloadCount(fileInfo.getId()));
+            logger.info("批量下载完成，共下载 {} 个文件", written);
             
         } catch (IOException e) {
             logger.error("批量下载失败", e);
@@ -139,17 +151,10 @@ public class FileDownloadServiceImpl implements FileDownloadService {
             response.setHeader("Content-Disposition", "inline; filename=" + fileInfo.getFileName());
         }
 
-        // 获取文件流并写入响应
-        try (InputStream inputStream = getFileInputStream(id);
-             OutputStream outputStream = response.getOutputStream()) {
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-            outputStream.flush();
-            
+        // 支持Range请求，音视频预览可直接拖动进度
+        try {
+            // 预览不参与下载限速，避免被批量下载挤占带宽
+            writeFileContent(fileInfo, response, getRequestHeader("Range"), false, null);
         } catch (IOException e) {
             throw new RuntimeException("文件预览失败", e);
         }
@@ -218,8 +223,11 @@ public class FileDownloadServiceImpl implements FileDownloadService {
     @Override
     public void updateDownloadCount(Long fileId) {
         try {
-            // 这里可以添加下载次数统计逻辑
-            // 例如：fileInfoMapper.incrementDownloadCount(fileId);
+            // 计数和索引同步记录在同一事务中提交，类内调用不经过代理，因此使用TransactionTemplate
+            transactionTemplate.executeWithoutResult(status -> {
+                fileInfoMapper.updateDownloadCount(fileId);
+                fileIndexingService.enqueuePartialUpdate(fileId, "downloadCount");
+            });
             logger.debug("文件下载次数更新: {}", fileId);
         } catch (Exception e) {
             logger.warn("更新下载次数失败: {}", fileId, e);
@@ -258,8 +266,7 @@ public class FileDownloadServiceImpl implements FileDownloadService {
      */
     @Override
     public void downloadWithSpeedLimit(Long id, HttpServletResponse response, Long speedLimit) {
-        // TODO: 实现限速下载
-        downloadFile(id, response);
+        downloadWithLimit(id, response, getRequestHeader("Range"), speedLimit);
     }
 
     /**
@@ -267,24 +274,229 @@ public class FileDownloadServiceImpl implements FileDownloadService {
      */
     @Override
     public void downloadWithRange(Long id, HttpServletResponse response, String range) {
-        // TODO: 实现断点续传下载
-        downloadFile(id, response);
+        downloadWithLimit(id, response, range, null);
+    }
+
+    /**
+     * 下载文件，按请求限速及系统配置的用户、全局限速整形
+     */
+    private void downloadWithLimit(Long id, HttpServletResponse response, String range, Long speedLimit) {
+        FileInfo fileInfo = fileInfoMapper.selectById(id);
+        if (fileInfo == null) {
+            throw new RuntimeException("文件不存在");
+        }
+
+        // 设置响应头
+        setDownloadHeaders(response, fileInfo.getFileName());
+        
+        try {
+            // 更新下载次数，播放器和下载工具的分段请求只计第一段
+            if (writeFileContent(fileInfo, response, range, true, speedLimit)) {
+                updateDownloadCount(id);
+            }
+            
+            logger.info("文件下载成功: {}, 大小: {} bytes, Range: {}", 
+                fileInfo.getFileName(), fileInfo.getFileSize(), range);
+            
+        } catch (IOException e) {
+            logger.error("文件下载失败: {}", fileInfo.getFileName(), e);
+            throw new RuntimeException("文件下载失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按Range请求写出文件内容（RFC 7233）
+     * 无Range或If-Range校验不通过时返回200完整内容，单区间返回206，
+     * 多区间返回multipart/byteranges，每个区间单独向MinIO发起区间读取
+     *
+     * @return 是否计为一次下载：完整内容或从第0字节开始的区间，同一次下载拆成的后续区间请求不重复计数
+     */
+    private boolean writeFileContent(FileInfo fileInfo, HttpServletResponse response, String rangeHeader, 
+                                  boolean throttled, Long speedLimit) throws IOException {
+        String objectName = fileInfo.getObjectName();
+        Long fileSize = fileInfo.getFileSize();
+        String contentType = fileInfo.getFileType() != null ? fileInfo.getFileType() : "application/octet-stream";
+        String etag = getETag(fileInfo);
+        
+        response.setHeader("Accept-Ranges", "bytes");
+        if (etag != null) {
+            response.setHeader("ETag", etag);
+        }
+        
+        // 文件大小未知时无法解析区间，返回完整内容
+        List<long[]> ranges = fileSize != null ? resolveRanges(rangeHeader, etag, fileSize) : new ArrayList<>();
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader("Content-Range", "bytes */" + fileSize);
+            return false;
+        }
+        
+        if (ranges.isEmpty()) {
+            // 单次GET，长度和ETag以响应头为准
+            try (MinioObjectStream objectStream = minioStorageService.openObject(objectName)) {
+                response.setContentType(contentType);
+                if (objectStream.getContentLength() >= 0) {
+                    response.setContentLengthLong(objectStream.getContentLength());
+                } else if (fileSize != null) {
+                    response.setContentLengthLong(fileSize);
+                }
+                if (etag == null && objectStream.getEtag() != null) {
+                    response.setHeader("ETag", objectStream.getEtag());
+                }
+                try (OutputStream outputStream = openOutputStream(response, throttled, speedLimit)) {
+                    BufferPool.transfer(objectStream, outputStream);
+                }
+            }
+            return true;
+        }
+        
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setContentType(contentType);
+            response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + fileSize);
+            response.setContentLengthLong(range[1] - range[0] + 1);
+            try (InputStream inputStream = minioStorageService.downloadFileRange(objectName, range[0], range[1] - range[0] + 1);
+                 OutputStream outputStream = openOutputStream(response, throttled, speedLimit)) {
+                BufferPool.transfer(inputStream, outputStream);
+            }
+            return range[0] == 0;
+        }
+        
+        // 多区间：先算出各分段头以确定总长度
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        byte[] closeDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        long contentLength = closeDelimiter.length;
+        for (long[] range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + fileSize + "\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range[1] - range[0] + 1;
+        }
+        
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        try (OutputStream outputStream = openOutputStream(response, throttled, speedLimit)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                outputStream.write(partHeaders.get(i));
+                try (InputStream inputStream = minioStorageService.downloadFileRange(objectName, range[0], range[1] - range[0] + 1)) {
+                    BufferPool.transfer(inputStream, outputStream);
+                }
+            }
+            outputStream.write(closeDelimiter);
+            outputStream.flush();
+        }
+        return ranges.get(0)[0] == 0;
+    }
+
+    /**
+     * 解析Range请求头
+     * 
+     * @return 合并后的区间列表（[起始, 结束]，均含），空列表表示返回完整内容，null表示区间均不可满足
+     */
+    private List<long[]> resolveRanges(String rangeHeader, String etag, long fileSize) {
+        List<long[]> ranges = new ArrayList<>();
+        if (rangeHeader == null || rangeHeader.trim().isEmpty()) {
+            return ranges;
+        }
+        
+        // If-Range与当前ETag不一致说明文件已变化，返回完整内容
+        String ifRange = getRequestHeader("If-Range");
+        if (ifRange != null && !ifRange.trim().equals(etag)) {
+            return ranges;
+        }
+        
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // 格式错误的Range头按规范忽略
+            logger.debug("忽略无效的Range请求头: {}", rangeHeader);
+            return ranges;
+        }
+        
+        for (HttpRange httpRange : httpRanges) {
+            long start = httpRange.getRangeStart(fileSize);
+            long end = httpRange.getRangeEnd(fileSize);
+            if (start < fileSize && start <= end) {
+                ranges.add(new long[] {start, end});
+            }
+        }
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        
+        // 合并重叠或相邻的区间
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged.size() > MAX_RANGES ? new ArrayList<>() : merged;
+    }
+
+    /**
+     * 生成文件ETag，优先使用内容哈希
+     */
+    private String getETag(FileInfo fileInfo) {
+        String hash = fileInfo.getContentHash() != null ? fileInfo.getContentHash() : fileInfo.getFileMd5();
+        return hash != null ? "\"" + hash + "\"" : null;
+    }
+
+    /**
+     * 获取响应输出流，下载时经带宽整形
+     */
+    private OutputStream openOutputStream(HttpServletResponse response, boolean throttled, Long speedLimit) 
+            throws IOException {
+        OutputStream outputStream = response.getOutputStream();
+        return throttled ? bandwidthShaper.shape(outputStream, getCurrentUserKey(), speedLimit) : outputStream;
+    }
+
+    /**
+     * 获取限速使用的用户标识，未登录时使用客户端IP
+     */
+    private String getCurrentUserKey() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() 
+                && !"anonymousUser".equals(authentication.getName())) {
+            return "user:" + authentication.getName();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return "ip:" + ((ServletRequestAttributes) attributes).getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+
+    /**
+     * 获取当前请求的请求头
+     */
+    private String getRequestHeader(String name) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest().getHeader(name);
+        }
+        return null;
     }
 
     /**
      * 设置下载响应头
      */
-    private void setDownloadHeaders(HttpServletResponse response, String fileName, Long fileSize) {
+    private void setDownloadHeaders(HttpServletResponse response, String fileName) {
         try {
             // 设置文件名编码，支持中文
             String encodedFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8.toString());
             response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + encodedFileName);
             
-            // 设置文件大小
-            if (fileSize != null) {
-                response.setContentLengthLong(fileSize);
-            }
-            
             // 设置缓存控制
             response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
             response.setHeader("Pragma", "no-cache");
@@ -294,20 +506,4 @@ public class FileDownloadServiceImpl implements FileDownloadService {
             logger.warn("设置下载响应头失败", e);
         }
     }
-
-    /**
-     * 添加文件到ZIP压缩包
-     */
-    private void addFileToZip(ZipOutputStream zipOut, FileInfo fileInfo, InputStream inputStream) throws IOException {
-        ZipEntry zipEntry = new ZipEntry(fileInfo.getFileName());
-        zipOut.putNextEntry(zipEntry);
-        
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-            zipOut.write(buffer, 0, bytesRead);
-        }
-        
-        zipOut.closeEntry();
-    }
 }
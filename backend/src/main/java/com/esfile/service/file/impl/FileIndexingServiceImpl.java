@@ -0,0 +1,695 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.constant.FileConstant;
+import com.esfile.entity.elasticsearch.FileDocument;
+import com.esfile.entity.mybatis.EsIndexDeadLetter;
+import com.esfile.entity.mybatis.EsSyncOutbox;
+import com.esfile.entity.mybatis.FileContentText;
+import com.esfile.entity.mybatis.FileInfo;
+import com.esfile.entity.mybatis.FileShare;
+import com.esfile.mapper.EsIndexDeadLetterMapper;
+import com.esfile.mapper.EsSyncOutboxMapper;
+import com.esfile.mapper.FileContentTextMapper;
+import com.esfile.mapper.FileInfoMapper;
+import com.esfile.mapper.FileShareMapper;
+import com.esfile.repository.redis.LeaseLockRepository;
+import com.esfile.repository.redis.ReindexStateRepository;
+import com.esfile.service.file.FileIndexingService;
+import com.esfile.service.file.SearchCacheService;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.xcontent.XContentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文件索引同步实现类
+ * 变更先写入发件箱表，中继线程从检查点之后按ID顺序分批读取，同一文件的多次变更合并为一次写入，
+ * 经BulkProcessor按条数和大小分批、限制并发、被ES拒绝（429）时指数退避重试；
+ * 一批全部完成（成功或写入死信）后才推进检查点，重启后从检查点继续，不需要全量重建；
+ * 越过的ID空洞记录下来继续检查，事务晚提交的记录重新入队
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class FileIndexingServiceImpl implements FileIndexingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileIndexingServiceImpl.class);
+
+    private static final String INDEX_NAME = "file_documents";
+
+    private static final String OP_INDEX = "INDEX";
+
+    private static final String OP_PARTIAL = "PARTIAL";
+
+    private static final String OP_DELETE = "DELETE";
+
+    private static final String CHECKPOINT_NAME = "file_documents";
+
+    // 计数字段，只更新这些字段的批次不改变搜索命中和可见范围，不使搜索缓存失效
+    private static final Set<String> COUNTER_FIELDS = new HashSet<>(Arrays.asList("downloadCount", "previewCount"));
+
+    // 中继租约，集群中只有一个节点运行中继
+    private static final String RELAY_LEASE = "es-sync-relay";
+
+    private static final Duration RELAY_LEASE_TTL = Duration.ofSeconds(30);
+
+    // 死信失败原因的最大长度
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // 批量写入发件箱的每批条数
+    private static final int OUTBOX_INSERT_BATCH = 1000;
+
+    @Autowired
+    private RestHighLevelClient elasticsearchClient;
+
+    @Autowired
+    private ElasticsearchConverter elasticsearchConverter;
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private EsSyncOutboxMapper outboxMapper;
+
+    @Autowired
+    private EsIndexDeadLetterMapper deadLetterMapper;
+
+    @Autowired
+    private FileContentTextMapper fileContentTextMapper;
+
+    @Autowired
+    private FileShareMapper fileShareMapper;
+
+    @Autowired
+    private LeaseLockRepository leaseLockRepository;
+
+    @Autowired
+    private ReindexStateRepository reindexStateRepository;
+
+    @Autowired
+    private SearchCacheService searchCacheService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${file.index.relay-batch-size:2000}")
+    private int relayBatchSize;
+
+    // 发件箱为空时的轮询间隔，也是同一文件变更的合并窗口
+    @Value("${file.index.relay-interval:500}")
+    private long relayIntervalMillis;
+
+    // 发件箱ID出现空洞时等待未提交事务的时间，超时后先越过空洞
+    @Value("${file.index.gap-timeout:10000}")
+    private long gapTimeoutMillis;
+
+    // 越过的空洞继续检查的时长，超过后视为已回滚
+    @Value("${file.index.gap-horizon:3600000}")
+    private long gapHorizonMillis;
+
+    @Value("${file.index.bulk-actions:500}")
+    private int bulkActions;
+
+    @Value("${file.index.bulk-size-mb:5}")
+    private int bulkSizeMb;
+
+    @Value("${file.index.flush-interval:1000}")
+    private long flushIntervalMillis;
+
+    @Value("${file.index.concurrent-requests:2}")
+    private int concurrentRequests;
+
+    @Value("${file.index.max-retries:10}")
+    private int maxRetries;
+
+    // 从死信重新入队的文件 -> 已重试次数
+    private final Map<Long, Integer> retryAttempts = new ConcurrentHashMap<>();
+
+    private final AtomicLong indexedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    // 已提交但未返回的批量请求数
+    private final Object inFlightMonitor = new Object();
+
+    private int inFlightBulks;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    private BulkProcessor bulkProcessor;
+
+    private Thread relay;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        bulkProcessor = BulkProcessor.builder(
+                (request, listener) -> elasticsearchClient.bulkAsync(request, RequestOptions.DEFAULT, listener),
+                new BulkListener())
+            .setBulkActions(bulkActions)
+            .setBulkSize(new ByteSizeValue(bulkSizeMb, ByteSizeUnit.MB))
+            .setFlushInterval(TimeValue.timeValueMillis(flushIntervalMillis))
+            .setConcurrentRequests(concurrentRequests)
+            .setBackoffPolicy(BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(100), 8))
+            .build();
+
+        running = true;
+        relay = new Thread(this::relayLoop, "es-sync-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        relay.interrupt();
+        try {
+            relay.join(TimeUnit.SECONDS.toMillis(5));
+            bulkProcessor.awaitClose(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        leaseLockRepository.release(RELAY_LEASE, nodeId);
+    }
+
+    @Override
+    public void enqueueIndex(Long fileId) {
+        if (fileId != null) {
+            outboxMapper.insert(new EsSyncOutbox(fileId, OP_INDEX, null));
+        }
+    }
+
+    @Override
+    public void enqueueIndex(Collection<Long> fileIds) {
+        List<EsSyncOutbox> outboxes = new ArrayList<>();
+        for (Long fileId : fileIds) {
+            outboxes.add(new EsSyncOutbox(fileId, OP_INDEX, null));
+            if (outboxes.size() == OUTBOX_INSERT_BATCH) {
+                outboxMapper.insertBatch(outboxes);
+                outboxes.clear();
+            }
+        }
+        if (!outboxes.isEmpty()) {
+            outboxMapper.insertBatch(outboxes);
+        }
+    }
+
+    @Override
+    public void enqueuePartialUpdate(Long fileId, String... fields) {
+        if (fileId != null) {
+            outboxMapper.insert(new EsSyncOutbox(fileId, OP_PARTIAL, String.join(",", fields)));
+        }
+    }
+
+    @Override
+    public void enqueueDelete(Long fileId) {
+        if (fileId != null) {
+            outboxMapper.insert(new EsSyncOutbox(fileId, OP_DELETE, null));
+        }
+    }
+
+    @Override
+    public FileDocument toDocument(FileInfo fileInfo) {
+        FileDocument document = new FileDocument();
+        document.setId(String.valueOf(fileInfo.getId()));
+        document.setFileId(fileInfo.getId());
+        document.setFileName(fileInfo.getFileName());
+        document.setOriginalFileName(fileInfo.getOriginalFileName());
+        document.setFilePath(fileInfo.getFilePath());
+        document.setFileUrl(fileInfo.getFileUrl());
+        document.setFileSize(fileInfo.getFileSize());
+        document.setFileType(fileInfo.getFileType());
+        document.setFileExtension(fileInfo.getFileExtension());
+        document.setFileMd5(fileInfo.getFileMd5());
+        document.setParentFolderId(fileInfo.getParentFolderId());
+        document.setUploadUserId(fileInfo.getUploadUserId());
+        document.setUploadUserName(fileInfo.getUploadUserName());
+        document.setStatus(fileInfo.getStatus());
+        document.setIsPublic(fileInfo.getIsPublic());
+        document.setDescription(fileInfo.getDescription());
+        document.setTags(fileInfo.getTags());
+        document.setDownloadCount(fileInfo.getDownloadCount());
+        document.setPreviewCount(fileInfo.getPreviewCount());
+        document.setBucketName(fileInfo.getBucketName());
+        document.setObjectName(fileInfo.getObjectName());
+        document.setCreateTime(toDate(fileInfo.getCreateTime()));
+        document.setUpdateTime(toDate(fileInfo.getUpdateTime()));
+
+        // 补全输入为文件名和标签，权重取下载和预览次数；补全结果不按用户过滤，只收录公开文件
+        if (Integer.valueOf(1).equals(fileInfo.getIsPublic())) {
+            List<String> inputs = new ArrayList<>();
+            if (fileInfo.getFileName() != null) {
+                inputs.add(fileInfo.getFileName());
+            }
+            inputs.addAll(document.getTagList());
+            Completion suggest = new Completion(inputs.toArray(new String[0]));
+            suggest.setWeight((fileInfo.getDownloadCount() != null ? fileInfo.getDownloadCount() : 0)
+                + (fileInfo.getPreviewCount() != null ? fileInfo.getPreviewCount() : 0));
+            document.setSuggest(suggest);
+        }
+        return document;
+    }
+
+    @Override
+    public List<FileDocument> toDocuments(List<FileInfo> fileInfos) {
+        Set<String> contentKeys = new HashSet<>();
+        for (FileInfo fileInfo : fileInfos) {
+            if (fileInfo.getContentKey() != null) {
+                contentKeys.add(fileInfo.getContentKey());
+            }
+        }
+        Map<String, String> contents = new HashMap<>();
+        if (!contentKeys.isEmpty()) {
+            for (FileContentText contentText : fileContentTextMapper.selectByKeys(contentKeys)) {
+                if (contentText.getContent() != null) {
+                    contents.put(contentText.getContentKey(), contentText.getContent());
+                }
+            }
+        }
+
+        // 分享给用户和角色的授权项，链接分享不影响搜索可见范围
+        Map<Long, List<String>> shareGrants = new HashMap<>();
+        if (!fileInfos.isEmpty()) {
+            List<Long> fileIds = new ArrayList<>(fileInfos.size());
+            for (FileInfo fileInfo : fileInfos) {
+                fileIds.add(fileInfo.getId());
+            }
+            for (FileShare fileShare : fileShareMapper.selectActiveByFileIds(fileIds)) {
+                String grant;
+                if (FileConstant.SHARE_TYPE_USER.equals(fileShare.getShareType())) {
+                    grant = FileConstant.GRANT_USER_PREFIX + fileShare.getTargetId();
+                } else if (FileConstant.SHARE_TYPE_ROLE.equals(fileShare.getShareType())) {
+                    grant = FileConstant.GRANT_ROLE_PREFIX + fileShare.getTargetId();
+                } else {
+                    continue;
+                }
+                shareGrants.computeIfAbsent(fileShare.getFileId(), k -> new ArrayList<>()).add(grant);
+            }
+        }
+
+        List<FileDocument> documents = new ArrayList<>(fileInfos.size());
+        for (FileInfo fileInfo : fileInfos) {
+            FileDocument document = toDocument(fileInfo);
+            document.setContent(contents.get(fileInfo.getContentKey()));
+            document.setShareGrants(shareGrants.getOrDefault(fileInfo.getId(), new ArrayList<>()));
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Long checkpoint = outboxMapper.selectCheckpoint(CHECKPOINT_NAME);
+        Long maxId = outboxMapper.selectMaxId();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("checkpoint", checkpoint != null ? checkpoint : 0L);
+        stats.put("outboxMaxId", maxId != null ? maxId : 0L);
+        stats.put("backlog", maxId != null ? Math.max(0, maxId - (checkpoint != null ? checkpoint : 0L)) : 0L);
+        stats.put("indexedCount", indexedCount.get());
+        stats.put("failedCount", failedCount.get());
+        stats.put("deadLetterCount", deadLetterMapper.count());
+        return stats;
+    }
+
+    /**
+     * 死信重新写入发件箱，超过最大重试次数的保留在表中待人工处理
+     */
+    @Scheduled(fixedDelayString = "${file.index.retry-interval:300000}")
+    public void retryDeadLetters() {
+        try {
+            List<EsIndexDeadLetter> deadLetters = deadLetterMapper.selectRetryable(maxRetries, bulkActions);
+            for (EsIndexDeadLetter deadLetter : deadLetters) {
+                deadLetterMapper.deleteByFileId(deadLetter.getFileId());
+                retryAttempts.put(deadLetter.getFileId(), deadLetter.getRetryCount() + 1);
+                outboxMapper.insert(new EsSyncOutbox(deadLetter.getFileId(), deadLetter.getOpType(), null));
+            }
+            if (!deadLetters.isEmpty()) {
+                logger.info("死信重新入队: {}", deadLetters.size());
+            }
+        } catch (Exception e) {
+            logger.error("死信重试失败", e);
+        }
+    }
+
+    /**
+     * 清理检查点之前的发件箱记录，仍在检查的空洞之后的记录保留；
+     * 索引重建未完成时保留重建标记之后的记录，切换别名前要据此重放
+     */
+    @Scheduled(fixedDelayString = "${file.index.outbox-purge-interval:3600000}")
+    public void purgeOutbox() {
+        try {
+            Long checkpoint = outboxMapper.selectCheckpoint(CHECKPOINT_NAME);
+            if (checkpoint == null) {
+                return;
+            }
+            Long minGapId = outboxMapper.selectMinGapId();
+            if (minGapId != null) {
+                checkpoint = Math.min(checkpoint, minGapId - 1);
+            }
+            Object outboxMark = reindexStateRepository.getState().get("outboxMark");
+            if (outboxMark instanceof Number) {
+                checkpoint = Math.min(checkpoint, ((Number) outboxMark).longValue());
+            }
+            int purged = 0;
+            int deleted;
+            while ((deleted = outboxMapper.deleteUpTo(checkpoint, 10000)) > 0) {
+                purged += deleted;
+            }
+            if (purged > 0) {
+                logger.info("清理已同步的发件箱记录: {}", purged);
+            }
+        } catch (Exception e) {
+            logger.error("清理发件箱失败", e);
+        }
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                int relayed = 0;
+                if (leaseLockRepository.acquire(RELAY_LEASE, nodeId, RELAY_LEASE_TTL)) {
+                    relayed = relayBatch();
+                }
+                if (relayed < relayBatchSize) {
+                    // 等待一个窗口，期间同一文件的变更在下一批中合并
+                    TimeUnit.MILLISECONDS.sleep(relayIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("索引同步中继失败", e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(relayIntervalMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 同步检查点之后的一批变更
+     *
+     * @return 处理的发件箱记录数
+     */
+    private int relayBatch() throws InterruptedException {
+        requeueLateCommitted();
+
+        Long checkpoint = outboxMapper.selectCheckpoint(CHECKPOINT_NAME);
+        long lastId = checkpoint != null ? checkpoint : 0L;
+        List<Long> gaps = new ArrayList<>();
+        List<EsSyncOutbox> outboxes = takeCommitted(outboxMapper.selectAfterId(lastId, relayBatchSize), lastId, gaps);
+        if (outboxes.isEmpty()) {
+            return 0;
+        }
+
+        // 先记录越过的空洞再推进检查点
+        for (int i = 0; i < gaps.size(); i += OUTBOX_INSERT_BATCH) {
+            outboxMapper.insertGaps(gaps.subList(i, Math.min(i + OUTBOX_INSERT_BATCH, gaps.size())));
+        }
+
+        Map<Long, PendingChange> changes = coalesce(outboxes);
+        submit(changes);
+
+        // 等本批请求全部返回后再推进检查点，失败的条目已写入死信；退避重试可能超过租约时长，等待期间续期
+        bulkProcessor.flush();
+        synchronized (inFlightMonitor) {
+            while (inFlightBulks > 0) {
+                inFlightMonitor.wait(1000);
+                if (!renewLease()) {
+                    return 0;
+                }
+            }
+        }
+        if (!renewLease()) {
+            return 0;
+        }
+        outboxMapper.saveCheckpoint(CHECKPOINT_NAME, outboxes.get(outboxes.size() - 1).getId());
+
+        // 本批变更刷新可见后使搜索缓存失效；下载、预览计数的变化由缓存过期兜底，否则缓存几乎每批都失效
+        if (changes.values().stream().anyMatch(change -> !OP_PARTIAL.equals(change.opType) 
+                || !COUNTER_FIELDS.containsAll(change.fields))) {
+            try {
+                elasticsearchClient.indices().refresh(new RefreshRequest(INDEX_NAME), RequestOptions.DEFAULT);
+            } catch (Exception e) {
+                logger.warn("刷新索引失败: {}", INDEX_NAME, e);
+            }
+            searchCacheService.invalidate();
+        }
+        return outboxes.size();
+    }
+
+    /**
+     * 续期中继租约，租约已被其他节点取得时本批不推进检查点，由新的持有者重新同步
+     */
+    private boolean renewLease() {
+        if (leaseLockRepository.acquire(RELAY_LEASE, nodeId, RELAY_LEASE_TTL)) {
+            return true;
+        }
+        logger.warn("索引同步中继租约已失效，放弃推进检查点: {}", nodeId);
+        return false;
+    }
+
+    /**
+     * 自增ID按分配顺序而不是提交顺序可见，遇到空洞时停在空洞前，
+     * 等待仍未提交的事务；空洞之后的记录超过等待时间则越过空洞，越过的ID加入gaps继续检查
+     */
+    private List<EsSyncOutbox> takeCommitted(List<EsSyncOutbox> outboxes, long lastId, List<Long> gaps) {
+        long gapDeadline = System.currentTimeMillis() - gapTimeoutMillis;
+        long expectedId = lastId + 1;
+        List<EsSyncOutbox> committed = new ArrayList<>(outboxes.size());
+        for (EsSyncOutbox outbox : outboxes) {
+            if (outbox.getId() != expectedId && lastId > 0) {
+                if (toMillis(outbox.getCreateTime()) > gapDeadline) {
+                    break;
+                }
+                for (long id = expectedId; id < outbox.getId(); id++) {
+                    gaps.add(id);
+                }
+            }
+            committed.add(outbox);
+            expectedId = outbox.getId() + 1;
+            lastId = outbox.getId();
+        }
+        return committed;
+    }
+
+    /**
+     * 越过的空洞中已提交的记录复制为新记录，由后续批次按顺序同步（搜索建议也随检查点读取到）；
+     * 超过检查时限的空洞视为已回滚
+     */
+    private void requeueLateCommitted() {
+        outboxMapper.deleteGapsBefore(LocalDateTime.now().minus(Duration.ofMillis(gapHorizonMillis)));
+        List<EsSyncOutbox> lateOutboxes = outboxMapper.selectLateCommitted(OUTBOX_INSERT_BATCH);
+        if (lateOutboxes.isEmpty()) {
+            return;
+        }
+
+        List<Long> lateIds = new ArrayList<>(lateOutboxes.size());
+        List<EsSyncOutbox> copies = new ArrayList<>(lateOutboxes.size());
+        for (EsSyncOutbox outbox : lateOutboxes) {
+            lateIds.add(outbox.getId());
+            copies.add(new EsSyncOutbox(outbox.getFileId(), outbox.getOpType(), outbox.getFields()));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxMapper.insertBatch(copies);
+            outboxMapper.deleteByIds(lateIds);
+            outboxMapper.deleteGaps(lateIds);
+        });
+        logger.info("晚提交的发件箱记录重新入队: {}", lateIds.size());
+    }
+
+    /**
+     * 合并同一文件的多次变更：全量索引覆盖部分更新，删除后又索引的以索引为准（最终以数据库为准）
+     */
+    private Map<Long, PendingChange> coalesce(List<EsSyncOutbox> outboxes) {
+        Map<Long, PendingChange> changes = new LinkedHashMap<>();
+        for (EsSyncOutbox outbox : outboxes) {
+            PendingChange change = changes.computeIfAbsent(outbox.getFileId(), id -> new PendingChange());
+            if (OP_DELETE.equals(outbox.getOpType())) {
+                change.opType = OP_DELETE;
+                change.fields.clear();
+            } else if (OP_INDEX.equals(outbox.getOpType()) || change.opType == null) {
+                change.opType = outbox.getOpType();
+            }
+            if (OP_PARTIAL.equals(change.opType) && outbox.getFields() != null) {
+                change.fields.addAll(Arrays.asList(outbox.getFields().split(",")));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 一次查询取出整批文件，转换为批量请求；数据库中已不存在的文件改为删除
+     */
+    private void submit(Map<Long, PendingChange> changes) {
+        List<Long> fileIds = new ArrayList<>();
+        changes.forEach((fileId, change) -> {
+            if (!OP_DELETE.equals(change.opType)) {
+                fileIds.add(fileId);
+            }
+        });
+
+        Map<Long, FileDocument> documents = new HashMap<>();
+        if (!fileIds.isEmpty()) {
+            for (FileDocument document : toDocuments(fileInfoMapper.selectByIds(fileIds))) {
+                documents.put(document.getFileId(), document);
+            }
+        }
+
+        for (Map.Entry<Long, PendingChange> entry : changes.entrySet()) {
+            String id = String.valueOf(entry.getKey());
+            PendingChange change = entry.getValue();
+            FileDocument document = documents.get(entry.getKey());
+            if (document == null) {
+                bulkProcessor.add(new DeleteRequest(INDEX_NAME, id));
+                continue;
+            }
+
+            Document source = elasticsearchConverter.mapObject(document);
+            if (OP_PARTIAL.equals(change.opType)) {
+                // 只更新变化的字段，文档不存在时写入完整文档
+                Map<String, Object> partial = new HashMap<>();
+                for (String field : change.fields) {
+                    partial.put(field, source.get(field));
+                }
+                bulkProcessor.add(new UpdateRequest(INDEX_NAME, id).doc(partial).upsert(source.toJson(), XContentType.JSON));
+            } else {
+                bulkProcessor.add(new IndexRequest(INDEX_NAME).id(id).source(source.toJson(), XContentType.JSON));
+            }
+        }
+    }
+
+    private void deadLetter(Long fileId, String opType, String errorMessage) {
+        failedCount.incrementAndGet();
+        try {
+            Integer attempts = retryAttempts.remove(fileId);
+            EsIndexDeadLetter deadLetter = new EsIndexDeadLetter();
+            deadLetter.setFileId(fileId);
+            deadLetter.setOpType(opType);
+            deadLetter.setErrorMessage(errorMessage != null && errorMessage.length() > MAX_ERROR_LENGTH
+                ? errorMessage.substring(0, MAX_ERROR_LENGTH) : errorMessage);
+            deadLetter.setRetryCount(attempts != null ? attempts : 0);
+            deadLetterMapper.upsert(deadLetter);
+        } catch (Exception e) {
+            logger.error("写入索引死信失败: fileId={}, op={}", fileId, opType, e);
+        }
+    }
+
+    private static Date toDate(LocalDateTime time) {
+        return time != null ? Date.from(time.atZone(ZoneId.systemDefault()).toInstant()) : null;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+
+    /**
+     * 合并后的待同步变更
+     */
+    private static class PendingChange {
+
+        private String opType;
+
+        private final Set<String> fields = new HashSet<>();
+    }
+
+    /**
+     * 批量请求结果处理，429重试由BulkProcessor的退避策略完成，这里只处理最终结果
+     */
+    private class BulkListener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            synchronized (inFlightMonitor) {
+                inFlightBulks++;
+            }
+            logger.debug("提交批量索引: executionId={}, actions={}", executionId, request.numberOfActions());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            try {
+                for (BulkItemResponse item : response) {
+                    Long fileId = Long.valueOf(item.getId());
+                    if (item.isFailed()) {
+                        deadLetter(fileId, toOpType(item.getOpType()), item.getFailureMessage());
+                    } else {
+                        indexedCount.incrementAndGet();
+                        if (!retryAttempts.isEmpty()) {
+                            retryAttempts.remove(fileId);
+                        }
+                    }
+                }
+                if (response.hasFailures()) {
+                    logger.warn("批量索引部分失败: executionId={}, {}", executionId, response.buildFailureMessage());
+                }
+            } finally {
+                completeBulk();
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            try {
+                logger.error("批量索引失败: executionId={}, actions={}", executionId, request.numberOfActions(), failure);
+                for (DocWriteRequest<?> item : request.requests()) {
+                    deadLetter(Long.valueOf(item.id()), toOpType(item.opType()), failure.getMessage());
+                }
+            } finally {
+                completeBulk();
+            }
+        }
+
+        private void completeBulk() {
+            synchronized (inFlightMonitor) {
+                inFlightBulks--;
+                inFlightMonitor.notifyAll();
+            }
+        }
+
+        /**
+         * 部分更新失败后按全量索引重试
+         */
+        private String toOpType(DocWriteRequest.OpType opType) {
+            return opType == DocWriteRequest.OpType.DELETE ? OP_DELETE : OP_INDEX;
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.esfile.service.file.impl;
 
 import com.esfile.entity.mybatis.FileInfo;
 import com.esfile.mapper.FileInfoMapper;
+import com.esfile.service.file.FileBlobService;
+import com.esfile.service.file.FileIndexingService;
 import com.esfile.service.file.FileOperationService;
-import com.esfile.service.file.MinioStorageService;
+import com.esfile.service.file.TagService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -28,11 +31,30 @@ public class FileOperationServiceImpl implements FileOperationService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileOperationServiceImpl.class);
 
+    private static final String FOLDER_TYPE = "folder";
+
+    // 根目录的父级文件夹ID和子项路径
+    private static final long ROOT_FOLDER_ID = 0L;
+
+    private static final String ROOT_PATH = "/";
+
+    // 与file_info.folder_path的长度一致
+    private static final int MAX_FOLDER_PATH_LENGTH = 1000;
+
+    // 一段ID在路径中的最大长度（19位数字加分隔符）
+    private static final int MAX_ID_SEGMENT_LENGTH = 20;
+
     @Autowired
     private FileInfoMapper fileInfoMapper;
 
     @Autowired
-    private MinioStorageService minioStorageService;
+    private FileBlobService fileBlobService;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private TagService tagService;
 
     @Override
     @Transactional
@@ -48,13 +70,21 @@ public class FileOperationServiceImpl implements FileOperationService {
                 throw new RuntimeException("没有权限删除此文件");
             }
             
-            // 从MinIO删除文件
-            minioStorageService.deleteFile(fileInfo.getObjectName());
-            
             // 从数据库删除记录
-            return fileInfoMapper.deleteById(id) > 0;
+            if (fileInfoMapper.deleteById(id) <= 0) {
+                return false;
+            }
+            
+            // 解除标签关联，同时减少标签的文件数
+            tagService.unbindTags(id);
+            
+            // 释放内容引用，没有文件再引用时才删除MinIO对象
+            fileBlobService.release(fileInfo.getContentHash(), fileInfo.getObjectName());
+            fileIndexingService.enqueueDelete(id);
+            return true;
         } catch (Exception e) {
             logger.error("删除文件失败", e);
+            markRollbackOnly();
             return false;
         }
     }
@@ -72,6 +102,7 @@ public class FileOperationServiceImpl implements FileOperationService {
             return deletedCount == ids.size();
         } catch (Exception e) {
             logger.error("批量删除文件失败", e);
+            markRollbackOnly();
             return false;
         }
     }
@@ -80,7 +111,7 @@ public class FileOperationServiceImpl implements FileOperationService {
     @Transactional
     public boolean moveFile(Long id, Long targetFolderId, Long userId) {
         try {
-            FileInfo fileInfo = fileInfoMapper.selectById(id);
+            FileInfo fileInfo = fileInfoMapper.selectByIdForUpdate(id);
             if (fileInfo == null) {
                 return false;
             }
@@ -90,11 +121,34 @@ public class FileOperationServiceImpl implements FileOperationService {
                 throw new RuntimeException("没有权限移动此文件");
             }
             
-            // 更新父文件夹ID
-            fileInfo.setParentFolderId(targetFolderId);
-            return fileInfoMapper.updateById(fileInfo) > 0;
+            Long parentId = targetFolderId != null ? targetFolderId : ROOT_FOLDER_ID;
+            String oldPath = fileInfo.getFolderPath();
+            String newPath = resolveFolderPath(parentId);
+            
+            if (FOLDER_TYPE.equals(fileInfo.getFileType())) {
+                // 目标路径以该文件夹的子项路径开头，说明目标是它自身或它的后代
+                String childPath = oldPath + id + "/";
+                if (newPath.startsWith(childPath)) {
+                    throw new RuntimeException("不能将文件夹移动到自身或其子文件夹中");
+                }
+                
+                // 移动后最深的后代路径仍需为其子项预留一段ID，与创建文件夹的限制一致
+                Integer maxLength = fileInfoMapper.selectMaxFolderPathLength(childPath);
+                int deepestLength = Math.max(oldPath.length(), maxLength != null ? maxLength : 0);
+                if (newPath.length() + (deepestLength - oldPath.length()) + MAX_ID_SEGMENT_LENGTH > MAX_FOLDER_PATH_LENGTH) {
+                    throw new RuntimeException("文件夹层级过深");
+                }
+            }
+            
+            // 更新父文件夹ID，文件夹的后代路径在同一条语句中更新
+            if (fileInfoMapper.moveToFolder(id, parentId, oldPath, newPath) <= 0) {
+                return false;
+            }
+            fileIndexingService.enqueueIndex(id);
+            return true;
         } catch (Exception e) {
             logger.error("移动文件失败", e);
+            markRollbackOnly();
             return false;
         }
     }
@@ -113,24 +167,35 @@ public class FileOperationServiceImpl implements FileOperationService {
                 throw new RuntimeException("没有权限复制此文件");
             }
 
-            // 创建副本
+            // 创建副本，与原文件共享存储对象
             FileInfo copyFile = new FileInfo();
             copyFile.setFileName(originalFile.getFileName() + "_copy");
+            copyFile.setOriginalFileName(originalFile.getOriginalFileName());
             copyFile.setFileType(originalFile.getFileType());
+            copyFile.setFileExtension(originalFile.getFileExtension());
             copyFile.setFileSize(originalFile.getFileSize());
             copyFile.setFileMd5(originalFile.getFileMd5());
+            copyFile.setContentHash(originalFile.getContentHash());
+            copyFile.setBucketName(originalFile.getBucketName());
             copyFile.setObjectName(originalFile.getObjectName());
+            copyFile.setFileUrl(originalFile.getFileUrl());
+            copyFile.setStatus(originalFile.getStatus());
             copyFile.setUploadUserId(userId);
-            copyFile.setParentFolderId(targetFolderId);
+            copyFile.setParentFolderId(targetFolderId != null ? targetFolderId : ROOT_FOLDER_ID);
+            copyFile.setFolderPath(resolveFolderPath(targetFolderId));
             copyFile.setCreateTime(LocalDateTime.now());
             copyFile.setUpdateTime(LocalDateTime.now());
 
             if (fileInfoMapper.insert(copyFile) > 0) {
+                // 副本增加一次内容引用
+                fileBlobService.acquireExisting(copyFile.getContentHash());
+                fileIndexingService.enqueueIndex(copyFile.getId());
                 return copyFile;
             }
             return null;
         } catch (Exception e) {
             logger.error("复制文件失败", e);
+            markRollbackOnly();
             return null;
         }
     }
@@ -139,13 +204,17 @@ public class FileOperationServiceImpl implements FileOperationService {
     @Transactional
     public FileInfo updateFile(FileInfo fileInfo) {
         try {
+            tagService.parseTags(fileInfo.getTags());
             fileInfo.setUpdateTime(LocalDateTime.now());
             if (fileInfoMapper.updateById(fileInfo) > 0) {
+                tagService.syncTags(fileInfo);
+                fileIndexingService.enqueueIndex(fileInfo.getId());
                 return fileInfo;
             }
             return null;
         } catch (Exception e) {
             logger.error("更新文件失败", e);
+            markRollbackOnly();
             return null;
         }
     }
@@ -154,17 +223,26 @@ public class FileOperationServiceImpl implements FileOperationService {
     @Transactional
     public FileInfo createFolder(String folderName, Long parentId, Long userId) {
         try {
-            // 检查文件夹名称是否已存在
-            if (isFolderNameExists(folderName, parentId)) {
+            Long parent = parentId != null ? parentId : ROOT_FOLDER_ID;
+            String folderPath = resolveFolderPath(parent);
+            
+            // 为新文件夹的子项路径预留一段ID
+            if (folderPath.length() + MAX_ID_SEGMENT_LENGTH > MAX_FOLDER_PATH_LENGTH) {
+                throw new RuntimeException("文件夹层级过深");
+            }
+            
+            // 检查文件夹名称是否已存在，并发创建的同名文件夹由唯一索引拦截
+            if (isFolderNameExists(folderName, parent, userId)) {
                 throw new RuntimeException("文件夹名称已存在");
             }
 
             FileInfo folder = new FileInfo();
             folder.setFileName(folderName);
-            folder.setFileType("folder");
+            folder.setFileType(FOLDER_TYPE);
             folder.setFileSize(0L);
             folder.setUploadUserId(userId);
-            folder.setParentFolderId(parentId);
+            folder.setParentFolderId(parent);
+            folder.setFolderPath(folderPath);
             folder.setCreateTime(LocalDateTime.now());
             folder.setUpdateTime(LocalDateTime.now());
 
@@ -174,6 +252,7 @@ public class FileOperationServiceImpl implements FileOperationService {
             return null;
         } catch (Exception e) {
             logger.error("创建文件夹失败", e);
+            markRollbackOnly();
             return null;
         }
     }
@@ -182,8 +261,9 @@ public class FileOperationServiceImpl implements FileOperationService {
     @Transactional
     public boolean deleteFolder(Long folderId, Long userId) {
         try {
-            FileInfo folder = fileInfoMapper.selectById(folderId);
-            if (folder == null) {
+            // 写入子项时对文件夹加共享锁，加排他锁后再检查不会漏掉并发写入的子项
+            FileInfo folder = fileInfoMapper.selectByIdForUpdate(folderId);
+            if (folder == null || !FOLDER_TYPE.equals(folder.getFileType())) {
                 return false;
             }
 
@@ -193,14 +273,14 @@ public class FileOperationServiceImpl implements FileOperationService {
             }
 
             // 检查文件夹是否为空
-            List<FileInfo> children = fileInfoMapper.selectByParentId(folderId);
-            if (!children.isEmpty()) {
+            if (fileInfoMapper.existsByParentId(folderId)) {
                 throw new RuntimeException("文件夹不为空，请先删除其中的文件");
             }
 
             return fileInfoMapper.deleteById(folderId) > 0;
         } catch (Exception e) {
             logger.error("删除文件夹失败", e);
+            markRollbackOnly();
             return false;
         }
     }
@@ -208,16 +288,35 @@ public class FileOperationServiceImpl implements FileOperationService {
     @Override
     public List<Map<String, Object>> getFolderStructure(Long parentId) {
         try {
-            List<FileInfo> folders = fileInfoMapper.selectFoldersByParentId(parentId);
-            List<Map<String, Object>> result = new ArrayList<>();
+            Long rootId = parentId != null ? parentId : ROOT_FOLDER_ID;
+            String pathPrefix = ROOT_PATH;
+            if (rootId != ROOT_FOLDER_ID) {
+                FileInfo root = fileInfoMapper.selectById(rootId);
+                if (root == null || !FOLDER_TYPE.equals(root.getFileType())) {
+                    return new ArrayList<>();
+                }
+                pathPrefix = root.getFolderPath() + rootId + "/";
+            }
+
+            // 一次查询取出整棵子树（已按名称排序），再按父级ID逐个挂到父节点下
+            List<FileInfo> folders = fileInfoMapper.selectFoldersByPathPrefix(pathPrefix);
+            Map<Long, List<Map<String, Object>>> childrenById = new HashMap<>(folders.size() * 2);
+            for (FileInfo folder : folders) {
+                childrenById.put(folder.getId(), new ArrayList<>());
+            }
 
+            List<Map<String, Object>> result = new ArrayList<>();
             for (FileInfo folder : folders) {
-                Map<String, Object> folderInfo = new HashMap<>();
-                folderInfo.put("id", folder.getId());
-                folderInfo.put("name", folder.getFileName());
-                folderInfo.put("parentId", folder.getParentFolderId());
-                folderInfo.put("children", getFolderStructure(folder.getId()));
-                result.add(folderInfo);
+                Map<String, Object> folderInfo = toFolderNode(folder);
+                folderInfo.put("children", childrenById.get(folder.getId()));
+                if (rootId.equals(folder.getParentFolderId())) {
+                    result.add(folderInfo);
+                } else {
+                    List<Map<String, Object>> siblings = childrenById.get(folder.getParentFolderId());
+                    if (siblings != null) {
+                        siblings.add(folderInfo);
+                    }
+                }
             }
 
             return result;
@@ -227,6 +326,55 @@ public class FileOperationServiceImpl implements FileOperationService {
         }
     }
 
+    @Override
+    public List<Map<String, Object>> getFolderBreadcrumb(Long folderId) {
+        try {
+            List<Map<String, Object>> result = new ArrayList<>();
+            FileInfo folder = fileInfoMapper.selectById(folderId);
+            if (folder == null || !FOLDER_TYPE.equals(folder.getFileType())) {
+                return result;
+            }
+
+            // 物化路径就是祖先ID序列，一次批量查询取出全部祖先
+            List<Long> ancestorIds = new ArrayList<>();
+            for (String segment : folder.getFolderPath().split("/")) {
+                if (!segment.isEmpty()) {
+                    ancestorIds.add(Long.valueOf(segment));
+                }
+            }
+            Map<Long, FileInfo> ancestors = new HashMap<>();
+            if (!ancestorIds.isEmpty()) {
+                for (FileInfo ancestor : fileInfoMapper.selectByIds(ancestorIds)) {
+                    ancestors.put(ancestor.getId(), ancestor);
+                }
+            }
+
+            for (Long ancestorId : ancestorIds) {
+                FileInfo ancestor = ancestors.get(ancestorId);
+                if (ancestor != null) {
+                    result.add(toFolderNode(ancestor));
+                }
+            }
+            result.add(toFolderNode(folder));
+            return result;
+        } catch (Exception e) {
+            logger.error("获取文件夹路径失败", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public String resolveFolderPath(Long parentId) {
+        if (parentId == null || parentId == ROOT_FOLDER_ID) {
+            return ROOT_PATH;
+        }
+        FileInfo parent = fileInfoMapper.selectFolderForShare(parentId);
+        if (parent == null) {
+            throw new RuntimeException("目标文件夹不存在: " + parentId);
+        }
+        return parent.getFolderPath() + parentId + "/";
+    }
+
     @Override
     public boolean cleanupTempFiles() {
         try {
@@ -266,10 +414,22 @@ public class FileOperationServiceImpl implements FileOperationService {
     /**
      * 检查文件夹名称是否已存在
      */
-    private boolean isFolderNameExists(String folderName, Long parentId) {
-        List<FileInfo> files = fileInfoMapper.selectByParentId(parentId);
-        return files.stream().anyMatch(file -> 
-            "folder".equals(file.getFileType()) && folderName.equals(file.getFileName())
-        );
+    private boolean isFolderNameExists(String folderName, Long parentId, Long userId) {
+        return fileInfoMapper.selectFolderIdByName(parentId, userId, folderName) != null;
+    }
+
+    /**
+     * 异常被转换为返回值时回滚当前事务，避免变更提交而发件箱记录缺失
+     */
+    private void markRollbackOnly() {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+    }
+
+    private static Map<String, Object> toFolderNode(FileInfo folder) {
+        Map<String, Object> folderInfo = new HashMap<>();
+        folderInfo.put("id", folder.getId());
+        folderInfo.put("name", folder.getFileName());
+        folderInfo.put("parentId", folder.getParentFolderId());
+        return folderInfo;
     }
 }
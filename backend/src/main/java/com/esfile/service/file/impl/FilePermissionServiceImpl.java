@@ -1,12 +1,20 @@
 package com.esfile.service.file.impl;
 
+import com.esfile.common.constant.FileConstant;
 import com.esfile.entity.mybatis.FileInfo;
+import com.esfile.entity.mybatis.FileShare;
 import com.esfile.mapper.FileInfoMapper;
+import com.esfile.mapper.FileShareMapper;
+import com.esfile.service.file.FileIndexingService;
 import com.esfile.service.file.FilePermissionService;
+import com.esfile.service.file.TagService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -23,17 +31,29 @@ public class FilePermissionServiceImpl implements FilePermissionService {
 
     private static final Logger logger = LoggerFactory.getLogger(FilePermissionServiceImpl.class);
 
+    // 每次清理的过期分享条数
+    private static final int EXPIRE_BATCH_SIZE = 500;
+
+    // 按单个标签查询文件时最多返回的条数
+    private static final int MAX_TAG_FILES = 200;
+
     @Autowired
     private FileInfoMapper fileInfoMapper;
 
+    @Autowired
+    private FileShareMapper fileShareMapper;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     // 文件权限缓存
     private final Map<Long, Map<String, Object>> permissionCache = new HashMap<>();
-    
-    // 文件分享缓存
-    private final Map<Long, Map<String, Object>> shareCache = new HashMap<>();
-    
-    // 文件标签缓存
-    private final Map<Long, Set<String>> tagCache = new HashMap<>();
 
     @Override
     public boolean setFilePermission(Long fileId, Long userId, String permission) {
@@ -91,79 +111,90 @@ public class FilePermissionServiceImpl implements FilePermissionService {
     }
 
     @Override
-    public Map<String, Object> shareFile(Long fileId, Long userId, String shareType, Integer expireDays) {
-        try {
-            FileInfo fileInfo = fileInfoMapper.selectById(fileId);
-            if (fileInfo == null) {
-                return null;
-            }
+    @Transactional
+    public Map<String, Object> shareFile(Long fileId, Long userId, String shareType, Long targetId, Integer expireDays) {
+        FileInfo fileInfo = fileInfoMapper.selectById(fileId);
+        if (fileInfo == null) {
+            return null;
+        }
 
-            // 检查是否有权限分享
-            if (!fileInfo.getUploadUserId().equals(userId)) {
-                throw new RuntimeException("没有权限分享此文件");
-            }
+        // 检查是否有权限分享
+        if (!fileInfo.getUploadUserId().equals(userId)) {
+            throw new RuntimeException("没有权限分享此文件");
+        }
 
-            // 生成分享信息
-            Map<String, Object> shareInfo = new HashMap<>();
-            shareInfo.put("shareId", System.currentTimeMillis()); // 简单的ID生成
-            shareInfo.put("fileId", fileId);
-            shareInfo.put("shareType", shareType);
-            shareInfo.put("shareCode", generateShareCode());
-            shareInfo.put("createTime", LocalDateTime.now());
-            
-            if (expireDays != null && expireDays > 0) {
-                shareInfo.put("expireTime", LocalDateTime.now().plusDays(expireDays));
-            }
+        String type = normalizeShareType(shareType);
+        if (!FileConstant.SHARE_TYPE_LINK.equals(type) && targetId == null) {
+            throw new RuntimeException("分享给用户或角色时必须指定分享对象");
+        }
 
-            // 缓存分享信息
-            shareCache.put(fileId, shareInfo);
+        FileShare fileShare = new FileShare();
+        fileShare.setFileId(fileId);
+        fileShare.setShareType(type);
+        fileShare.setTargetId(FileConstant.SHARE_TYPE_LINK.equals(type) ? null : targetId);
+        fileShare.setShareCode(generateShareCode());
+        fileShare.setCreateUserId(userId);
+        if (expireDays != null && expireDays > 0) {
+            fileShare.setExpireTime(LocalDateTime.now().plusDays(expireDays));
+        }
+        fileShareMapper.upsert(fileShare);
 
-            logger.info("分享文件成功: fileId={}, shareType={}", fileId, shareType);
-            return shareInfo;
-        } catch (Exception e) {
-            logger.error("分享文件失败", e);
-            return null;
+        // 用户和角色分享改变搜索可见范围，与分享记录在同一事务中写入发件箱
+        if (!FileConstant.SHARE_TYPE_LINK.equals(type)) {
+            fileIndexingService.enqueuePartialUpdate(fileId, "shareGrants");
         }
+
+        logger.info("分享文件成功: fileId={}, shareType={}, targetId={}", fileId, type, targetId);
+        return toShareInfo(fileShareMapper.selectById(fileShare.getId()));
     }
 
     @Override
+    @Transactional
     public boolean cancelFileShare(Long shareId, Long userId) {
-        try {
-            // TODO: 实现取消分享逻辑
-            // 需要根据shareId查找分享记录并检查权限
-            
-            // 从缓存中移除
-            shareCache.entrySet().removeIf(entry -> 
-                shareId.equals(entry.getValue().get("shareId"))
-            );
-
-            logger.info("取消分享成功: shareId={}", shareId);
-            return true;
-        } catch (Exception e) {
-            logger.error("取消分享失败", e);
+        FileShare fileShare = fileShareMapper.selectById(shareId);
+        if (fileShare == null) {
             return false;
         }
+        if (!fileShare.getCreateUserId().equals(userId)) {
+            throw new RuntimeException("没有权限取消此分享");
+        }
+
+        fileShareMapper.deleteById(shareId);
+        if (!FileConstant.SHARE_TYPE_LINK.equals(fileShare.getShareType())) {
+            fileIndexingService.enqueuePartialUpdate(fileShare.getFileId(), "shareGrants");
+        }
+
+        logger.info("取消分享成功: shareId={}", shareId);
+        return true;
     }
 
     @Override
     public List<Map<String, Object>> getSharedFiles(Long userId) {
         try {
+            List<FileShare> fileShares = fileShareMapper.selectByCreateUserId(userId);
+            if (fileShares.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            Set<Long> fileIds = new LinkedHashSet<>();
+            for (FileShare fileShare : fileShares) {
+                fileIds.add(fileShare.getFileId());
+            }
+            Map<Long, FileInfo> fileInfos = new HashMap<>();
+            for (FileInfo fileInfo : fileInfoMapper.selectByIds(new ArrayList<>(fileIds))) {
+                fileInfos.put(fileInfo.getId(), fileInfo);
+            }
+
             List<Map<String, Object>> sharedFiles = new ArrayList<>();
-            
-            // TODO: 从数据库获取用户的分享文件
-            // 这里先从缓存获取示例数据
-            for (Map.Entry<Long, Map<String, Object>> entry : shareCache.entrySet()) {
-                Map<String, Object> shareInfo = entry.getValue();
-                FileInfo fileInfo = fileInfoMapper.selectById(entry.getKey());
-                
-                if (fileInfo != null && fileInfo.getUploadUserId().equals(userId)) {
+            for (FileShare fileShare : fileShares) {
+                FileInfo fileInfo = fileInfos.get(fileShare.getFileId());
+                if (fileInfo != null) {
                     Map<String, Object> sharedFile = new HashMap<>();
                     sharedFile.put("fileInfo", fileInfo);
-                    sharedFile.put("shareInfo", shareInfo);
+                    sharedFile.put("shareInfo", toShareInfo(fileShare));
                     sharedFiles.add(sharedFile);
                 }
             }
-
             return sharedFiles;
         } catch (Exception e) {
             logger.error("获取分享文件列表失败", e);
@@ -171,82 +202,82 @@ public class FilePermissionServiceImpl implements FilePermissionService {
         }
     }
 
-    @Override
-    public boolean addFileTag(Long fileId, String tag) {
+    /**
+     * 删除过期的分享，并从ES文档中撤销对应的授权项
+     */
+    @Scheduled(fixedDelayString = "${file.share.expire-check-interval:60000}")
+    public void purgeExpiredShares() {
         try {
-            FileInfo fileInfo = fileInfoMapper.selectById(fileId);
-            if (fileInfo == null) {
-                return false;
+            List<FileShare> expired;
+            while (!(expired = fileShareMapper.selectExpired(EXPIRE_BATCH_SIZE)).isEmpty()) {
+                List<FileShare> batch = expired;
+                transactionTemplate.execute(status -> {
+                    List<Long> shareIds = new ArrayList<>(batch.size());
+                    Set<Long> fileIds = new HashSet<>();
+                    for (FileShare fileShare : batch) {
+                        shareIds.add(fileShare.getId());
+                        if (!FileConstant.SHARE_TYPE_LINK.equals(fileShare.getShareType())) {
+                            fileIds.add(fileShare.getFileId());
+                        }
+                    }
+                    fileShareMapper.deleteByIds(shareIds);
+                    for (Long fileId : fileIds) {
+                        fileIndexingService.enqueuePartialUpdate(fileId, "shareGrants");
+                    }
+                    return null;
+                });
+                logger.info("清理过期分享: {}", batch.size());
+                if (batch.size() < EXPIRE_BATCH_SIZE) {
+                    break;
+                }
             }
-
-            // 获取或创建标签集合
-            Set<String> tags = tagCache.computeIfAbsent(fileId, k -> new HashSet<>());
-            tags.add(tag);
-
-            // TODO: 持久化到数据库
-            logger.info("添加文件标签成功: fileId={}, tag={}", fileId, tag);
-            return true;
         } catch (Exception e) {
-            logger.error("添加文件标签失败", e);
-            return false;
+            logger.error("清理过期分享失败", e);
         }
     }
 
+    @Override
+    public boolean addFileTag(Long fileId, String tag) {
+        return tagService.addFileTag(fileId, tag);
+    }
+
     @Override
     public boolean removeFileTag(Long fileId, String tag) {
-        try {
-            Set<String> tags = tagCache.get(fileId);
-            if (tags != null) {
-                tags.remove(tag);
-                
-                // TODO: 从数据库删除
-                logger.info("移除文件标签成功: fileId={}, tag={}", fileId, tag);
-                return true;
-            }
-            return false;
-        } catch (Exception e) {
-            logger.error("移除文件标签失败", e);
-            return false;
-        }
+        return tagService.removeFileTag(fileId, tag);
     }
 
     @Override
     public List<String> getFileTags(Long fileId) {
-        try {
-            Set<String> tags = tagCache.get(fileId);
-            if (tags != null) {
-                return new ArrayList<>(tags);
-            }
-            
-            // TODO: 从数据库获取
-            return new ArrayList<>();
-        } catch (Exception e) {
-            logger.error("获取文件标签失败", e);
-            return new ArrayList<>();
-        }
+        return tagService.getFileTags(fileId);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public List<FileInfo> getFilesByTag(String tag) {
-        try {
-            List<FileInfo> files = new ArrayList<>();
-            
-            // 从缓存中搜索
-            for (Map.Entry<Long, Set<String>> entry : tagCache.entrySet()) {
-                if (entry.getValue().contains(tag)) {
-                    FileInfo fileInfo = fileInfoMapper.selectById(entry.getKey());
-                    if (fileInfo != null) {
-                        files.add(fileInfo);
-                    }
-                }
-            }
+        return (List<FileInfo>) tagService.searchByTags(Collections.singletonList(tag), true, 1, MAX_TAG_FILES).get("list");
+    }
 
-            // TODO: 从数据库搜索
-            return files;
-        } catch (Exception e) {
-            logger.error("根据标签获取文件失败", e);
-            return new ArrayList<>();
+    private static String normalizeShareType(String shareType) {
+        if (shareType == null || "public".equalsIgnoreCase(shareType) || "link".equalsIgnoreCase(shareType)) {
+            return FileConstant.SHARE_TYPE_LINK;
+        }
+        String type = shareType.trim().toUpperCase(Locale.ROOT);
+        if (!FileConstant.SHARE_TYPE_USER.equals(type) && !FileConstant.SHARE_TYPE_ROLE.equals(type)) {
+            throw new RuntimeException("不支持的分享类型: " + shareType);
         }
+        return type;
+    }
+
+    private static Map<String, Object> toShareInfo(FileShare fileShare) {
+        Map<String, Object> shareInfo = new HashMap<>();
+        shareInfo.put("shareId", fileShare.getId());
+        shareInfo.put("fileId", fileShare.getFileId());
+        shareInfo.put("shareType", fileShare.getShareType());
+        shareInfo.put("targetId", fileShare.getTargetId());
+        shareInfo.put("shareCode", fileShare.getShareCode());
+        shareInfo.put("createTime", fileShare.getCreateTime());
+        shareInfo.put("expireTime", fileShare.getExpireTime());
+        return shareInfo;
     }
 
     /**
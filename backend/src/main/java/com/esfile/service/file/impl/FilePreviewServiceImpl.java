@@ -2,9 +2,11 @@ package com.esfile.service.file.impl;
 
 import com.esfile.entity.mybatis.FileInfo;
 import com.esfile.mapper.FileInfoMapper;
+import com.esfile.service.file.FileIndexingService;
 import com.esfile.service.file.FilePreviewService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -26,6 +28,9 @@ public class FilePreviewServiceImpl implements FilePreviewService {
     @Autowired
     private FileInfoMapper fileInfoMapper;
 
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
     /**
      * 获取文件预览URL
      */
@@ -205,8 +210,10 @@ public class FilePreviewServiceImpl implements FilePreviewService {
      * 更新预览次数
      */
     @Override
+    @Transactional
     public void updatePreviewCount(Long fileId) {
         fileInfoMapper.updatePreviewCount(fileId);
+        fileIndexingService.enqueuePartialUpdate(fileId, "previewCount");
     }
 
     /**
@@ -1,12 +1,20 @@
 package com.esfile.service.file.impl;
 
+import com.esfile.common.util.FullTextQueryUtil;
+import com.esfile.entity.dto.FileSearchDto;
 import com.esfile.entity.dto.SearchDto;
 import com.esfile.entity.mybatis.FileInfo;
 import com.esfile.mapper.FileInfoMapper;
 import com.esfile.service.file.FileSearchService;
+import com.esfile.service.file.HotSearchTermService;
+import com.esfile.service.file.SearchScopeService;
+import com.esfile.service.file.SuggestionService;
+import com.esfile.service.file.TagService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -19,17 +27,40 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class FileSearchServiceImpl implements FileSearchService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final String CURSOR_SEPARATOR = "|";
+
     @Autowired
     private FileInfoMapper fileInfoMapper;
 
+    @Autowired
+    private HotSearchTermService hotSearchTermService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private SearchScopeService searchScopeService;
+
+    @Autowired
+    private TagService tagService;
+
+    // 总数统计上限，超过时返回近似值，避免大结果集的全量COUNT
+    @Value("${file.search.count-limit:10000}")
+    private long countLimit;
+
+    // 与MySQL服务端ngram_token_size一致，短于该长度的词按前缀匹配
+    @Value("${file.search.ngram-token-size:2}")
+    private int ngramTokenSize;
+
     // 搜索历史缓存
     private final Map<Long, List<String>> searchHistoryCache = new ConcurrentHashMap<>();
     
     // 热门搜索缓存
     private final List<String> hotSearchesCache = new ArrayList<>();
-    
-    // 搜索统计缓存
-    private final Map<String, Integer> searchStatsCache = new ConcurrentHashMap<>();
 
     /**
      * 搜索文件（兼容性方法）
@@ -45,37 +76,23 @@ public class FileSearchServiceImpl implements FileSearchService {
      */
     @Override
     public Map<String, Object> searchFiles(SearchDto searchDto) {
-        Map<String, Object> result = new HashMap<>();
+        Map<String, Object> result;
         
         try {
             // 构建搜索条件
             FileInfo searchCondition = buildSearchCondition(searchDto);
             
-            // 执行搜索
-            List<FileInfo> files = fileInfoMapper.selectByCondition(searchCondition);
-            
-            // 分页处理
-            int page = searchDto.getPage() != null ? searchDto.getPage() : 1;
-            int size = searchDto.getSize() != null ? searchDto.getSize() : 20;
-            int total = files.size();
-            int start = (page - 1) * size;
-            int end = Math.min(start + size, total);
+            // 执行搜索，分页在数据库中完成
+            result = queryPage(searchCondition, searchDto.getKeyword(), searchDto.getCursor(), 
+                searchDto.getPage(), searchDto.getSize());
             
-            List<FileInfo> pagedFiles = files.subList(start, end);
-            
-            // 记录搜索日志
+            // 记录搜索日志（同时计入热搜统计，与ES检索和路由一样每次搜索只计一次）
             if (searchDto.getKeyword() != null && !searchDto.getKeyword().trim().isEmpty()) {
                 logSearch(searchDto.getKeyword(), null, null, null);
-                updateSearchStats(searchDto.getKeyword());
             }
             
-            result.put("list", pagedFiles);
-            result.put("total", total);
-            result.put("page", page);
-            result.put("size", size);
-            result.put("pages", (total + size - 1) / size);
-            
         } catch (Exception e) {
+            result = new HashMap<>();
             result.put("error", "搜索失败: " + e.getMessage());
         }
         
@@ -120,91 +137,51 @@ public class FileSearchServiceImpl implements FileSearchService {
      * 全文搜索
      */
     @Override
-    public Map<String, Object> fullTextSearch(String keyword, Integer page, Integer size) {
-        Map<String, Object> result = new HashMap<>();
-        
+    public Map<String, Object> fullTextSearch(String keyword, String cursor, Integer size) {
         try {
-            // 使用关键词搜索
-            List<FileInfo> files = fileInfoMapper.searchByKeyword(keyword);
-            
-            // 分页处理
-            if (page == null) page = 1;
-            if (size == null) size = 20;
-            
-            int total = files.size();
-            int start = (page - 1) * size;
-            int end = Math.min(start + size, total);
-            
-            List<FileInfo> pagedFiles = files.subList(start, end);
-            
-            result.put("list", pagedFiles);
-            result.put("total", total);
-            result.put("page", page);
-            result.put("size", size);
-            result.put("pages", (total + size - 1) / size);
-            
+            return queryPage(null, keyword, cursor, null, size);
         } catch (Exception e) {
+            Map<String, Object> result = new HashMap<>();
             result.put("error", "全文搜索失败: " + e.getMessage());
+            return result;
         }
-        
-        return result;
     }
 
     /**
-     * 按标签搜索
+     * 按条件搜索，不记录搜索统计
      */
     @Override
+    public Map<String, Object> searchByCondition(FileSearchDto searchDto) {
+        FileInfo condition = new FileInfo();
+        if (searchDto.getFileType() != null && !searchDto.getFileType().trim().isEmpty()) {
+            condition.setFileType(searchDto.getFileType().trim());
+        }
+        condition.setUploadUserId(searchDto.getUploadUserId());
+        condition.setStatus(searchDto.getStatus());
+        condition.setIsPublic(searchDto.getIsPublic());
+        return queryPage(condition, searchDto.getKeyword(), null, searchDto.getPage(), searchDto.getSize());
+    }
+
+    /**
+     * 按标签搜索，包含任一标签即匹配
+     */
+    @SuppressWarnings("unchecked")
+    @Override
     public List<FileInfo> searchByTags(List<String> tags, Integer page, Integer size) {
         if (tags == null || tags.isEmpty()) {
             return new ArrayList<>();
         }
-        
-        List<FileInfo> result = new ArrayList<>();
-        
-        for (String tag : tags) {
-            List<FileInfo> files = fileInfoMapper.selectByTag(tag);
-            result.addAll(files);
-        }
-        
-        // 去重
-        Set<Long> fileIds = new HashSet<>();
-        List<FileInfo> uniqueFiles = new ArrayList<>();
-        for (FileInfo file : result) {
-            if (!fileIds.contains(file.getId())) {
-                fileIds.add(file.getId());
-                uniqueFiles.add(file);
-            }
-        }
-        
-        // 分页处理
-        if (page != null && size != null) {
-            int start = (page - 1) * size;
-            int end = Math.min(start + size, uniqueFiles.size());
-            if (start < uniqueFiles.size()) {
-                return uniqueFiles.subList(start, end);
-            }
-        }
-        
-        return uniqueFiles;
+        return (List<FileInfo>) tagService.searchByTags(tags, false, page, size).get("list");
     }
 
     /**
      * 按类型搜索
      */
     @Override
-    public List<FileInfo> searchByType(String fileType, Integer page, Integer size) {
-        List<FileInfo> files = fileInfoMapper.selectByFileType(fileType);
-        
-        // 分页处理
-        if (page != null && size != null) {
-            int start = (page - 1) * size;
-            int end = Math.min(start + size, files.size());
-            if (start < files.size()) {
-                return files.subList(start, end);
-            }
-        }
-        
-        return files;
+    public Map<String, Object> searchByType(String fileType, String cursor, Integer size) {
+        FileInfo condition = new FileInfo();
+        condition.setFileType(fileType);
+        return queryPage(condition, null, cursor, null, size);
     }
 
     /**
@@ -229,19 +206,10 @@ public class FileSearchServiceImpl implements FileSearchService {
      * 按用户搜索
      */
     @Override
-    public List<FileInfo> searchByUser(Long userId, Integer page, Integer size) {
-        List<FileInfo> files = fileInfoMapper.selectByUploadUserId(userId);
-        
-        // 分页处理
-        if (page != null && size != null) {
-            int start = (page - 1) * size;
-            int end = Math.min(start + size, files.size());
-            if (start < files.size()) {
-                return files.subList(start, end);
-            }
-        }
-        
-        return files;
+    public Map<String, Object> searchByUser(Long userId, String cursor, Integer size) {
+        FileInfo condition = new FileInfo();
+        condition.setUploadUserId(userId);
+        return queryPage(condition, null, cursor, null, size);
     }
 
     /**
@@ -253,26 +221,8 @@ public class FileSearchServiceImpl implements FileSearchService {
             return new ArrayList<>();
         }
         
-        List<String> suggestions = new ArrayList<>();
-        
-        // 基于热门搜索生成建议
-        for (String hotSearch : hotSearchesCache) {
-            if (hotSearch.toLowerCase().contains(keyword.toLowerCase())) {
-                suggestions.add(hotSearch);
-            }
-        }
-        
-        // 基于搜索历史生成建议
-        searchHistoryCache.values().stream()
-            .flatMap(List::stream)
-            .filter(history -> history.toLowerCase().contains(keyword.toLowerCase()))
-            .forEach(suggestions::add);
-        
-        // 去重并限制数量
-        return suggestions.stream()
-            .distinct()
-            .limit(10)
-            .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        // 前缀树中包含文件名、标签和热门搜索词
+        return suggestionService.suggest(keyword, 10);
     }
 
     /**
@@ -292,14 +242,24 @@ public class FileSearchServiceImpl implements FileSearchService {
      */
     @Override
     public List<String> getHotSearches() {
-        // 初始化热门搜索
-        if (hotSearchesCache.isEmpty()) {
-            hotSearchesCache.addAll(Arrays.asList(
-                "文档", "图片", "视频", "音乐", "软件", "压缩包", "PDF", "Word", "Excel"
-            ));
+        List<String> hotSearches = new ArrayList<>();
+        for (Map<String, Object> hotTerm : hotSearchTermService.getHotTerms("week", 10)) {
+            hotSearches.add((String) hotTerm.get("term"));
+        }
+        
+        // 还没有搜索记录时使用默认热门搜索
+        if (hotSearches.isEmpty()) {
+            if (hotSearchesCache.isEmpty()) {
+                hotSearchesCache.addAll(Arrays.asList(
+                    "文档", "图片", "视频", "音乐", "软件", "压缩包", "PDF", "Word", "Excel"
+                ));
+            }
+            return new ArrayList<>(hotSearchesCache);
         }
         
-        return new ArrayList<>(hotSearchesCache);
+        hotSearchesCache.clear();
+        hotSearchesCache.addAll(hotSearches);
+        return hotSearches;
     }
 
     /**
@@ -326,7 +286,7 @@ public class FileSearchServiceImpl implements FileSearchService {
         }
         
         // 记录搜索统计
-        searchStatsCache.merge(keyword, 1, Integer::sum);
+        hotSearchTermService.record(keyword);
         
         System.out.println("搜索日志: 关键词=" + keyword + ", 用户ID=" + userId + 
                           ", IP=" + ipAddress + ", UserAgent=" + userAgent);
@@ -337,9 +297,7 @@ public class FileSearchServiceImpl implements FileSearchService {
      */
     @Override
     public void updateSearchStats(String keyword) {
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            searchStatsCache.merge(keyword, 1, Integer::sum);
-        }
+        hotSearchTermService.record(keyword);
     }
 
     /**
@@ -349,26 +307,21 @@ public class FileSearchServiceImpl implements FileSearchService {
     public Map<String, Object> getSearchStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        // 总搜索次数
-        int totalSearches = searchStatsCache.values().stream().mapToInt(Integer::intValue).sum();
-        stats.put("totalSearches", totalSearches);
-        
-        // 热门关键词
-        List<Map<String, Object>> hotKeywords = searchStatsCache.entrySet().stream()
-            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-            .limit(10)
-            .map(entry -> {
-                Map<String, Object> keyword = new HashMap<>();
-                keyword.put("keyword", entry.getKey());
-                keyword.put("count", entry.getValue());
-                return keyword;
-            })
-            .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        // 总搜索次数（最近一周，估计值）
+        stats.put("totalSearches", hotSearchTermService.getTotal("week"));
         
+        // 热门关键词（只读取固定数量的候选词，不扫描全部关键词）
+        List<Map<String, Object>> hotKeywords = new ArrayList<>();
+        for (Map<String, Object> hotTerm : hotSearchTermService.getHotTerms("day", 10)) {
+            Map<String, Object> keyword = new HashMap<>();
+            keyword.put("keyword", hotTerm.get("term"));
+            keyword.put("count", hotTerm.get("count"));
+            hotKeywords.add(keyword);
+        }
         stats.put("hotKeywords", hotKeywords);
         
-        // 今日搜索次数
-        stats.put("todaySearches", totalSearches); // TODO: 实现真实统计
+        // 今日搜索次数（最近一天，估计值）
+        stats.put("todaySearches", hotSearchTermService.getTotal("day"));
         
         return stats;
     }
@@ -381,7 +334,7 @@ public class FileSearchServiceImpl implements FileSearchService {
         try {
             searchHistoryCache.clear();
             hotSearchesCache.clear();
-            searchStatsCache.clear();
+            hotSearchTermService.clear();
             return true;
         } catch (Exception e) {
             return false;
@@ -397,6 +350,123 @@ public class FileSearchServiceImpl implements FileSearchService {
         return true;
     }
 
+    /**
+     * 有关键词时按全文检索相关度分页，否则按(create_time, id)倒序分页：有游标时从游标之后继续，
+     * 不再扫描前面的行；没有游标时按页码跳过。总数只在首页单独统计，超过上限时返回上限并标记为近似值。
+     * 结果限制在调用者的可见范围内，与ES搜索一致
+     */
+    private Map<String, Object> queryPage(FileInfo condition, String keyword, String cursor, Integer page, Integer size) {
+        int pageSize = size != null && size > 0 ? Math.min(size, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        Map<String, Object> scope = searchScopeService.currentScopeParams();
+        String booleanQuery = FullTextQueryUtil.toBooleanQuery(keyword, ngramTokenSize);
+        if (booleanQuery != null) {
+            return queryRelevancePage(condition, booleanQuery, scope, cursor, page, pageSize);
+        }
+        
+        FileInfo position = decodeKeysetCursor(cursor);
+        int offset = position == null && page != null && page > 1 ? (page - 1) * pageSize : 0;
+        
+        // 多取一条判断是否还有下一页
+        List<FileInfo> files = fileInfoMapper.selectKeysetPage(condition, null,
+            position != null ? position.getCreateTime() : null, position != null ? position.getId() : null,
+            scope, offset, pageSize + 1);
+        boolean hasMore = files.size() > pageSize;
+        if (hasMore) {
+            files = new ArrayList<>(files.subList(0, pageSize));
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", files);
+        result.put("size", pageSize);
+        result.put("nextCursor", hasMore ? encodeCursor(files.get(files.size() - 1).getCreateTime()
+            + CURSOR_SEPARATOR + files.get(files.size() - 1).getId()) : null);
+        if (position == null) {
+            putTotal(result, condition, null, scope, page, pageSize);
+        }
+        return result;
+    }
+
+    /**
+     * 按相关度分页：相关度是查询时计算的浮点数，不适合作为键集，游标中记录偏移量；
+     * 匹配行需要全部算分排序后才能跳过，翻页深度不超过统计上限
+     */
+    private Map<String, Object> queryRelevancePage(FileInfo condition, String booleanQuery, Map<String, Object> scope,
+                                                   String cursor, Integer page, int pageSize) {
+        int offset = cursor != null && !cursor.trim().isEmpty() ? decodeOffsetCursor(cursor)
+            : page != null && page > 1 ? (page - 1) * pageSize : 0;
+        
+        List<FileInfo> files = offset < countLimit
+            ? fileInfoMapper.selectPageByRelevance(condition, booleanQuery, scope, offset, pageSize + 1)
+            : new ArrayList<>();
+        boolean hasMore = files.size() > pageSize && offset + pageSize < countLimit;
+        if (files.size() > pageSize) {
+            files = new ArrayList<>(files.subList(0, pageSize));
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", files);
+        result.put("size", pageSize);
+        result.put("nextCursor", hasMore ? encodeCursor(String.valueOf(offset + pageSize)) : null);
+        if (cursor == null || cursor.trim().isEmpty()) {
+            putTotal(result, condition, booleanQuery, scope, page, pageSize);
+        }
+        return result;
+    }
+
+    private void putTotal(Map<String, Object> result, FileInfo condition, String booleanQuery,
+                          Map<String, Object> scope, Integer page, int pageSize) {
+        long total = fileInfoMapper.countByConditionLimited(condition, booleanQuery, scope, countLimit);
+        boolean approximate = total >= countLimit;
+        result.put("total", total);
+        result.put("totalApproximate", approximate);
+        result.put("page", page != null && page > 0 ? page : 1);
+        if (!approximate) {
+            result.put("pages", (total + pageSize - 1) / pageSize);
+        }
+    }
+
+    private static String encodeCursor(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePosition(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 键集游标：最后一条的创建时间和ID
+     */
+    private static FileInfo decodeKeysetCursor(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String position = decodePosition(cursor);
+            int index = position.lastIndexOf(CURSOR_SEPARATOR);
+            FileInfo fileInfo = new FileInfo();
+            fileInfo.setCreateTime(LocalDateTime.parse(position.substring(0, index)));
+            fileInfo.setId(Long.parseLong(position.substring(index + 1)));
+            return fileInfo;
+        } catch (Exception e) {
+            throw new RuntimeException("无效的搜索游标");
+        }
+    }
+
+    /**
+     * 相关度游标：下一页的偏移量
+     */
+    private static int decodeOffsetCursor(String cursor) {
+        try {
+            int offset = Integer.parseInt(decodePosition(cursor));
+            if (offset < 0) {
+                throw new IllegalArgumentException();
+            }
+            return offset;
+        } catch (Exception e) {
+            throw new RuntimeException("无效的搜索游标");
+        }
+    }
+
     /**
      * 构建搜索条件
      */
@@ -46,6 +46,12 @@ public class FileServiceImpl implements FileService {
     @Autowired
     private FilePreviewService filePreviewService;
 
+    @Autowired
+    private SearchRouterService searchRouterService;
+
+    @Autowired
+    private TagService tagService;
+
     @Autowired
     private FileInfoMapper fileInfoMapper;
 
@@ -142,6 +148,11 @@ public class FileServiceImpl implements FileService {
         return fileOperationService.getFolderStructure(parentId);
     }
 
+    @Override
+    public List<Map<String, Object>> getFolderBreadcrumb(Long folderId) {
+        return fileOperationService.getFolderBreadcrumb(folderId);
+    }
+
     @Override
     public boolean cleanupTempFiles() {
         return fileOperationService.cleanupTempFiles();
@@ -178,8 +189,8 @@ public class FileServiceImpl implements FileService {
     
     @Override
     public Map<String, Object> searchFiles(FileSearchDto searchDto) {
-        // 这里可以集成ES搜索或数据库搜索
-        return getFileList(searchDto); // 简化实现
+        // 由搜索路由选择ES或数据库
+        return searchRouterService.search(searchDto);
     }
 
     // =============== 文件统计分析 ===============
@@ -222,8 +233,8 @@ public class FileServiceImpl implements FileService {
     }
 
     @Override
-    public Map<String, Object> shareFile(Long fileId, Long userId, String shareType, Integer expireDays) {
-        return filePermissionService.shareFile(fileId, userId, shareType, expireDays);
+    public Map<String, Object> shareFile(Long fileId, Long userId, String shareType, Long targetId, Integer expireDays) {
+        return filePermissionService.shareFile(fileId, userId, shareType, targetId, expireDays);
     }
 
     @Override
@@ -255,4 +266,24 @@ public class FileServiceImpl implements FileService {
     public List<FileInfo> getFilesByTag(String tag) {
         return filePermissionService.getFilesByTag(tag);
     }
+
+    @Override
+    public boolean setFileTags(Long fileId, String tags) {
+        return tagService.setFileTags(fileId, tags);
+    }
+
+    @Override
+    public Map<String, Object> searchFilesByTags(List<String> tags, boolean matchAll, Integer page, Integer size) {
+        return tagService.searchByTags(tags, matchAll, page, size);
+    }
+
+    @Override
+    public List<Map<String, Object>> getPopularTags(int limit) {
+        return tagService.getPopularTags(limit);
+    }
+
+    @Override
+    public Map<String, Object> rebuildTags() {
+        return tagService.rebuildTags();
+    }
 }
\ No newline at end of file
@@ -1,23 +1,36 @@
 package com.esfile.service.file.impl;
 
+import com.esfile.common.util.MinioStorageUtil;
 import com.esfile.entity.dto.FileUploadDto;
+import com.esfile.entity.mybatis.FileBlob;
 import com.esfile.entity.mybatis.FileInfo;
 import com.esfile.mapper.FileInfoMapper;
+import com.esfile.repository.redis.UploadSessionRepository;
+import com.esfile.service.file.ContentExtractionService;
+import com.esfile.service.file.FileBlobService;
+import com.esfile.service.file.FileIndexingService;
+import com.esfile.service.file.FileOperationService;
 import com.esfile.service.file.FileUploadService;
 import com.esfile.service.file.MinioStorageService;
+import com.esfile.service.file.TagService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 文件上传服务实现类
@@ -28,23 +41,53 @@ public class FileUploadServiceImpl implements FileUploadService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileUploadServiceImpl.class);
 
+    // S3分片上传的最小分片大小（最后一片除外）
+    private static final long MIN_MULTIPART_PART_SIZE = 5L * 1024 * 1024;
+
+    // S3分片上传的最大分片数
+    private static final int MAX_MULTIPART_PARTS = 10000;
+
+    // 上传会话ID格式（同时用作Redis键和暂存分片的对象名）
+    private static final String UPLOAD_ID_PATTERN = "[A-Za-z0-9_-]{1,128}";
+
+    // 秒传内容抽查的最大字节数和有效期（秒）
+    private static final long CHALLENGE_RANGE_SIZE = 64 * 1024;
+    private static final long CHALLENGE_TTL_SECONDS = 300;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
     @Autowired
     private FileInfoMapper fileInfoMapper;
 
     @Autowired
     private MinioStorageService minioStorageService;
 
-    // 上传进度缓存
-    private final Map<String, Map<String, Object>> uploadProgressCache = new ConcurrentHashMap<>();
-    
-    // 分片文件缓存
-    private final Map<String, List<byte[]>> chunkCache = new ConcurrentHashMap<>();
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private ContentExtractionService contentExtractionService;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private FileOperationService fileOperationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     /**
      * 上传单个文件
+     * 对象上传不在事务中进行，只在写入数据库时开启事务，避免事务和发件箱记录ID长时间不提交
      */
     @Override
-    @Transactional
     public FileInfo uploadFile(FileUploadDto uploadDto) {
         MultipartFile file = uploadDto.getFile();
         if (file == null || file.isEmpty()) {
@@ -58,44 +101,70 @@ public class FileUploadServiceImpl implements FileUploadService {
         if (!validateFileSize(file.getSize())) {
             throw new RuntimeException("文件大小超出限制");
         }
+        tagService.parseTags(uploadDto.getTags());
 
         // 生成文件信息
         FileInfo fileInfo = createFileInfo(file, uploadDto);
         
-        // 检查重复文件
-        FileInfo duplicateFile = checkDuplicateFile(fileInfo.getFileMd5(), uploadDto.getUploadUserId());
-        if (duplicateFile != null) {
-            return duplicateFile;
-        }
-        
         // 生成MinIO对象名称
         String objectName = generateObjectName(fileInfo.getFileName(), uploadDto.getUploadUserId());
         fileInfo.setObjectName(objectName);
         
+        String contentHash;
         try {
-            // 保存文件到MinIO存储
-            String fileUrl = minioStorageService.uploadFile(file, objectName);
+            // 边上传边计算MD5和SHA-256，文件内容只读取一次
+            MessageDigest md = MinioStorageUtil.newMd5Digest();
+            MessageDigest sha256 = MinioStorageUtil.newSha256Digest();
+            String fileUrl;
+            try (InputStream inputStream = new DigestInputStream(
+                    new DigestInputStream(file.getInputStream(), md), sha256)) {
+                fileUrl = minioStorageService.uploadStream(inputStream, file.getSize(), objectName, file.getContentType());
+            }
+            fileInfo.setFileMd5(MinioStorageUtil.toHex(md.digest()));
             fileInfo.setFileUrl(fileUrl);
-            
-            // 保存文件信息到数据库
-            fileInfoMapper.insert(fileInfo);
-            
-            logger.info("文件上传成功: {}, 大小: {} bytes, 存储路径: {}", 
-                fileInfo.getFileName(), fileInfo.getFileSize(), objectName);
-            
-            return fileInfo;
-            
+            contentHash = MinioStorageUtil.toHex(sha256.digest());
+        } catch (Exception e) {
+            logger.error("文件上传失败: {}", fileInfo.getFileName(), e);
+            throw new RuntimeException("文件上传失败: " + e.getMessage());
+        }
+        
+        FileInfo saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                // 检查重复文件
+                FileInfo duplicateFile = checkDuplicateFile(fileInfo.getFileMd5(), uploadDto.getUploadUserId());
+                if (duplicateFile != null) {
+                    return duplicateFile;
+                }
+                
+                // 相同内容已存储时复用已有对象
+                bindContentBlob(fileInfo, contentHash);
+                saveFileInfo(fileInfo);
+                return fileInfo;
+            });
         } catch (Exception e) {
+            // 事务已回滚，本次上传的对象没有任何引用
+            minioStorageService.deleteFile(objectName);
             logger.error("文件上传失败: {}", fileInfo.getFileName(), e);
             throw new RuntimeException("文件上传失败: " + e.getMessage());
         }
+        
+        if (saved != fileInfo) {
+            minioStorageService.deleteFile(objectName);
+            return saved;
+        }
+        contentExtractionService.submit(fileInfo);
+        
+        logger.info("文件上传成功: {}, 大小: {} bytes, 存储路径: {}", 
+            fileInfo.getFileName(), fileInfo.getFileSize(), objectName);
+        return fileInfo;
     }
 
     /**
      * 批量上传文件
+     * 每个文件单独提交，不在一个事务中上传全部文件
      */
     @Override
-    @Transactional
     public List<FileInfo> batchUploadFiles(List<FileUploadDto> uploadDtos) {
         List<FileInfo> uploadedFiles = new ArrayList<>();
         
@@ -118,23 +187,42 @@ public class FileUploadServiceImpl implements FileUploadService {
      */
     @Override
     public FileInfo uploadFileChunk(String chunkId, Integer chunkNumber, Integer totalChunks, 
-                                  byte[] chunkData, String fileName, Long fileSize) {
-        // 缓存分片数据
-        chunkCache.computeIfAbsent(chunkId, k -> new ArrayList<>());
-        List<byte[]> chunks = chunkCache.get(chunkId);
-        
-        // 确保chunks列表大小足够
-        while (chunks.size() <= chunkNumber) {
-            chunks.add(null);
+                                  byte[] chunkData, String fileName, Long fileSize, Long userId) {
+        if (chunkData == null || fileSize == null || totalChunks == null || totalChunks <= 0) {
+            throw new RuntimeException("分片参数不完整");
+        }
+        if (chunkNumber == null || chunkNumber < 0 || chunkNumber >= totalChunks) {
+            throw new RuntimeException("分片序号无效: " + chunkNumber);
         }
-        chunks.set(chunkNumber, chunkData);
         
-        // 更新上传进度
-        updateUploadProgress(chunkId, chunkNumber, totalChunks, fileName, fileSize);
+        FileUploadDto uploadDto = new FileUploadDto();
+        uploadDto.setUploadUserId(userId);
+        Map<String, Object> session = openChunkSession(chunkId, fileName, fileSize, totalChunks, uploadDto);
+        String multipartUploadId = (String) session.get("multipartUploadId");
+        
+        // 分片已全部接收时（上次完成失败后重试）不再重复上传，直接尝试完成
+        int receivedCount = uploadSessionRepository.countReceivedChunks(chunkId);
+        if (receivedCount < totalChunks) {
+            checkChunkSize(chunkId, chunkNumber, totalChunks, chunkData.length, fileSize);
+            if (multipartUploadId != null) {
+                // 分片在请求线程中直接作为MinIO分片上传，ETag记录到Redis，任意节点都可完成合并
+                String objectName = (String) session.get("objectName");
+                int partNumber = chunkNumber + 1;
+                String etag = minioStorageService.uploadPart(objectName, multipartUploadId, partNumber, chunkData);
+                uploadSessionRepository.savePartEtag(chunkId, partNumber, etag);
+            } else {
+                // 分片暂存为MinIO对象，收到最后一片的任意节点都能按序读取合并
+                minioStorageService.uploadBytes(chunkData, getChunkObjectName(chunkId, chunkNumber), 
+                    "application/octet-stream");
+            }
+            
+            // 分片暂存或上传成功后才计入位图
+            receivedCount = uploadSessionRepository.markChunkReceived(chunkId, chunkNumber);
+        }
         
-        // 检查是否所有分片都已上传
-        if (isAllChunksUploaded(chunkId, totalChunks)) {
-            return mergeChunksAndUpload(chunkId, fileName, fileSize);
+        // 所有分片都已上传时，由抢到完成权的请求负责合并
+        if (receivedCount == totalChunks && uploadSessionRepository.tryStartCompletion(chunkId)) {
+            return completeChunkUpload(chunkId, session, null);
         }
         
         return null;
@@ -142,83 +230,110 @@ public class FileUploadServiceImpl implements FileUploadService {
 
     /**
      * 合并分片文件
+     * 合并时流式上传整个文件，不在事务中执行，文件信息在完成时单独提交
      */
     @Override
-    @Transactional
     public FileInfo mergeFileChunks(String chunkId, String fileName, Long fileSize, 
                                   Integer totalChunks, Long userId) {
-        List<byte[]> chunks = chunkCache.get(chunkId);
-        if (chunks == null || chunks.size() != totalChunks) {
+        Map<String, Object> session = uploadSessionRepository.getSession(chunkId);
+        if (session != null) {
+            checkSessionOwner(session, userId);
+        }
+        if (!isAllChunksUploaded(chunkId, session, totalChunks)) {
             throw new RuntimeException("分片文件不完整");
         }
+        if (!uploadSessionRepository.tryStartCompletion(chunkId)) {
+            throw new RuntimeException("分片文件正在合并");
+        }
         
-        // 合并分片数据
-        byte[] completeFile = new byte[fileSize.intValue()];
-        int offset = 0;
-        for (byte[] chunk : chunks) {
-            if (chunk != null) {
-                System.arraycopy(chunk, 0, completeFile, offset, chunk.length);
-                offset += chunk.length;
+        return completeChunkUpload(chunkId, session, userId);
+    }
+
+    /**
+     * 秒传预检
+     * 仅凭哈希和大小就能取得已存储的内容，秒传前先抽查客户端确实持有文件内容；
+     * 不在事务中执行，创建上传会话时的MinIO分片上传不会因事务回滚成为孤儿
+     */
+    @Override
+    public Map<String, Object> preUpload(String contentHash, Long fileSize, String fileName, 
+                                         Integer totalChunks, String proof, FileUploadDto uploadDto) {
+        if (contentHash == null || !contentHash.matches("[0-9a-fA-F]{64}")) {
+            throw new RuntimeException("内容哈希无效，需为SHA-256");
+        }
+        if (!validateFileType(fileName, getContentType(fileName))) {
+            throw new RuntimeException("不支持的文件类型");
+        }
+        if (!validateFileSize(fileSize)) {
+            throw new RuntimeException("文件大小超出限制");
+        }
+        tagService.parseTags(uploadDto.getTags());
+        
+        String normalizedHash = contentHash.toLowerCase();
+        Long userId = uploadDto.getUploadUserId();
+        String uploadId = (userId != null ? userId.toString() : "anonymous") + "-" + normalizedHash;
+        Map<String, Object> result = new HashMap<>();
+        
+        // 内容已存储：首次预检返回内容抽查，回答正确后只写文件记录，不传输数据
+        FileBlob existingBlob = fileBlobService.getBlob(normalizedHash);
+        if (existingBlob != null && existingBlob.getFileSize().equals(fileSize)) {
+            if (proof == null) {
+                result.put("exists", true);
+                result.put("challenge", issueChallenge(uploadId, fileSize));
+                return result;
+            }
+            if (!verifyPossession(uploadId, existingBlob, proof)) {
+                throw new RuntimeException("内容抽查未通过");
+            }
+            FileInfo fileInfo = transactionTemplate.execute(
+                status -> createFileFromExistingBlob(normalizedHash, fileSize, fileName, uploadDto));
+            if (fileInfo != null) {
+                result.put("exists", true);
+                result.put("fileInfo", fileInfo);
+                return result;
             }
         }
         
-        // 创建文件信息
-        FileUploadDto uploadDto = new FileUploadDto();
-        uploadDto.setUploadUserId(userId);
-        uploadDto.setUploadUserName("用户" + userId);
-        
-        // 保存完整文件
-        String objectName = saveFileToStorage(completeFile, fileName, "elasticsearch");
-        
-        // 创建文件信息
-        FileInfo fileInfo = new FileInfo();
-        fileInfo.setFileName(fileName);
-        fileInfo.setOriginalFileName(fileName);
-        fileInfo.setFileSize(fileSize);
-        fileInfo.setFileType(getContentType(fileName));
-        fileInfo.setFileExtension(getFileExtension(fileName));
-        fileInfo.setFileMd5(generateFileMd5(completeFile));
-        fileInfo.setUploadUserId(userId);
-        fileInfo.setUploadUserName("用户" + userId);
-        fileInfo.setStatus(1);
-        fileInfo.setDownloadCount(0);
-        fileInfo.setPreviewCount(0);
-        fileInfo.setBucketName("elasticsearch");
-        fileInfo.setObjectName(objectName);
-        
-        // 保存到数据库
-        fileInfoMapper.insert(fileInfo);
-        
-        // 清理缓存
-        cleanupUploadCache(chunkId);
+        // 内容未存储（或抽查期间已被删除）：返回按哈希复用的上传会话及已持有的分片
+        int chunks = totalChunks != null && totalChunks > 0 ? totalChunks : 1;
+        openChunkSession(uploadId, fileName, fileSize, chunks, uploadDto);
         
-        return fileInfo;
+        result.put("exists", false);
+        result.put("uploadId", uploadId);
+        result.put("totalChunks", chunks);
+        result.put("uploadedChunks", uploadSessionRepository.getReceivedChunks(uploadId));
+        return result;
     }
 
     /**
      * 断点续传
      */
     @Override
-    public FileInfo resumeUpload(String uploadId, Integer chunkNumber, byte[] chunkData) {
-        // 获取上传进度
-        Map<String, Object> progress = getUploadProgress(uploadId);
-        if (progress == null) {
+    public FileInfo resumeUpload(String uploadId, Integer chunkNumber, byte[] chunkData, Long userId) {
+        // 会话保存在Redis中，可在任意节点续传
+        Map<String, Object> session = uploadSessionRepository.getSession(uploadId);
+        if (session == null) {
             throw new RuntimeException("上传会话不存在");
         }
         
         // 继续分片上传
         return uploadFileChunk(uploadId, chunkNumber, 
-                             (Integer) progress.get("totalChunks"), 
+                             getInteger(session, "totalChunks"), 
                              chunkData, 
-                             (String) progress.get("fileName"), 
-                             (Long) progress.get("fileSize"));
+                             (String) session.get("fileName"), 
+                             getLong(session, "fileSize"), 
+                             userId);
     }
 
     /**
      * 取消上传
      */
     @Override
-    public boolean cancelUpload(String uploadId) {
+    public boolean cancelUpload(String uploadId, Long userId) {
+        Map<String, Object> session = uploadSessionRepository.getSession(uploadId);
+        if (session == null) {
+            return false;
+        }
+        checkSessionOwner(session, userId);
         return cleanupUploadCache(uploadId);
     }
 
@@ -226,8 +341,23 @@ public class FileUploadServiceImpl implements FileUploadService {
      * 获取上传进度
      */
     @Override
-    public Map<String, Object> getUploadProgress(String uploadId) {
-        return uploadProgressCache.get(uploadId);
+    public Map<String, Object> getUploadProgress(String uploadId, Long userId) {
+        Map<String, Object> session = uploadSessionRepository.getSession(uploadId);
+        if (session == null) {
+            return null;
+        }
+        checkSessionOwner(session, userId);
+        
+        List<Integer> receivedChunks = uploadSessionRepository.getReceivedChunks(uploadId);
+        int totalChunks = getInteger(session, "totalChunks");
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("uploadedChunks", receivedChunks.size());
+        progress.put("receivedChunks", receivedChunks);
+        progress.put("totalChunks", totalChunks);
+        progress.put("fileName", session.get("fileName"));
+        progress.put("fileSize", getLong(session, "fileSize"));
+        progress.put("progress", receivedChunks.size() * 100.0 / totalChunks);
+        return progress;
     }
 
     /**
@@ -264,17 +394,7 @@ public class FileUploadServiceImpl implements FileUploadService {
      */
     @Override
     public String generateFileMd5(byte[] fileData) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(fileData);
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b & 0xff));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5算法不可用", e);
-        }
+        return MinioStorageUtil.toHex(MinioStorageUtil.newMd5Digest().digest(fileData));
     }
 
     /**
@@ -282,7 +402,10 @@ public class FileUploadServiceImpl implements FileUploadService {
      */
     @Override
     public FileInfo checkDuplicateFile(String fileMd5, Long userId) {
-        return fileInfoMapper.selectByFileMd5(fileMd5);
+        if (fileMd5 == null || userId == null) {
+            return null;
+        }
+        return fileInfoMapper.selectByFileMd5AndUserId(fileMd5, userId);
     }
 
     /**
@@ -302,8 +425,26 @@ public class FileUploadServiceImpl implements FileUploadService {
      */
     @Override
     public boolean cleanupUploadCache(String uploadId) {
-        chunkCache.remove(uploadId);
-        uploadProgressCache.remove(uploadId);
+        Map<String, Object> multipart = uploadSessionRepository.getMultipartUpload(uploadId);
+        if (multipart != null) {
+            String objectName = (String) multipart.get("objectName");
+            if (!Boolean.TRUE.equals(multipart.get("completed"))) {
+                minioStorageService.abortMultipartUpload(objectName, (String) multipart.get("multipartUploadId"));
+            } else if (fileInfoMapper.countByObjectName(objectName) == 0) {
+                // 已合并但没有保存文件记录的对象
+                minioStorageService.deleteFile(objectName);
+            }
+        }
+        Integer stagedChunks = uploadSessionRepository.getStagedChunkCount(uploadId);
+        if (stagedChunks != null) {
+            List<String> chunkObjects = new ArrayList<>();
+            for (int chunkNumber = 0; chunkNumber < stagedChunks; chunkNumber++) {
+                chunkObjects.add(getChunkObjectName(uploadId, chunkNumber));
+            }
+            // 未收到的分片对象不存在，删除失败只记录日志
+            minioStorageService.batchDeleteFiles(chunkObjects);
+        }
+        uploadSessionRepository.deleteSession(uploadId);
         return true;
     }
 
@@ -320,40 +461,33 @@ public class FileUploadServiceImpl implements FileUploadService {
         fileInfo.setFileType(file.getContentType());
         fileInfo.setFileExtension(getFileExtension(file.getOriginalFilename()));
         
-        try {
-            fileInfo.setFileMd5(generateFileMd5(file.getBytes()));
-        } catch (IOException e) {
-            logger.warn("无法读取文件内容生成MD5: {}", file.getOriginalFilename(), e);
-            fileInfo.setFileMd5(UUID.randomUUID().toString());
-        }
+        // 用户信息和其他信息
+        applyUploadInfo(fileInfo, uploadDto);
         
-        // 用户信息
+        return fileInfo;
+    }
+
+    /**
+     * 设置上传时提交的用户信息、描述、标签、公开状态和目标文件夹
+     */
+    private void applyUploadInfo(FileInfo fileInfo, FileUploadDto uploadDto) {
         fileInfo.setUploadUserId(uploadDto.getUploadUserId());
         fileInfo.setUploadUserName(uploadDto.getUploadUserName());
-        
-        // 其他信息
         fileInfo.setDescription(uploadDto.getDescription());
         fileInfo.setTags(uploadDto.getTags());
         fileInfo.setIsPublic(uploadDto.getIsPublic());
+        fileInfo.setParentFolderId(uploadDto.getParentFolderId());
         fileInfo.setStatus(1); // 1: 正常
-        
-        return fileInfo;
     }
 
     /**
-     * 更新上传进度
+     * 保存文件信息并同步标签和索引，需在事务中调用；写入期间目标文件夹不能被删除或移动
      */
-    private void updateUploadProgress(String chunkId, Integer chunkNumber, Integer totalChunks, 
-                                    String fileName, Long fileSize) {
-        Map<String, Object> progress = new HashMap<>();
-        progress.put("chunkNumber", chunkNumber);
-        progress.put("totalChunks", totalChunks);
-        progress.put("fileName", fileName);
-        progress.put("fileSize", fileSize);
-        progress.put("progress", (chunkNumber + 1) * 100.0 / totalChunks);
-        progress.put("lastUpdate", System.currentTimeMillis());
-        
-        uploadProgressCache.put(chunkId, progress);
+    private void saveFileInfo(FileInfo fileInfo) {
+        fileInfo.setFolderPath(fileOperationService.resolveFolderPath(fileInfo.getParentFolderId()));
+        fileInfoMapper.insert(fileInfo);
+        tagService.syncTags(fileInfo);
+        fileIndexingService.enqueueIndex(fileInfo.getId());
     }
 
     /**
@@ -409,72 +543,461 @@ public class FileUploadServiceImpl implements FileUploadService {
         return String.format("files/%s/%s/%s", userIdStr, dateStr, fileName);
     }
 
+    /**
+     * 根据已存储的内容直接创建文件记录（秒传）
+     * 内容不存在或大小不一致时返回null
+     */
+    private FileInfo createFileFromExistingBlob(String contentHash, Long fileSize, String fileName, 
+                                                FileUploadDto uploadDto) {
+        FileBlob existingBlob = fileBlobService.getBlob(contentHash);
+        if (existingBlob == null || !existingBlob.getFileSize().equals(fileSize)) {
+            return null;
+        }
+        
+        // 同一用户已有相同内容的文件时直接返回
+        FileInfo duplicateFile = checkDuplicateFile(existingBlob.getFileMd5(), uploadDto.getUploadUserId());
+        if (duplicateFile != null) {
+            return duplicateFile;
+        }
+        
+        FileBlob fileBlob = fileBlobService.acquireExisting(contentHash);
+        if (fileBlob == null) {
+            return null;
+        }
+        
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setFileName(generateFileName(fileName));
+        fileInfo.setOriginalFileName(fileName);
+        fileInfo.setFileSize(fileBlob.getFileSize());
+        fileInfo.setFileType(getContentType(fileName));
+        fileInfo.setFileExtension(getFileExtension(fileName));
+        fileInfo.setFileMd5(fileBlob.getFileMd5());
+        fileInfo.setContentHash(contentHash);
+        applyUploadInfo(fileInfo, uploadDto);
+        fileInfo.setDownloadCount(0);
+        fileInfo.setPreviewCount(0);
+        fileInfo.setBucketName(fileBlob.getBucketName());
+        fileInfo.setObjectName(fileBlob.getObjectName());
+        fileInfo.setFileUrl(minioStorageService.getFileUrl(fileBlob.getObjectName()));
+        
+        saveFileInfo(fileInfo);
+        contentExtractionService.submit(fileInfo);
+        
+        logger.info("秒传成功: {}, 大小: {} bytes, 复用对象: {}", 
+            fileName, fileInfo.getFileSize(), fileInfo.getObjectName());
+        return fileInfo;
+    }
+
+    /**
+     * 生成秒传内容抽查：随机选取文件中的一段，客户端需回答 SHA-256(随机串 + 该段字节)
+     */
+    private Map<String, Object> issueChallenge(String challengeId, long fileSize) {
+        long length = Math.min(fileSize, CHALLENGE_RANGE_SIZE);
+        long offset = (long) (secureRandom.nextDouble() * (fileSize - length + 1));
+        
+        Map<String, Object> challenge = new HashMap<>();
+        challenge.put("offset", offset);
+        challenge.put("length", length);
+        challenge.put("nonce", UUID.randomUUID().toString().replace("-", ""));
+        uploadSessionRepository.saveChallenge(challengeId, challenge, CHALLENGE_TTL_SECONDS);
+        return challenge;
+    }
+
+    /**
+     * 读取已存储内容的抽查范围校验客户端的回答，每次抽查只能回答一次
+     */
+    private boolean verifyPossession(String challengeId, FileBlob fileBlob, String proof) {
+        Map<String, Object> challenge = uploadSessionRepository.takeChallenge(challengeId);
+        if (challenge == null) {
+            throw new RuntimeException("内容抽查不存在或已过期，请重新预检");
+        }
+        long offset = getLong(challenge, "offset");
+        long length = getLong(challenge, "length");
+        
+        MessageDigest sha256 = MinioStorageUtil.newSha256Digest();
+        sha256.update(((String) challenge.get("nonce")).getBytes(StandardCharsets.UTF_8));
+        if (length > 0) {
+            try (InputStream inputStream = new DigestInputStream(
+                    minioStorageService.downloadFileRange(fileBlob.getObjectName(), offset, length), sha256)) {
+                byte[] buffer = new byte[8192];
+                while (inputStream.read(buffer) != -1) {
+                    // 读取过程中累计摘要
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("读取抽查内容失败: " + e.getMessage());
+            }
+        }
+        byte[] expected = MinioStorageUtil.toHex(sha256.digest()).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, proof.toLowerCase().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 将文件记录绑定到内容寻址的存储对象
+     * 相同内容已存储时改为引用已有对象，本次上传的冗余对象由内容服务删除
+     */
+    private void bindContentBlob(FileInfo fileInfo, String contentHash) {
+        fileInfo.setContentHash(contentHash);
+        FileBlob fileBlob = fileBlobService.register(contentHash, fileInfo.getFileMd5(), 
+            fileInfo.getFileSize(), fileInfo.getBucketName(), fileInfo.getObjectName());
+        if (fileBlob != null && !fileBlob.getObjectName().equals(fileInfo.getObjectName())) {
+            fileInfo.setObjectName(fileBlob.getObjectName());
+            fileInfo.setFileUrl(minioStorageService.getFileUrl(fileBlob.getObjectName()));
+        }
+    }
+
     /**
      * 检查是否所有分片都已上传
      */
-    private boolean isAllChunksUploaded(String chunkId, Integer totalChunks) {
-        List<byte[]> chunks = chunkCache.get(chunkId);
-        if (chunks == null || chunks.size() < totalChunks) {
+    private boolean isAllChunksUploaded(String chunkId, Map<String, Object> session, Integer totalChunks) {
+        if (session == null || totalChunks == null || !totalChunks.equals(getInteger(session, "totalChunks"))) {
             return false;
         }
+        return uploadSessionRepository.countReceivedChunks(chunkId) == totalChunks;
+    }
+
+    /**
+     * 获取或创建分片上传会话
+     * 分片不小于S3最小分片大小时直接映射为MinIO原生分片上传，否则逐片暂存为MinIO对象，完成时按序合并；
+     * 两种方式的分片都在共享存储中，同一会话的请求可以到达任意节点；
+     * 预检时提交的描述、标签等信息随会话保存，完成时写入文件记录
+     */
+    private Map<String, Object> openChunkSession(String uploadId, String fileName, long fileSize, 
+                                                 int totalChunks, FileUploadDto uploadDto) {
+        Long ownerId = uploadDto.getUploadUserId();
+        if (uploadId == null || !uploadId.matches(UPLOAD_ID_PATTERN)) {
+            throw new RuntimeException("分片会话ID无效: " + uploadId);
+        }
+        if (ownerId == null) {
+            throw new RuntimeException("上传用户不能为空");
+        }
         
-        for (int i = 0; i < totalChunks; i++) {
-            if (chunks.get(i) == null) {
-                return false;
+        Map<String, Object> session = uploadSessionRepository.getSession(uploadId);
+        if (session == null) {
+            session = new HashMap<>();
+            session.put("fileName", fileName);
+            session.put("fileSize", fileSize);
+            session.put("totalChunks", totalChunks);
+            session.put("ownerId", ownerId);
+            session.put("uploadUserName", uploadDto.getUploadUserName());
+            session.put("description", uploadDto.getDescription());
+            session.put("tags", uploadDto.getTags());
+            session.put("isPublic", uploadDto.getIsPublic());
+            session.put("parentFolderId", uploadDto.getParentFolderId());
+            session.put("createTime", System.currentTimeMillis());
+            
+            // 除最后一片外每片大小不小于 fileSize / totalChunks
+            boolean multipart = totalChunks > 1
+                && totalChunks <= MAX_MULTIPART_PARTS
+                && fileSize / totalChunks >= MIN_MULTIPART_PART_SIZE;
+            String objectName = null;
+            String multipartUploadId = null;
+            if (multipart) {
+                objectName = generateObjectName(fileName, ownerId);
+                multipartUploadId = minioStorageService.createMultipartUpload(objectName, getContentType(fileName));
+                session.put("objectName", objectName);
+                session.put("multipartUploadId", multipartUploadId);
+            }
+            
+            if (!uploadSessionRepository.createSession(uploadId, session)) {
+                // 其他请求已创建同一会话，放弃本次创建的分片上传
+                if (multipartUploadId != null) {
+                    minioStorageService.abortMultipartUpload(objectName, multipartUploadId);
+                }
+                session = uploadSessionRepository.getSession(uploadId);
+                if (session == null) {
+                    throw new RuntimeException("上传会话创建失败: " + uploadId);
+                }
             }
         }
-        return true;
+        
+        checkSessionOwner(session, ownerId);
+        if (getInteger(session, "totalChunks") != totalChunks || getLong(session, "fileSize") != fileSize) {
+            throw new RuntimeException("分片参数与已有上传会话不一致");
+        }
+        return session;
     }
 
     /**
-     * 合并分片并上传
+     * 上传会话ID可以猜测，只允许会话创建者上传分片、查询进度和取消
      */
-    private FileInfo mergeChunksAndUpload(String chunkId, String fileName, Long fileSize) {
-        List<byte[]> chunks = chunkCache.get(chunkId);
+    private void checkSessionOwner(Map<String, Object> session, Long userId) {
+        if (userId == null || !userId.equals(getLong(session, "ownerId"))) {
+            throw new RuntimeException("无权访问该上传会话");
+        }
+    }
+
+    /**
+     * 校验分片大小：除最后一片外的分片大小一致，最后一片不大于其余分片，合计等于文件大小
+     * 两类分片的大小以首个到达的为准记录在会话中，大小不符的分片不写入也不计入位图
+     */
+    private void checkChunkSize(String chunkId, int chunkNumber, int totalChunks, int length, long fileSize) {
+        if (totalChunks == 1) {
+            if (length != fileSize) {
+                throw new RuntimeException("分片大小与文件大小不匹配: " + chunkNumber);
+            }
+            return;
+        }
         
-        // 计算总大小
-        int totalSize = chunks.stream()
-            .filter(chunk -> chunk != null)
-            .mapToInt(chunk -> chunk.length)
-            .sum();
+        boolean lastChunk = chunkNumber == totalChunks - 1;
+        Long recorded = uploadSessionRepository.getChunkSize(chunkId, lastChunk);
+        if (recorded != null && recorded != length) {
+            throw new RuntimeException("分片大小与会话记录不一致: " + chunkNumber + ", " + length + " != " + recorded);
+        }
+        checkChunkSizeTotal(chunkId, chunkNumber, totalChunks, lastChunk, length, fileSize);
         
-        // 合并分片
-        byte[] mergedData = new byte[totalSize];
-        int offset = 0;
-        for (byte[] chunk : chunks) {
-            if (chunk != null) {
-                System.arraycopy(chunk, 0, mergedData, offset, chunk.length);
-                offset += chunk.length;
+        long saved = uploadSessionRepository.saveChunkSize(chunkId, lastChunk, length);
+        if (saved != length) {
+            throw new RuntimeException("分片大小与会话记录不一致: " + chunkNumber + ", " + length + " != " + saved);
+        }
+        // 另一类分片在并发请求中刚记录时再校验一次
+        checkChunkSizeTotal(chunkId, chunkNumber, totalChunks, lastChunk, length, fileSize);
+    }
+
+    /**
+     * 结合会话中另一类分片的大小校验合计是否等于文件大小
+     */
+    private void checkChunkSizeTotal(String chunkId, int chunkNumber, int totalChunks, 
+                                     boolean lastChunk, int length, long fileSize) {
+        Long other = uploadSessionRepository.getChunkSize(chunkId, !lastChunk);
+        long chunkSize = lastChunk ? (other != null ? other : fileSize) : length;
+        long lastSize = lastChunk ? length : (other != null ? other : fileSize - chunkSize * (totalChunks - 1));
+        boolean matched = length > 0 && lastSize > 0 && lastSize <= chunkSize
+            && (other == null || chunkSize * (totalChunks - 1) + lastSize == fileSize);
+        if (!matched) {
+            throw new RuntimeException("分片大小与文件大小不匹配: " + chunkNumber + ", 大小: " + length);
+        }
+    }
+
+    /**
+     * 获取暂存分片的对象名称
+     */
+    private String getChunkObjectName(String chunkId, int chunkNumber) {
+        if (chunkId == null || !chunkId.matches(UPLOAD_ID_PATTERN)) {
+            throw new RuntimeException("分片会话ID无效: " + chunkId);
+        }
+        return String.format("chunks/%s/%d", chunkId, chunkNumber);
+    }
+
+    /**
+     * 按分片序号依次打开暂存分片，拼接为完整文件的输入流
+     * 每个分片在读到时才打开，读完即关闭
+     */
+    private InputStream openStagedChunks(String chunkId, int totalChunks) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private int nextChunk = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return nextChunk < totalChunks;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return minioStorageService.downloadFile(getChunkObjectName(chunkId, nextChunk++));
             }
+        });
+    }
+
+    /**
+     * 按序读取暂存分片流式上传到MinIO并保存文件信息
+     */
+    private FileInfo completeChunkUpload(String chunkId, Map<String, Object> session, Long userId) {
+        Long ownerId = userId != null ? userId : getLong(session, "ownerId");
+        if (session.get("multipartUploadId") != null) {
+            return completeMultipartUpload(chunkId, session, ownerId);
         }
         
-        // 生成对象名称
-        String objectName = generateObjectName(fileName, null);
+        String fileName = (String) session.get("fileName");
+        Long fileSize = getLong(session, "fileSize");
+        String objectName = generateObjectName(fileName, ownerId);
+        // 已上传但还没有文件记录引用的对象，失败时删除
+        String unreferencedObject = null;
         
         try {
-            // 上传到MinIO
-            String fileUrl = minioStorageService.uploadBytes(mergedData, objectName, "application/octet-stream");
+            // 流式上传到MinIO并同时计算MD5和SHA-256，不在堆内组装完整文件
+            MessageDigest md = MinioStorageUtil.newMd5Digest();
+            MessageDigest sha256 = MinioStorageUtil.newSha256Digest();
+            String fileUrl;
+            try (InputStream inputStream = new DigestInputStream(new DigestInputStream(
+                    new BufferedInputStream(openStagedChunks(chunkId, getInteger(session, "totalChunks"))), md), sha256)) {
+                // 分片总长不足时上传失败，超出时上传后仍有剩余数据
+                fileUrl = minioStorageService.uploadStream(inputStream, fileSize, objectName, getContentType(fileName));
+                unreferencedObject = objectName;
+                if (inputStream.read() != -1) {
+                    throw new RuntimeException("分片文件大小不一致: 分片总长超过 " + fileSize);
+                }
+            }
             
             // 创建文件信息
             FileInfo fileInfo = new FileInfo();
             fileInfo.setFileName(fileName);
-            fileInfo.setFileSize((long) totalSize);
+            fileInfo.setOriginalFileName(fileName);
+            fileInfo.setFileSize(fileSize);
+            fileInfo.setFileType(getContentType(fileName));
+            fileInfo.setFileExtension(getFileExtension(fileName));
+            fileInfo.setFileMd5(MinioStorageUtil.toHex(md.digest()));
+            applyUploadInfo(fileInfo, toUploadDto(session, ownerId));
+            fileInfo.setDownloadCount(0);
+            fileInfo.setPreviewCount(0);
+            fileInfo.setBucketName("elasticsearch");
             fileInfo.setObjectName(objectName);
             fileInfo.setFileUrl(fileUrl);
-            fileInfo.setStatus(1);
+            String contentHash = MinioStorageUtil.toHex(sha256.digest());
             
             // 保存到数据库
-            fileInfoMapper.insert(fileInfo);
+            transactionTemplate.executeWithoutResult(status -> {
+                bindContentBlob(fileInfo, contentHash);
+                saveFileInfo(fileInfo);
+            });
+            unreferencedObject = null;
+            contentExtractionService.submit(fileInfo);
             
             // 清理缓存
             cleanupUploadCache(chunkId);
             
-            logger.info("分片文件合并上传成功: {}, 大小: {} bytes", fileName, totalSize);
+            logger.info("分片文件合并上传成功: {}, 大小: {} bytes", fileName, fileSize);
             return fileInfo;
             
         } catch (Exception e) {
             logger.error("分片文件合并上传失败: {}", fileName, e);
+            if (unreferencedObject != null) {
+                // 暂存分片保留，重试时重新合并上传
+                minioStorageService.deleteFile(unreferencedObject);
+            }
+            uploadSessionRepository.releaseCompletion(chunkId);
             throw new RuntimeException("分片文件合并上传失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 等待所有分片上传完成后由MinIO服务端合并对象并保存文件信息
+     */
+    private FileInfo completeMultipartUpload(String chunkId, Map<String, Object> session, Long userId) {
+        String fileName = (String) session.get("fileName");
+        String objectName = (String) session.get("objectName");
+        long fileSize = getLong(session, "fileSize");
+        
+        try {
+            String fileUrl;
+            Map<String, Object> multipart = uploadSessionRepository.getMultipartUpload(chunkId);
+            if (multipart != null && Boolean.TRUE.equals(multipart.get("completed"))) {
+                // 上次完成时对象已合并，只重新保存文件信息
+                fileUrl = minioStorageService.getFileUrl(objectName);
+            } else {
+                Map<Integer, String> partEtags = uploadSessionRepository.getPartEtags(chunkId);
+                if (partEtags.size() != getInteger(session, "totalChunks")) {
+                    throw new RuntimeException("分片ETag不完整: " + partEtags.size());
+                }
+                fileUrl = minioStorageService.completeMultipartUpload(
+                    objectName, (String) session.get("multipartUploadId"), partEtags);
+                uploadSessionRepository.markMultipartCompleted(chunkId);
+            }
+            
+            // 分片可能乱序到达不同节点，合并后按序读取一遍对象计算摘要，只占用固定大小的缓冲
+            String[] digests = digestStoredObject(objectName, fileSize);
+            String md5Hex = digests[0];
+            String contentHash = digests[1];
+            
+            // 创建文件信息
+            FileInfo fileInfo = new FileInfo();
+            fileInfo.setFileName(fileName);
+            fileInfo.setOriginalFileName(fileName);
+            fileInfo.setFileSize(fileSize);
+            fileInfo.setFileType(getContentType(fileName));
+            fileInfo.setFileExtension(getFileExtension(fileName));
+            fileInfo.setFileMd5(md5Hex);
+            applyUploadInfo(fileInfo, toUploadDto(session, userId));
+            fileInfo.setDownloadCount(0);
+            fileInfo.setPreviewCount(0);
+            fileInfo.setBucketName("elasticsearch");
+            fileInfo.setObjectName(objectName);
+            fileInfo.setFileUrl(fileUrl);
+            String storedHash = contentHash;
+            
+            // 保存到数据库
+            transactionTemplate.executeWithoutResult(status -> {
+                bindContentBlob(fileInfo, storedHash);
+                saveFileInfo(fileInfo);
+            });
+            uploadSessionRepository.removeMultipartUpload(chunkId);
+            contentExtractionService.submit(fileInfo);
+            
+            // 清理缓存
+            cleanupUploadCache(chunkId);
+            
+            logger.info("分片文件上传完成: {}, 大小: {} bytes, 分片数: {}", 
+                fileName, fileSize, getInteger(session, "totalChunks"));
+            return fileInfo;
+            
+        } catch (Exception e) {
+            // 保留会话和分片ETag，释放完成权后可重试；对象已合并时重试跳过合并
+            logger.error("分片文件上传完成失败: {}", fileName, e);
+            uploadSessionRepository.releaseCompletion(chunkId);
+            throw new RuntimeException("分片文件上传完成失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 流式回读已存储的对象，计算MD5和SHA-256并核对对象大小
+     */
+    private String[] digestStoredObject(String objectName, long fileSize) throws IOException {
+        MessageDigest md = MinioStorageUtil.newMd5Digest();
+        MessageDigest sha256 = MinioStorageUtil.newSha256Digest();
+        try (InputStream inputStream = new DigestInputStream(new DigestInputStream(
+                minioStorageService.downloadFile(objectName), md), sha256)) {
+            byte[] buffer = new byte[64 * 1024];
+            long totalRead = 0;
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                totalRead += read;
+            }
+            if (totalRead != fileSize) {
+                throw new RuntimeException("分片文件大小不一致: " + totalRead + " != " + fileSize);
+            }
+        }
+        return new String[] {MinioStorageUtil.toHex(md.digest()), MinioStorageUtil.toHex(sha256.digest())};
+    }
+
+    /**
+     * 清理过期的上传会话
+     * 中止过期会话的MinIO分片上传，并删除暂存分片
+     */
+    @Scheduled(fixedDelayString = "${file.upload.cleanup-interval:600000}")
+    public void cleanupExpiredUploads() {
+        for (String uploadId : uploadSessionRepository.findExpiredSessions()) {
+            // 多个节点同时清理时只由移出索引的节点处理
+            if (uploadSessionRepository.removeFromIndex(uploadId)) {
+                try {
+                    cleanupUploadCache(uploadId);
+                    logger.info("清理过期上传会话: {}", uploadId);
+                } catch (Exception e) {
+                    logger.warn("清理过期上传会话失败: {}", uploadId, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 从上传会话还原预检时提交的上传信息
+     */
+    private static FileUploadDto toUploadDto(Map<String, Object> session, Long ownerId) {
+        FileUploadDto uploadDto = new FileUploadDto();
+        uploadDto.setUploadUserId(ownerId);
+        uploadDto.setUploadUserName((String) session.get("uploadUserName"));
+        uploadDto.setDescription((String) session.get("description"));
+        uploadDto.setTags((String) session.get("tags"));
+        uploadDto.setIsPublic(getInteger(session, "isPublic"));
+        uploadDto.setParentFolderId(getLong(session, "parentFolderId"));
+        return uploadDto;
+    }
+
+    private static Integer getInteger(Map<String, Object> session, String key) {
+        Object value = session.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+
+    private static Long getLong(Map<String, Object> session, String key) {
+        Object value = session.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
 }
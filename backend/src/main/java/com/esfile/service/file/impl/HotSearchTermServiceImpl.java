@@ -0,0 +1,184 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.util.HeavyHitterSketch;
+import com.esfile.repository.redis.HotSearchTermRepository;
+import com.esfile.service.file.HotSearchTermService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 热门搜索词服务实现类
+ * 每个窗口一个HeavyHitterSketch，定时按窗口长度指数衰减（计数的平均寿命等于窗口长度）；
+ * 各节点定时把快照发布到Redis并合并所有节点的快照，合并结果过期前优先使用
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class HotSearchTermServiceImpl implements HotSearchTermService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotSearchTermServiceImpl.class);
+
+    // 时间窗口 -> 窗口长度
+    private static final Map<String, Duration> WINDOWS = new LinkedHashMap<>();
+
+    static {
+        WINDOWS.put("hour", Duration.ofHours(1));
+        WINDOWS.put("day", Duration.ofDays(1));
+        WINDOWS.put("week", Duration.ofDays(7));
+    }
+
+    // 超过该长度的搜索词不统计
+    private static final int MAX_TERM_LENGTH = 64;
+
+    @Autowired
+    private HotSearchTermRepository hotSearchTermRepository;
+
+    @Value("${search.hot-terms.capacity:100}")
+    private int capacity;
+
+    @Value("${search.hot-terms.width:2048}")
+    private int width;
+
+    @Value("${search.hot-terms.depth:4}")
+    private int depth;
+
+    @Value("${search.hot-terms.decay-interval:60000}")
+    private long decayIntervalMillis;
+
+    @Value("${search.hot-terms.merge-interval:60000}")
+    private long mergeIntervalMillis;
+
+    private final Map<String, HeavyHitterSketch> sketches = new LinkedHashMap<>();
+
+    // 时间窗口 -> 最近一次合并的集群统计
+    private final Map<String, HeavyHitterSketch.Merged> clusterViews = new ConcurrentHashMap<>();
+
+    private volatile long mergedAt;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @PostConstruct
+    public void init() {
+        for (String window : WINDOWS.keySet()) {
+            sketches.put(window, new HeavyHitterSketch(width, depth, capacity));
+        }
+    }
+
+    @Override
+    public void record(String term) {
+        String normalized = normalize(term);
+        if (normalized == null) {
+            return;
+        }
+        for (HeavyHitterSketch sketch : sketches.values()) {
+            sketch.add(normalized, 1);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> getHotTerms(String window, int limit) {
+        List<HeavyHitterSketch.TermCount> top;
+        HeavyHitterSketch.Merged clusterView = freshClusterView(window);
+        if (clusterView != null) {
+            top = clusterView.getTop();
+        } else {
+            top = sketch(window).top(limit);
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(Math.min(limit, top.size()));
+        for (HeavyHitterSketch.TermCount termCount : top) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Map<String, Object> item = new HashMap<>();
+            item.put("term", termCount.getTerm());
+            item.put("count", Math.round(termCount.getCount()));
+            result.add(item);
+        }
+        return result;
+    }
+
+    @Override
+    public long getTotal(String window) {
+        HeavyHitterSketch.Merged clusterView = freshClusterView(window);
+        return Math.round(clusterView != null ? clusterView.getTotal() : sketch(window).getTotal());
+    }
+
+    @Override
+    public void clear() {
+        sketches.values().forEach(HeavyHitterSketch::clear);
+        clusterViews.clear();
+    }
+
+    /**
+     * 按窗口长度衰减
+     */
+    @Scheduled(fixedRateString = "${search.hot-terms.decay-interval:60000}")
+    public void decay() {
+        WINDOWS.forEach((window, length) -> 
+            sketches.get(window).decay(Math.exp(-(double) decayIntervalMillis / length.toMillis())));
+    }
+
+    /**
+     * 发布本节点快照并合并所有节点
+     */
+    @Scheduled(fixedDelayString = "${search.hot-terms.merge-interval:60000}")
+    public void mergeWithCluster() {
+        try {
+            Duration ttl = Duration.ofMillis(mergeIntervalMillis * 3);
+            for (String window : WINDOWS.keySet()) {
+                hotSearchTermRepository.publish(window, nodeId, 
+                    objectMapper.writeValueAsString(sketches.get(window).snapshot()), ttl);
+
+                List<HeavyHitterSketch.Snapshot> snapshots = new ArrayList<>();
+                for (String json : hotSearchTermRepository.loadAll(window)) {
+                    snapshots.add(objectMapper.readValue(json, HeavyHitterSketch.Snapshot.class));
+                }
+                clusterViews.put(window, HeavyHitterSketch.merge(snapshots, width, depth, capacity));
+            }
+            mergedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            logger.warn("合并热门搜索词失败，使用本节点统计", e);
+        }
+    }
+
+    private HeavyHitterSketch.Merged freshClusterView(String window) {
+        if (System.currentTimeMillis() - mergedAt > mergeIntervalMillis * 3) {
+            return null;
+        }
+        return clusterViews.get(window);
+    }
+
+    private HeavyHitterSketch sketch(String window) {
+        HeavyHitterSketch sketch = sketches.get(window);
+        if (sketch == null) {
+            throw new RuntimeException("不支持的时间窗口: " + window);
+        }
+        return sketch;
+    }
+
+    private static String normalize(String term) {
+        if (term == null) {
+            return null;
+        }
+        String normalized = term.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty() || normalized.length() > MAX_TERM_LENGTH) {
+            return null;
+        }
+        return normalized;
+    }
+}
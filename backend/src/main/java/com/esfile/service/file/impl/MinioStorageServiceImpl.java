@@ -1,9 +1,12 @@
 package com.esfile.service.file.impl;
 
+import com.esfile.common.util.MinioMultipartClient;
+import com.esfile.common.util.MinioObjectStream;
 import com.esfile.service.file.MinioStorageService;
 import io.minio.*;
 import io.minio.errors.*;
 import io.minio.http.Method;
+import io.minio.messages.Part;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +22,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -36,6 +40,9 @@ public class MinioStorageServiceImpl implements MinioStorageService {
     @Autowired
     private MinioClient minioClient;
 
+    @Autowired
+    private MinioMultipartClient minioMultipartClient;
+
     @Value("${minio.bucket}")
     private String bucketName;
 
@@ -93,27 +100,141 @@ public class MinioStorageServiceImpl implements MinioStorageService {
     }
 
     @Override
-    public InputStream downloadFile(String objectName) {
+    public String uploadStream(InputStream inputStream, long size, String objectName, String contentType) {
         try {
-            // 检查文件是否存在
-            if (!fileExists(objectName)) {
-                throw new RuntimeException("文件不存在: " + objectName);
+            // 检查桶是否存在，不存在则创建
+            ensureBucketExists();
+            
+            // 已知大小时由SDK按分段流式上传
+            minioClient.putObject(
+                PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .stream(inputStream, size, -1)
+                    .contentType(contentType)
+                    .build()
+            );
+            
+            logger.info("文件流上传成功: {}, 大小: {} bytes", objectName, size);
+            return getFileUrl(objectName);
+            
+        } catch (Exception e) {
+            logger.error("文件流上传失败: {}", objectName, e);
+            throw new RuntimeException("文件流上传失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String createMultipartUpload(String objectName, String contentType) {
+        try {
+            // 检查桶是否存在，不存在则创建
+            ensureBucketExists();
+            
+            String uploadId = minioMultipartClient.createMultipartUpload(bucketName, objectName, contentType);
+            logger.info("创建分片上传成功: {}, uploadId: {}", objectName, uploadId);
+            return uploadId;
+            
+        } catch (Exception e) {
+            logger.error("创建分片上传失败: {}", objectName, e);
+            throw new RuntimeException("创建分片上传失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String uploadPart(String objectName, String uploadId, int partNumber, byte[] partData) {
+        try {
+            return minioMultipartClient.uploadPart(bucketName, objectName, uploadId, partNumber, partData);
+        } catch (Exception e) {
+            logger.error("分片上传失败: {}, 分片: {}", objectName, partNumber, e);
+            throw new RuntimeException("分片上传失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String completeMultipartUpload(String objectName, String uploadId, Map<Integer, String> partEtags) {
+        try {
+            // 分片必须按编号升序提交
+            Map<Integer, String> sortedEtags = new TreeMap<>(partEtags);
+            Part[] parts = new Part[sortedEtags.size()];
+            int index = 0;
+            for (Map.Entry<Integer, String> entry : sortedEtags.entrySet()) {
+                parts[index++] = new Part(entry.getKey(), entry.getValue());
             }
             
-            // 获取文件流
-            return minioClient.getObject(
+            minioMultipartClient.completeMultipartUpload(bucketName, objectName, uploadId, parts);
+            
+            logger.info("分片合并成功: {}, 分片数: {}", objectName, parts.length);
+            return getFileUrl(objectName);
+            
+        } catch (Exception e) {
+            logger.error("分片合并失败: {}", objectName, e);
+            throw new RuntimeException("分片合并失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectName, String uploadId) {
+        try {
+            minioMultipartClient.abortMultipartUpload(bucketName, objectName, uploadId);
+            logger.info("分片上传已中止: {}, uploadId: {}", objectName, uploadId);
+        } catch (Exception e) {
+            logger.error("中止分片上传失败: {}, uploadId: {}", objectName, uploadId, e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String objectName) {
+        return openObject(objectName);
+    }
+
+    @Override
+    public MinioObjectStream openObject(String objectName) {
+        try {
+            // 直接GET，不存在时由GET本身返回NoSuchKey，省去statObject往返
+            return new MinioObjectStream(minioClient.getObject(
                 GetObjectArgs.builder()
                     .bucket(bucketName)
                     .object(objectName)
                     .build()
-            );
+            ));
             
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new RuntimeException("文件不存在: " + objectName);
+            }
+            logger.error("文件下载失败: {}", objectName, e);
+            throw new RuntimeException("文件下载失败: " + e.getMessage());
         } catch (Exception e) {
             logger.error("文件下载失败: {}", objectName, e);
             throw new RuntimeException("文件下载失败: " + e.getMessage());
         }
     }
 
+    @Override
+    public InputStream downloadFileRange(String objectName, long offset, long length) {
+        try {
+            // 只向MinIO请求需要的区间
+            return new MinioObjectStream(minioClient.getObject(
+                GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .offset(offset)
+                    .length(length)
+                    .build()
+            ));
+            
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new RuntimeException("文件不存在: " + objectName);
+            }
+            logger.error("文件区间下载失败: {}, offset: {}, length: {}", objectName, offset, length, e);
+            throw new RuntimeException("文件下载失败: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("文件区间下载失败: {}, offset: {}, length: {}", objectName, offset, length, e);
+            throw new RuntimeException("文件下载失败: " + e.getMessage());
+        }
+    }
+
     @Override
     public boolean deleteFile(String objectName) {
         try {
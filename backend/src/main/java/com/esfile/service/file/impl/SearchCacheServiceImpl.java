@@ -0,0 +1,281 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.util.MinioStorageUtil;
+import com.esfile.entity.elasticsearch.FileDocument;
+import com.esfile.repository.redis.SearchCacheRepository;
+import com.esfile.service.file.SearchCacheService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 搜索结果缓存实现类
+ * 缓存键为查询名称、条件、分页排序和调用者可见范围规范化后的SHA-256摘要，前缀为索引代数；
+ * 索引代数保存在Redis中，本地每隔一段时间同步一次，本节点触发的失效立即生效
+ * 
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class SearchCacheServiceImpl implements SearchCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchCacheServiceImpl.class);
+
+    @Autowired
+    private SearchCacheRepository searchCacheRepository;
+
+    @Value("${search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.cache.local-max-entries:1000}")
+    private int localMaxEntries;
+
+    @Value("${search.cache.ttl:300}")
+    private long ttlSeconds;
+
+    // 同步Redis中索引代数的间隔（毫秒），其他节点触发的失效最多延迟这么久
+    @Value("${search.cache.generation-check-interval:1000}")
+    private long generationCheckInterval;
+
+    // 键按字段名排序、忽略空值，保证相同条件生成相同的键
+    private final ObjectMapper fingerprintMapper = new ObjectMapper()
+        .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<String, CachedPage> localCache = Collections.synchronizedMap(
+        new LinkedHashMap<String, CachedPage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPage> eldest) {
+                return size() > localMaxEntries;
+            }
+        });
+
+    // 缓存键 -> 正在进行的ES查询
+    private final Map<String, CompletableFuture<CachedPage>> inFlight = new ConcurrentHashMap<>();
+
+    private volatile long generation;
+
+    private volatile long generationCheckedAt;
+
+    private final AtomicLong localHits = new AtomicLong();
+
+    private final AtomicLong redisHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @Override
+    public Page<FileDocument> getPage(String name, Pageable pageable, Callable<Page<FileDocument>> loader, 
+                                      Object... params) throws Exception {
+        if (!enabled) {
+            return loader.call();
+        }
+
+        String key = currentGeneration() + ":" + fingerprint(name, pageable, params);
+        CachedPage cached = localCache.get(key);
+        if (cached != null) {
+            localHits.incrementAndGet();
+            return cached.toPage(pageable);
+        }
+
+        CompletableFuture<CachedPage> future = new CompletableFuture<>();
+        CompletableFuture<CachedPage> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.get().toPage(pageable);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        try {
+            CachedPage page = load(key, loader);
+            future.complete(page);
+            return page.toPage(pageable);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            generation = searchCacheRepository.incrementGeneration();
+            generationCheckedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            logger.warn("更新搜索缓存代数失败", e);
+        }
+        localCache.clear();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("generation", generation);
+        stats.put("localSize", localCache.size());
+        stats.put("localHits", localHits.get());
+        stats.put("redisHits", redisHits.get());
+        stats.put("misses", misses.get());
+        stats.put("coalesced", coalesced.get());
+        return stats;
+    }
+
+    /**
+     * 依次读取Redis和ES，查询结果写回两级缓存
+     */
+    private CachedPage load(String key, Callable<Page<FileDocument>> loader) throws Exception {
+        int separator = key.indexOf(':');
+        long keyGeneration = Long.parseLong(key.substring(0, separator));
+        String fingerprint = key.substring(separator + 1);
+
+        try {
+            String json = searchCacheRepository.getResult(keyGeneration, fingerprint);
+            if (json != null) {
+                CachedPage page = objectMapper.readValue(json, CachedPage.class);
+                redisHits.incrementAndGet();
+                localCache.put(key, page);
+                return page;
+            }
+        } catch (Exception e) {
+            logger.warn("读取搜索缓存失败: {}", fingerprint, e);
+        }
+
+        misses.incrementAndGet();
+        Page<FileDocument> result = loader.call();
+        CachedPage page = new CachedPage(result.getContent(), result.getTotalElements());
+        localCache.put(key, page);
+        try {
+            searchCacheRepository.saveResult(keyGeneration, fingerprint, 
+                objectMapper.writeValueAsString(page), Duration.ofSeconds(ttlSeconds));
+        } catch (Exception e) {
+            logger.warn("写入搜索缓存失败: {}", fingerprint, e);
+        }
+        return page;
+    }
+
+    private long currentGeneration() {
+        long now = System.currentTimeMillis();
+        if (now - generationCheckedAt > generationCheckInterval) {
+            try {
+                long latest = searchCacheRepository.getGeneration();
+                if (latest != generation) {
+                    localCache.clear();
+                }
+                generation = latest;
+            } catch (Exception e) {
+                logger.warn("读取搜索缓存代数失败", e);
+            }
+            generationCheckedAt = now;
+        }
+        return generation;
+    }
+
+    private String fingerprint(String name, Pageable pageable, Object... params) {
+        Map<String, Object> canonical = new LinkedHashMap<>();
+        canonical.put("name", name);
+        canonical.put("scope", currentScope());
+        canonical.put("page", pageable.getPageNumber());
+        canonical.put("size", pageable.getPageSize());
+        canonical.put("sort", pageable.getSort().toString());
+        List<Object> normalized = new ArrayList<>();
+        for (Object param : params) {
+            normalized.add(param instanceof String ? normalize((String) param) : param);
+        }
+        canonical.put("params", normalized);
+        try {
+            byte[] json = fingerprintMapper.writeValueAsBytes(canonical);
+            return MinioStorageUtil.toHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (Exception e) {
+            throw new RuntimeException("生成搜索缓存键失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 调用者可见范围，不同用户的结果分开缓存
+     */
+    private String currentScope() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() 
+                && !"anonymousUser".equals(authentication.getName())) {
+            return "user:" + authentication.getName();
+        }
+        return "anonymous";
+    }
+
+    private static String normalize(String value) {
+        return value.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * 缓存的分页结果
+     */
+    static class CachedPage {
+
+        private List<FileDocument> content;
+
+        private long total;
+
+        CachedPage() {
+        }
+
+        CachedPage(List<FileDocument> content, long total) {
+            this.content = new ArrayList<>(content);
+            this.total = total;
+        }
+
+        public List<FileDocument> getContent() {
+            return content;
+        }
+
+        public void setContent(List<FileDocument> content) {
+            this.content = content;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        Page<FileDocument> toPage(Pageable pageable) {
+            return new PageImpl<>(Collections.unmodifiableList(content), pageable, total);
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.util.CircuitBreaker;
+import com.esfile.entity.dto.FileSearchDto;
+import com.esfile.entity.elasticsearch.FileDocument;
+import com.esfile.entity.mybatis.FileInfo;
+import com.esfile.service.file.ElasticsearchSearchService;
+import com.esfile.service.file.FileIndexingService;
+import com.esfile.service.file.FileSearchService;
+import com.esfile.service.file.HotSearchTermService;
+import com.esfile.service.file.SearchRouterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 搜索路由服务实现类
+ * 每次搜索先交给ES，到对冲时间点（ES近期P95延迟）仍未返回时向ES再发一次相同的对冲请求，取先成功的结果；
+ * 数据库与ES的排序和分页不同，不用于对冲，只在ES全部失败、超过路由超时、熔断打开或线程池已满时降级使用，
+ * 同一查询的各页不会因为ES偶尔变慢而混用两个后端。超过路由超时仍未返回的调用按失败计入熔断器，
+ * 熔断打开时间过后只放行少量探测请求。调用在独立线程池中执行，请求线程最多等待到路由超时，不受ES套接字超时影响
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class SearchRouterServiceImpl implements SearchRouterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchRouterServiceImpl.class);
+
+    private static final String ELASTICSEARCH = "elasticsearch";
+
+    private static final String MYSQL = "mysql";
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // 延迟样本窗口大小
+    private static final int LATENCY_WINDOW = 512;
+
+    // 延迟样本少于该数量时使用配置的对冲延迟
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    // 每记录多少个样本重新计算一次对冲用的P95
+    private static final int PERCENTILE_REFRESH_INTERVAL = 16;
+
+    // 健康分指数移动平均的平滑系数
+    private static final double EWMA_ALPHA = 0.1;
+
+    @Autowired
+    private ElasticsearchSearchService elasticsearchSearchService;
+
+    @Autowired
+    private FileSearchService fileSearchService;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private HotSearchTermService hotSearchTermService;
+
+    @Autowired
+    @Qualifier("searchRouterExecutor")
+    private ThreadPoolTaskExecutor searchRouterExecutor;
+
+    // 未部署ES时关闭，所有搜索直接走数据库
+    @Value("${search.router.elasticsearch-enabled:true}")
+    private boolean elasticsearchEnabled;
+
+    @Value("${search.router.timeout:3000}")
+    private long timeoutMillis;
+
+    // 超过该耗时的成功调用也按失败计入熔断器
+    @Value("${search.router.slow-call-threshold:1000}")
+    private long slowCallMillis;
+
+    // 延迟样本不足时的对冲延迟
+    @Value("${search.router.hedge-delay:200}")
+    private long hedgeDelayMillis;
+
+    @Value("${search.router.min-hedge-delay:20}")
+    private long minHedgeDelayMillis;
+
+    // 对冲请求最多占全部搜索请求的比例
+    @Value("${search.router.hedge-ratio:0.1}")
+    private double hedgeRatio;
+
+    // ES健康分低于该值时不再对冲，避免向已过载的ES加倍发送请求
+    @Value("${search.router.min-health-score:30}")
+    private int minHealthScore;
+
+    @Value("${search.router.breaker.window-size:50}")
+    private int breakerWindowSize;
+
+    @Value("${search.router.breaker.minimum-calls:10}")
+    private int breakerMinimumCalls;
+
+    @Value("${search.router.breaker.failure-rate:50}")
+    private int breakerFailureRate;
+
+    @Value("${search.router.breaker.open-duration:10000}")
+    private long breakerOpenMillis;
+
+    @Value("${search.router.breaker.half-open-calls:3}")
+    private int breakerHalfOpenCalls;
+
+    private Backend elasticsearch;
+
+    private Backend mysql;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final AtomicLong degraded = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        elasticsearch = new Backend(ELASTICSEARCH);
+        mysql = new Backend(MYSQL);
+    }
+
+    @Override
+    public Map<String, Object> search(FileSearchDto searchDto) {
+        requests.incrementAndGet();
+        if (!elasticsearchEnabled) {
+            hotSearchTermService.record(searchDto.getKeyword());
+            return searchMysqlDirect(searchDto, null);
+        }
+        if (!elasticsearch.breaker.tryAcquire()) {
+            elasticsearch.shortCircuited.incrementAndGet();
+            hotSearchTermService.record(searchDto.getKeyword());
+            return searchMysqlDirect(searchDto, "circuit-open");
+        }
+
+        ExecutorCompletionService<Map<String, Object>> completion =
+            new ExecutorCompletionService<>(searchRouterExecutor.getThreadPoolExecutor());
+        Map<Future<Map<String, Object>>, BackendCall> pending = new HashMap<>();
+        if (!submit(completion, pending, elasticsearch, () -> searchElasticsearch(searchDto, false))) {
+            // ES调用未发出，热门搜索词由路由记录
+            hotSearchTermService.record(searchDto.getKeyword());
+            return searchMysqlDirect(searchDto, "busy");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long hedgeAt = start + TimeUnit.MILLISECONDS.toNanos(currentHedgeDelay());
+        boolean hedgeDecided = false;
+        boolean hedged = false;
+        String reason = "timeout";
+        try {
+            while (!pending.isEmpty()) {
+                long waitUntil = hedgeDecided ? deadline : Math.min(hedgeAt, deadline);
+                Future<Map<String, Object>> done = completion.poll(
+                    Math.max(0L, waitUntil - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (done != null) {
+                    BackendCall call = pending.remove(done);
+                    try {
+                        Map<String, Object> result = done.get();
+                        abandon(pending);
+                        return respond(result, call.backend, null, hedged);
+                    } catch (ExecutionException e) {
+                        // 已发出的对冲请求继续等待，ES已经失败时不再对冲
+                        logger.warn("{}搜索失败: {}", call.backend.name, e.getCause().getMessage());
+                        hedgeDecided = true;
+                        reason = "failed";
+                    }
+                    continue;
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+                if (hedgeDecided) {
+                    continue;
+                }
+                // 到达对冲时间点，向ES再发一次相同的请求
+                hedgeDecided = true;
+                if (elasticsearch.healthScore() >= minHealthScore && hedges.get() < requests.get() * hedgeRatio
+                        && elasticsearch.breaker.tryAcquire()
+                        && submit(completion, pending, elasticsearch, () -> searchElasticsearch(searchDto, true))) {
+                    hedges.incrementAndGet();
+                    hedged = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timeout(pending);
+            throw new RuntimeException("搜索被中断");
+        }
+
+        // ES全部失败或超时，降级到数据库；热门搜索词已由ES调用记录
+        timeout(pending);
+        return searchMysqlDirect(searchDto, reason);
+    }
+
+    @Override
+    public Map<String, Object> getBackendStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("elasticsearchEnabled", elasticsearchEnabled);
+        stats.put("requests", requests.get());
+        stats.put("hedges", hedges.get());
+        stats.put("degraded", degraded.get());
+        stats.put("hedgeDelay", currentHedgeDelay());
+        Map<String, Object> backends = new LinkedHashMap<>();
+        backends.put(ELASTICSEARCH, elasticsearch.getStats());
+        backends.put(MYSQL, mysql.getStats());
+        stats.put("backends", backends);
+        return stats;
+    }
+
+    /**
+     * 在请求线程中直接查询数据库，用于ES未启用、熔断打开、线程池已满或ES超时后的降级
+     */
+    private Map<String, Object> searchMysqlDirect(FileSearchDto searchDto, String reason) {
+        if (!mysql.breaker.tryAcquire()) {
+            mysql.shortCircuited.incrementAndGet();
+            throw new RuntimeException("搜索失败: 所有搜索后端均不可用");
+        }
+        BackendCall call = new BackendCall(mysql);
+        try {
+            Map<String, Object> result = searchMysql(searchDto);
+            call.complete(true);
+            return respond(result, mysql, reason, false);
+        } catch (RuntimeException e) {
+            call.complete(false);
+            logger.error("数据库搜索失败", e);
+            throw new RuntimeException("搜索失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 在线程池中调用后端，调用者的安全上下文随任务传递，搜索结果按调用者的可见范围过滤
+     *
+     * @return 线程池已满时返回false，并归还熔断器许可
+     */
+    private boolean submit(ExecutorCompletionService<Map<String, Object>> completion,
+                           Map<Future<Map<String, Object>>, BackendCall> pending,
+                           Backend backend, Callable<Map<String, Object>> search) {
+        BackendCall call = new BackendCall(backend);
+        Callable<Map<String, Object>> task = () -> {
+            try {
+                Map<String, Object> result = search.call();
+                call.complete(true);
+                return result;
+            } catch (Exception e) {
+                call.complete(false);
+                throw e;
+            }
+        };
+        try {
+            pending.put(completion.submit(new DelegatingSecurityContextCallable<>(task)), call);
+            return true;
+        } catch (RejectedExecutionException e) {
+            backend.rejected.incrementAndGet();
+            backend.breaker.release();
+            return false;
+        }
+    }
+
+    /**
+     * 已有结果后，耗时已超过慢调用阈值的调用按失败记录并取消，其余调用继续执行以记录真实延迟
+     */
+    private void abandon(Map<Future<Map<String, Object>>, BackendCall> pending) {
+        for (Map.Entry<Future<Map<String, Object>>, BackendCall> entry : pending.entrySet()) {
+            if (entry.getValue().elapsedMillis() >= slowCallMillis) {
+                entry.getValue().complete(false);
+                entry.getKey().cancel(true);
+            }
+        }
+    }
+
+    private void timeout(Map<Future<Map<String, Object>>, BackendCall> pending) {
+        for (Map.Entry<Future<Map<String, Object>>, BackendCall> entry : pending.entrySet()) {
+            if (entry.getValue().complete(false)) {
+                entry.getValue().backend.timeouts.incrementAndGet();
+            }
+            entry.getKey().cancel(true);
+        }
+    }
+
+    private Map<String, Object> respond(Map<String, Object> result, Backend backend, String reason, boolean hedged) {
+        backend.served.incrementAndGet();
+        boolean isDegraded = backend == mysql && elasticsearchEnabled;
+        if (isDegraded) {
+            degraded.incrementAndGet();
+            logger.debug("搜索降级到数据库: {}", reason);
+        }
+        result.put("backend", backend.name);
+        result.put("degraded", isDegraded);
+        result.put("hedged", hedged);
+        if (isDegraded) {
+            result.put("degradeReason", reason);
+        }
+        return result;
+    }
+
+    /**
+     * ES搜索，对冲请求不经过搜索缓存
+     */
+    private Map<String, Object> searchElasticsearch(FileSearchDto searchDto, boolean hedge) {
+        int page = searchDto.getPage() != null && searchDto.getPage() > 0 ? searchDto.getPage() : 1;
+        int size = searchDto.getSize() != null && searchDto.getSize() > 0
+            ? Math.min(searchDto.getSize(), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        PageRequest pageable = PageRequest.of(page - 1, size);
+        Page<FileDocument> documents = hedge
+            ? elasticsearchSearchService.hedgedAdvancedSearch(searchDto, pageable)
+            : elasticsearchSearchService.advancedSearch(searchDto, pageable);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", documents.getContent());
+        result.put("total", documents.getTotalElements());
+        result.put("page", page);
+        result.put("size", size);
+        result.put("pages", documents.getTotalPages());
+        return result;
+    }
+
+    /**
+     * 数据库全文检索，结果转换为与ES相同的文档格式
+     */
+    private Map<String, Object> searchMysql(FileSearchDto searchDto) {
+        Map<String, Object> result = fileSearchService.searchByCondition(searchDto);
+        List<FileDocument> documents = new ArrayList<>();
+        for (Object item : (List<?>) result.get("list")) {
+            documents.add(fileIndexingService.toDocument((FileInfo) item));
+        }
+        result.put("list", documents);
+        result.remove("nextCursor");
+        return result;
+    }
+
+    /**
+     * 对冲延迟：取ES近期P95延迟，样本不足时使用配置值
+     */
+    private long currentHedgeDelay() {
+        long p95 = elasticsearch.hedgePercentile;
+        long delay = p95 >= 0 ? p95 : hedgeDelayMillis;
+        return Math.max(minHedgeDelayMillis, Math.min(delay, timeoutMillis));
+    }
+
+    /**
+     * 单次后端调用，完成、失败和超时只记录一次
+     */
+    private static class BackendCall {
+
+        private final Backend backend;
+
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        BackendCall(Backend backend) {
+            this.backend = backend;
+        }
+
+        boolean complete(boolean success) {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            backend.record(success, elapsedMillis());
+            return true;
+        }
+
+        long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 搜索后端的熔断器和延迟统计
+     * 健康分 = 成功率的指数移动平均 × 延迟系数，平均延迟不超过慢调用阈值一半时系数为1，之后按比例下降
+     */
+    private class Backend {
+
+        private final String name;
+
+        private final CircuitBreaker breaker = new CircuitBreaker(breakerWindowSize, breakerMinimumCalls,
+            breakerFailureRate, breakerOpenMillis, breakerHalfOpenCalls);
+
+        private final AtomicLong calls = new AtomicLong();
+
+        private final AtomicLong failures = new AtomicLong();
+
+        private final AtomicLong timeouts = new AtomicLong();
+
+        private final AtomicLong shortCircuited = new AtomicLong();
+
+        private final AtomicLong rejected = new AtomicLong();
+
+        private final AtomicLong served = new AtomicLong();
+
+        // 最近成功调用的耗时（毫秒）
+        private final long[] latencies = new long[LATENCY_WINDOW];
+
+        private int latencyCount;
+
+        private int latencyPosition;
+
+        private long sampleCount;
+
+        private double latencyEwma;
+
+        private double successEwma = 1.0;
+
+        private volatile long hedgePercentile = -1L;
+
+        Backend(String name) {
+            this.name = name;
+        }
+
+        void record(boolean success, long latencyMillis) {
+            calls.incrementAndGet();
+            boolean healthy = success && latencyMillis < slowCallMillis;
+            if (healthy) {
+                breaker.onSuccess();
+            } else {
+                if (!success) {
+                    failures.incrementAndGet();
+                }
+                breaker.onFailure();
+            }
+
+            synchronized (this) {
+                latencyEwma = sampleCount == 0 ? latencyMillis
+                    : latencyEwma + EWMA_ALPHA * (latencyMillis - latencyEwma);
+                successEwma += EWMA_ALPHA * ((healthy ? 1.0 : 0.0) - successEwma);
+                sampleCount++;
+                if (success) {
+                    latencies[latencyPosition] = latencyMillis;
+                    latencyPosition = (latencyPosition + 1) % latencies.length;
+                    latencyCount = Math.min(latencyCount + 1, latencies.length);
+                    if (latencyCount % PERCENTILE_REFRESH_INTERVAL == 0 || latencyCount == latencies.length) {
+                        hedgePercentile = percentile(95);
+                    }
+                }
+            }
+        }
+
+        synchronized int healthScore() {
+            if (sampleCount == 0) {
+                return 100;
+            }
+            double halfSlow = slowCallMillis / 2.0;
+            double latencyFactor = latencyEwma <= halfSlow ? 1.0 : halfSlow / latencyEwma;
+            return (int) Math.round(successEwma * latencyFactor * 100);
+        }
+
+        /**
+         * 最近成功调用耗时的百分位，样本不足时返回-1
+         */
+        synchronized long percentile(int percent) {
+            if (latencyCount < MIN_LATENCY_SAMPLES) {
+                return -1L;
+            }
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("state", breaker.getState().name());
+            stats.put("failureRate", breaker.getFailureRate());
+            stats.put("openCount", breaker.getOpenCount());
+            stats.put("healthScore", healthScore());
+            stats.put("calls", calls.get());
+            stats.put("failures", failures.get());
+            stats.put("timeouts", timeouts.get());
+            stats.put("shortCircuited", shortCircuited.get());
+            stats.put("rejected", rejected.get());
+            stats.put("served", served.get());
+            synchronized (this) {
+                stats.put("latencyAvg", Math.round(latencyEwma));
+            }
+            stats.put("latencyP50", percentile(50));
+            stats.put("latencyP95", percentile(95));
+            stats.put("latencyP99", percentile(99));
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.constant.FileConstant;
+import com.esfile.entity.mybatis.Role;
+import com.esfile.entity.mybatis.User;
+import com.esfile.mapper.RoleMapper;
+import com.esfile.mapper.UserMapper;
+import com.esfile.service.file.SearchScopeService;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 搜索可见范围服务实现类
+ * 按用户名缓存编译好的过滤条件，查询时直接放进bool查询的filter子句，
+ * 由ES在分页和计数之前过滤，总数和页码保持准确；过滤条件不评分，可被ES节点缓存
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class SearchScopeServiceImpl implements SearchScopeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchScopeServiceImpl.class);
+
+    private static final String ANONYMOUS = "anonymousUser";
+
+    // 未登录用户只能看到公开文件
+    private static final QueryBuilder PUBLIC_ONLY = QueryBuilders.termQuery("isPublic", 1);
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private RoleMapper roleMapper;
+
+    @Value("${search.scope.cache-ttl:60000}")
+    private long cacheTtlMillis;
+
+    @Value("#{'${search.scope.admin-roles:SUPER_ADMIN,SYSTEM_ADMIN}'.split(',')}")
+    private Set<String> adminRoles;
+
+    // 用户名 -> 可见范围
+    private final Map<String, CachedScope> scopeCache = new ConcurrentHashMap<>();
+
+    @Override
+    public QueryBuilder currentScopeFilter() {
+        CachedScope scope = currentScope();
+        return scope != null ? scope.filter : PUBLIC_ONLY;
+    }
+
+    @Override
+    public Map<String, Object> currentScopeParams() {
+        CachedScope scope = currentScope();
+        if (scope != null && scope.filter == null) {
+            return null;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", scope != null ? scope.userId : null);
+        params.put("roleIds", scope != null ? scope.roleIds : Collections.emptyList());
+        return params;
+    }
+
+    @Override
+    public void evict(Long userId) {
+        scopeCache.values().removeIf(scope -> userId.equals(scope.userId));
+    }
+
+    /**
+     * 当前登录用户的可见范围，未登录时为null
+     */
+    private CachedScope currentScope() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || ANONYMOUS.equals(authentication.getName())) {
+            return null;
+        }
+
+        String username = authentication.getName();
+        long now = System.currentTimeMillis();
+        CachedScope cached = scopeCache.get(username);
+        if (cached == null || cached.expiresAt < now) {
+            cached = loadScope(username, now + cacheTtlMillis);
+            scopeCache.put(username, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * 公开 OR 本人上传 OR 分享给本人或所属角色
+     */
+    private CachedScope loadScope(String username, long expiresAt) {
+        User user = userMapper.selectByUsername(username);
+        if (user == null) {
+            return new CachedScope(null, Collections.emptyList(), PUBLIC_ONLY, expiresAt);
+        }
+
+        List<String> grants = new ArrayList<>();
+        List<Long> roleIds = new ArrayList<>();
+        grants.add(FileConstant.GRANT_USER_PREFIX + user.getId());
+        for (Role role : roleMapper.selectEnabledByUserId(user.getId())) {
+            if (adminRoles.contains(role.getRoleCode())) {
+                return new CachedScope(user.getId(), roleIds, null, expiresAt);
+            }
+            grants.add(FileConstant.GRANT_ROLE_PREFIX + role.getId());
+            roleIds.add(role.getId());
+        }
+
+        QueryBuilder filter = QueryBuilders.boolQuery()
+            .should(QueryBuilders.termQuery("isPublic", 1))
+            .should(QueryBuilders.termQuery("uploadUserId", user.getId()))
+            .should(QueryBuilders.termsQuery("shareGrants", grants))
+            .minimumShouldMatch(1);
+        logger.debug("加载搜索可见范围: {}, grants={}", username, grants);
+        return new CachedScope(user.getId(), roleIds, filter, expiresAt);
+    }
+
+    /**
+     * 缓存的可见范围，过滤条件创建后不再修改，可在线程间共享
+     */
+    private static class CachedScope {
+
+        private final Long userId;
+
+        private final List<Long> roleIds;
+
+        private final QueryBuilder filter;
+
+        private final long expiresAt;
+
+        CachedScope(Long userId, List<Long> roleIds, QueryBuilder filter, long expiresAt) {
+            this.userId = userId;
+            this.roleIds = Collections.unmodifiableList(roleIds);
+            this.filter = filter;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
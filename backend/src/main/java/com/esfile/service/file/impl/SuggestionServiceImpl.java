@@ -0,0 +1,293 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.util.SuggestionTrie;
+import com.esfile.entity.mybatis.EsSyncOutbox;
+import com.esfile.entity.mybatis.FileInfo;
+import com.esfile.mapper.EsSyncOutboxMapper;
+import com.esfile.mapper.FileInfoMapper;
+import com.esfile.service.file.HotSearchTermService;
+import com.esfile.service.file.SuggestionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜索建议服务实现类
+ * 启动后按ID分批加载全部文件的文件名和标签，之后每个节点各自读取索引同步中继已处理的发件箱记录，
+ * 按文件替换其贡献的词，不依赖中继所在节点；热门搜索词定时从热门统计同步，按差值调整权重
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class SuggestionServiceImpl implements SuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionServiceImpl.class);
+
+    // 与FileIndexingServiceImpl的检查点一致，只读取已同步到ES的变更
+    private static final String CHECKPOINT_NAME = "file_documents";
+
+    private static final String OP_PARTIAL = "PARTIAL";
+
+    // 超过该长度的词不加入前缀树
+    private static final int MAX_TERM_LENGTH = 100;
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private EsSyncOutboxMapper outboxMapper;
+
+    @Autowired
+    private HotSearchTermService hotSearchTermService;
+
+    @Value("${search.suggest.batch-size:2000}")
+    private int batchSize;
+
+    @Value("${search.suggest.sync-interval:1000}")
+    private long syncIntervalMillis;
+
+    @Value("${search.suggest.query-capacity:100}")
+    private int queryCapacity;
+
+    @Value("${search.suggest.query-boost:5}")
+    private int queryBoost;
+
+    private final SuggestionTrie trie = new SuggestionTrie();
+
+    // 文件ID -> 该文件贡献的词（文件名和标签）
+    private final Map<Long, List<String>> fileTerms = new ConcurrentHashMap<>();
+
+    // 热门搜索词 -> 当前在前缀树中的权重
+    private final Map<String, Long> queryWeights = new HashMap<>();
+
+    private volatile boolean ready;
+
+    private volatile boolean running;
+
+    private Thread syncThread;
+
+    private volatile long cursor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        syncThread = new Thread(this::syncLoop, "suggestion-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (syncThread != null) {
+            syncThread.interrupt();
+        }
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key == null || !ready) {
+            return new ArrayList<>();
+        }
+        return trie.top(key, limit);
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", ready);
+        stats.put("terms", trie.size());
+        stats.put("files", fileTerms.size());
+        synchronized (queryWeights) {
+            stats.put("queries", queryWeights.size());
+        }
+        stats.put("cursor", cursor);
+        return stats;
+    }
+
+    /**
+     * 同步热门搜索词，权重按估计频次放大，使常用查询排在普通文件名之前
+     */
+    @Scheduled(fixedDelayString = "${search.hot-terms.merge-interval:60000}")
+    public void syncPopularQueries() {
+        try {
+            Map<String, Long> latest = new HashMap<>();
+            for (Map<String, Object> item : hotSearchTermService.getHotTerms("week", queryCapacity)) {
+                long weight = ((Number) item.get("count")).longValue() * queryBoost;
+                if (weight > 0) {
+                    latest.put((String) item.get("term"), weight);
+                }
+            }
+            synchronized (queryWeights) {
+                for (Map.Entry<String, Long> entry : queryWeights.entrySet()) {
+                    Long weight = latest.get(entry.getKey());
+                    long delta = (weight != null ? weight : 0L) - entry.getValue();
+                    addTerm(entry.getKey(), delta);
+                }
+                for (Map.Entry<String, Long> entry : latest.entrySet()) {
+                    if (!queryWeights.containsKey(entry.getKey())) {
+                        addTerm(entry.getKey(), entry.getValue());
+                    }
+                }
+                queryWeights.clear();
+                queryWeights.putAll(latest);
+            }
+        } catch (Exception e) {
+            logger.warn("同步热门搜索词到前缀树失败", e);
+        }
+    }
+
+    private void syncLoop() {
+        while (running) {
+            try {
+                if (!ready) {
+                    bootstrap();
+                }
+                if (applyChanges() < batchSize) {
+                    TimeUnit.MILLISECONDS.sleep(syncIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("同步搜索建议失败", e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(syncIntervalMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 先记下中继检查点再加载全部文件，加载期间的变更随后按发件箱重放（按文件替换，重复应用无影响）
+     */
+    private void bootstrap() {
+        long start = System.currentTimeMillis();
+        Long checkpoint = outboxMapper.selectCheckpoint(CHECKPOINT_NAME);
+        cursor = checkpoint != null ? checkpoint : 0L;
+
+        long lastId = 0L;
+        List<FileInfo> batch;
+        while (running && !(batch = fileInfoMapper.selectBatchAfterId(lastId, batchSize)).isEmpty()) {
+            for (FileInfo fileInfo : batch) {
+                replaceFile(fileInfo.getId(), fileInfo);
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        ready = true;
+        logger.info("搜索建议前缀树加载完成: 文件{}个, 词{}个, 耗时{}ms",
+            fileTerms.size(), trie.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 应用中继检查点之前的发件箱记录，只统计数量的部分更新不影响建议
+     *
+     * @return 读取的发件箱记录数
+     */
+    private int applyChanges() {
+        Long checkpoint = outboxMapper.selectCheckpoint(CHECKPOINT_NAME);
+        if (checkpoint == null || checkpoint <= cursor) {
+            return 0;
+        }
+        List<EsSyncOutbox> outboxes = outboxMapper.selectAfterId(cursor, batchSize);
+        Set<Long> fileIds = new LinkedHashSet<>();
+        int read = 0;
+        for (EsSyncOutbox outbox : outboxes) {
+            if (outbox.getId() > checkpoint) {
+                break;
+            }
+            read++;
+            if (!OP_PARTIAL.equals(outbox.getOpType())) {
+                fileIds.add(outbox.getFileId());
+            }
+        }
+        if (read == 0) {
+            // 检查点之前的记录已被清理
+            cursor = checkpoint;
+            return 0;
+        }
+
+        if (!fileIds.isEmpty()) {
+            Map<Long, FileInfo> fileInfos = new HashMap<>();
+            for (FileInfo fileInfo : fileInfoMapper.selectByIds(new ArrayList<>(fileIds))) {
+                fileInfos.put(fileInfo.getId(), fileInfo);
+            }
+            for (Long fileId : fileIds) {
+                replaceFile(fileId, fileInfos.get(fileId));
+            }
+        }
+        cursor = outboxes.get(read - 1).getId();
+        return read;
+    }
+
+    /**
+     * 撤销文件原有的词，再加入当前的文件名和标签；文件不存在或不再公开时只撤销
+     */
+    private void replaceFile(Long fileId, FileInfo fileInfo) {
+        // 建议不按用户过滤，只收录公开文件
+        List<String> terms = new ArrayList<>();
+        if (fileInfo != null && Integer.valueOf(1).equals(fileInfo.getIsPublic())) {
+            addIfValid(terms, fileInfo.getFileName());
+            if (fileInfo.getTags() != null) {
+                for (String tag : fileInfo.getTags().split("[,，]")) {
+                    addIfValid(terms, tag);
+                }
+            }
+        }
+
+        List<String> previous = terms.isEmpty() ? fileTerms.remove(fileId) : fileTerms.put(fileId, terms);
+        if (previous != null) {
+            for (String term : previous) {
+                addTerm(term, -1);
+            }
+        }
+        for (String term : terms) {
+            addTerm(term, 1);
+        }
+    }
+
+    private void addTerm(String term, long delta) {
+        String key = normalize(term);
+        if (key != null) {
+            trie.add(key, term.trim(), delta);
+        }
+    }
+
+    private static void addIfValid(List<String> terms, String term) {
+        if (term == null) {
+            return;
+        }
+        String trimmed = term.trim();
+        if (!trimmed.isEmpty() && trimmed.length() <= MAX_TERM_LENGTH && !terms.contains(trimmed)) {
+            terms.add(trimmed);
+        }
+    }
+
+    private static String normalize(String term) {
+        if (term == null) {
+            return null;
+        }
+        String normalized = term.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+}
@@ -0,0 +1,415 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.entity.mybatis.FileInfo;
+import com.esfile.entity.mybatis.TagDict;
+import com.esfile.mapper.FileInfoMapper;
+import com.esfile.mapper.FileTagMapper;
+import com.esfile.mapper.TagDictMapper;
+import com.esfile.service.file.FileIndexingService;
+import com.esfile.service.file.SearchScopeService;
+import com.esfile.service.file.TagService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文件标签服务实现类
+ * 标签名在标签字典中只保存一份，文件与标签的关联保存在file_tag表；
+ * 同一文件的标签变更先锁定文件记录再比较差异，只增删变化的关联，并在同一事务中增减标签的文件数
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class TagServiceImpl implements TagService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagServiceImpl.class);
+
+    // 与tag_dict.tag_name的长度一致
+    private static final int MAX_TAG_LENGTH = 50;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final int MAX_POPULAR_LIMIT = 100;
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private FileTagMapper fileTagMapper;
+
+    @Autowired
+    private TagDictMapper tagDictMapper;
+
+    @Autowired
+    private FileIndexingService fileIndexingService;
+
+    @Autowired
+    private SearchScopeService searchScopeService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${file.tag.max-per-file:20}")
+    private int maxTagsPerFile;
+
+    @Value("${file.tag.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${file.search.count-limit:10000}")
+    private long countLimit;
+
+    // 标签名 -> 标签ID，标签字典只增不删，缓存项不会失效
+    private final Map<String, Long> tagIdCache = new ConcurrentHashMap<>();
+
+    // 写入标签字典使用的独立事务
+    private TransactionTemplate requiresNewTemplate;
+
+    @PostConstruct
+    public void init() {
+        requiresNewTemplate = new TransactionTemplate(transactionManager);
+        requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public List<String> parseTags(String tags) {
+        List<String> result = new ArrayList<>();
+        if (tags == null) {
+            return result;
+        }
+        for (String tag : tags.split("[,，]")) {
+            String name = tag.trim().replaceAll("\\s+", " ");
+            if (name.isEmpty() || result.contains(name)) {
+                continue;
+            }
+            if (name.codePointCount(0, name.length()) > MAX_TAG_LENGTH) {
+                throw new RuntimeException("标签长度不能超过" + MAX_TAG_LENGTH + "个字符: " + name);
+            }
+            result.add(name);
+        }
+        if (result.size() > maxTagsPerFile) {
+            throw new RuntimeException("标签数量不能超过" + maxTagsPerFile + "个");
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void syncTags(FileInfo fileInfo) {
+        FileInfo current = fileInfoMapper.selectByIdForUpdate(fileInfo.getId());
+        if (current == null) {
+            return;
+        }
+        saveTags(current, parseTags(fileInfo.getTags()));
+        fileInfo.setTags(current.getTags());
+    }
+
+    @Override
+    @Transactional
+    public boolean setFileTags(Long fileId, String tags) {
+        FileInfo fileInfo = fileInfoMapper.selectByIdForUpdate(fileId);
+        if (fileInfo == null) {
+            return false;
+        }
+        if (saveTags(fileInfo, parseTags(tags))) {
+            fileIndexingService.enqueueIndex(fileId);
+        }
+        logger.info("设置文件标签成功: fileId={}, tags={}", fileId, fileInfo.getTags());
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean addFileTag(Long fileId, String tag) {
+        List<String> added = parseTags(tag);
+        if (added.isEmpty()) {
+            return false;
+        }
+        FileInfo fileInfo = fileInfoMapper.selectByIdForUpdate(fileId);
+        if (fileInfo == null) {
+            return false;
+        }
+
+        List<String> names = parseTags(fileInfo.getTags());
+        for (String name : added) {
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+        if (names.size() > maxTagsPerFile) {
+            throw new RuntimeException("标签数量不能超过" + maxTagsPerFile + "个");
+        }
+        if (saveTags(fileInfo, names)) {
+            fileIndexingService.enqueueIndex(fileId);
+        }
+        logger.info("添加文件标签成功: fileId={}, tag={}", fileId, tag);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeFileTag(Long fileId, String tag) {
+        List<String> removed = parseTags(tag);
+        FileInfo fileInfo = fileInfoMapper.selectByIdForUpdate(fileId);
+        if (fileInfo == null) {
+            return false;
+        }
+
+        List<String> names = parseTags(fileInfo.getTags());
+        if (!names.removeAll(removed)) {
+            return false;
+        }
+        if (saveTags(fileInfo, names)) {
+            fileIndexingService.enqueueIndex(fileId);
+        }
+        logger.info("移除文件标签成功: fileId={}, tag={}", fileId, tag);
+        return true;
+    }
+
+    @Override
+    public List<String> getFileTags(Long fileId) {
+        return fileTagMapper.selectTagNamesByFileId(fileId);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void unbindTags(Long fileId) {
+        List<Long> tagIds = fileTagMapper.selectTagIdsForUpdate(fileId);
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        fileTagMapper.deleteByFileIdAndTagIds(fileId, tagIds);
+        updateFileCount(Collections.emptyList(), tagIds);
+    }
+
+    @Override
+    public Map<String, Object> searchByTags(List<String> tags, boolean matchAll, Integer page, Integer size) {
+        int pageNum = page != null && page > 0 ? page : 1;
+        int pageSize = size != null && size > 0 ? Math.min(size, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        List<String> names = parseTags(tags != null ? String.join(",", tags) : null);
+        Collection<Long> tagIds = findTagIds(names).values();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("page", pageNum);
+        result.put("size", pageSize);
+
+        // 全部匹配时任一标签不存在则没有结果；任一匹配时忽略不存在的标签
+        if (tagIds.isEmpty() || (matchAll && tagIds.size() < names.size())) {
+            result.put("list", new ArrayList<>());
+            result.put("total", 0L);
+            result.put("totalApproximate", false);
+            result.put("pages", 0L);
+            return result;
+        }
+
+        Integer matchCount = matchAll && tagIds.size() > 1 ? tagIds.size() : null;
+        Map<String, Object> scope = searchScopeService.currentScopeParams();
+        int offset = (pageNum - 1) * pageSize;
+        List<FileInfo> files = offset < countLimit
+            ? fileInfoMapper.selectByTagIds(tagIds, matchCount, scope, offset, pageSize)
+            : new ArrayList<>();
+        long total = fileInfoMapper.countByTagIds(tagIds, matchCount, scope, countLimit);
+        boolean approximate = total >= countLimit;
+
+        result.put("list", files);
+        result.put("total", total);
+        result.put("totalApproximate", approximate);
+        if (!approximate) {
+            result.put("pages", (total + pageSize - 1) / pageSize);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Map<String, Object>> getPopularTags(int limit) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (TagDict tag : tagDictMapper.selectPopular(Math.max(1, Math.min(limit, MAX_POPULAR_LIMIT)))) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("tag", tag.getTagName());
+            item.put("count", tag.getFileCount());
+            result.add(item);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> rebuildTags() {
+        long start = System.currentTimeMillis();
+        int files = 0;
+        int failed = 0;
+
+        long lastId = 0L;
+        List<FileInfo> batch;
+        while (!(batch = fileInfoMapper.selectBatchAfterId(lastId, REBUILD_BATCH_SIZE)).isEmpty()) {
+            for (FileInfo fileInfo : batch) {
+                try {
+                    // 每个文件一个事务，与在线的标签变更一样先锁定文件记录
+                    transactionTemplate.execute(status -> {
+                        FileInfo current = fileInfoMapper.selectByIdForUpdate(fileInfo.getId());
+                        if (current != null && saveTags(current, parseTags(current.getTags()))) {
+                            fileIndexingService.enqueueIndex(current.getId());
+                        }
+                        return null;
+                    });
+                    files++;
+                } catch (Exception e) {
+                    failed++;
+                    logger.warn("重建文件标签失败: fileId={}, tags={}, {}", fileInfo.getId(), fileInfo.getTags(), e.getMessage());
+                }
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+
+        // 增量计数只覆盖经过本服务的变更，最后按关联表校正一次
+        tagDictMapper.recountFileCount();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("files", files);
+        result.put("failed", failed);
+        logger.info("重建文件标签完成: 文件{}个, 失败{}个, 耗时{}ms", files, failed, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 按差异增删文件的标签关联并更新计数，规范化后的标签字符串有变化时回写文件信息
+     * 调用前必须已在当前事务中锁定文件记录
+     *
+     * @return 标签字符串是否有变化
+     */
+    private boolean saveTags(FileInfo fileInfo, List<String> names) {
+        Long fileId = fileInfo.getId();
+        Set<Long> desired = new HashSet<>(internTags(names));
+        Set<Long> current = new HashSet<>(fileTagMapper.selectTagIdsForUpdate(fileId));
+
+        List<Long> added = new ArrayList<>(desired);
+        added.removeAll(current);
+        List<Long> removed = new ArrayList<>(current);
+        removed.removeAll(desired);
+        if (!removed.isEmpty()) {
+            fileTagMapper.deleteByFileIdAndTagIds(fileId, removed);
+        }
+        if (!added.isEmpty()) {
+            fileTagMapper.insertBatch(fileId, added);
+        }
+        updateFileCount(added, removed);
+
+        String tags = names.isEmpty() ? null : String.join(",", names);
+        if (Objects.equals(tags, fileInfo.getTags())) {
+            return false;
+        }
+        fileInfoMapper.updateTags(fileId, tags);
+        fileInfo.setTags(tags);
+        return true;
+    }
+
+    /**
+     * 增减标签的文件数，合并为一条语句，避免并发事务以不同顺序锁定标签而死锁
+     */
+    private void updateFileCount(Collection<Long> added, Collection<Long> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (Long tagId : added) {
+            deltas.put(tagId, 1);
+        }
+        for (Long tagId : removed) {
+            deltas.put(tagId, -1);
+        }
+        tagDictMapper.updateFileCount(deltas);
+    }
+
+    /**
+     * 把标签名转换为标签ID，不存在的标签写入标签字典
+     *
+     * @return 标签ID，与标签名顺序一致
+     */
+    private List<Long> internTags(List<String> names) {
+        Map<String, Long> tagIds = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Long tagId = tagIdCache.get(name);
+            if (tagId != null) {
+                tagIds.put(name, tagId);
+            } else {
+                missing.add(name);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            // 在独立的短事务中查询和写入：调用方事务的一致性读看不到之后其他事务提交的标签，
+            // 且标签字典的唯一索引锁只在写入期间持有，不会延续到调用方事务结束
+            List<TagDict> tags = requiresNewTemplate.execute(status -> {
+                List<TagDict> found = tagDictMapper.selectByNames(missing);
+                if (found.size() < missing.size()) {
+                    tagDictMapper.insertIgnore(new TreeSet<>(missing));
+                    found = tagDictMapper.selectByNames(missing);
+                }
+                return found;
+            });
+            for (TagDict tag : tags) {
+                tagIds.put(tag.getTagName(), tag.getId());
+                cacheTag(tag);
+            }
+        }
+
+        List<Long> result = new ArrayList<>();
+        for (String name : names) {
+            Long tagId = tagIds.get(name);
+            if (tagId == null) {
+                throw new RuntimeException("写入标签字典失败: " + name);
+            }
+            result.add(tagId);
+        }
+        return result;
+    }
+
+    /**
+     * 查询已存在的标签ID，不写入标签字典
+     *
+     * @return 标签名 -> 标签ID，不存在的标签没有对应项
+     */
+    private Map<String, Long> findTagIds(List<String> names) {
+        Map<String, Long> tagIds = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Long tagId = tagIdCache.get(name);
+            if (tagId != null) {
+                tagIds.put(name, tagId);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (TagDict tag : tagDictMapper.selectByNames(missing)) {
+                tagIds.put(tag.getTagName(), tag.getId());
+                cacheTag(tag);
+            }
+        }
+        return tagIds;
+    }
+
+    private void cacheTag(TagDict tag) {
+        if (tagIdCache.size() < cacheSize) {
+            tagIdCache.put(tag.getTagName(), tag.getId());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.esfile.service.file.impl;
+
+import com.esfile.common.util.TokenBucket;
+import com.esfile.service.file.BandwidthShaper;
+import com.esfile.service.system.SystemConfigService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于令牌桶的下载带宽整形实现
+ * 单次请求、同一用户的所有下载和本节点全部下载各对应一个令牌桶，
+ * 写出数据前依次向各桶预占令牌并等待最长的时间；限速值取自系统配置download分类
+ *
+ * @author esfile
+ * @since 1.0.0
+ */
+@Service
+public class TokenBucketBandwidthShaper implements BandwidthShaper {
+
+    private static final String CONFIG_CATEGORY = "download";
+
+    // 每次预占令牌的最大字节数，保证多个下载交替写出
+    private static final int SLICE_SIZE = 64 * 1024;
+
+    // 令牌桶允许的突发时长
+    private static final long BURST_MILLIS = 200;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    private final TokenBucket globalBucket = new TokenBucket(0, BURST_MILLIS);
+
+    private final Map<String, UserBucket> userBuckets = new ConcurrentHashMap<>();
+
+    @Override
+    public OutputStream shape(OutputStream outputStream, String userKey, Long requestLimit) {
+        long configRequestLimit = getLimit("requestLimit");
+        long userLimit = getLimit("userLimit");
+        globalBucket.setRatePerSecond(getLimit("globalLimit"));
+
+        long effectiveRequestLimit = minLimit(requestLimit != null ? requestLimit : 0, configRequestLimit);
+        if (effectiveRequestLimit <= 0 && userLimit <= 0 && globalBucket.isUnlimited()) {
+            return outputStream;
+        }
+
+        List<TokenBucket> buckets = new ArrayList<>(3);
+        if (effectiveRequestLimit > 0) {
+            buckets.add(new TokenBucket(effectiveRequestLimit, BURST_MILLIS));
+        }
+        UserBucket userBucket = null;
+        if (userLimit > 0 && userKey != null) {
+            userBucket = acquireUserBucket(userKey, userLimit);
+            buckets.add(userBucket.bucket);
+        }
+        if (!globalBucket.isUnlimited()) {
+            buckets.add(globalBucket);
+        }
+        return new ThrottledOutputStream(outputStream, buckets, userKey, userBucket);
+    }
+
+    /**
+     * 获取用户令牌桶，同一用户的并发下载共享
+     */
+    private UserBucket acquireUserBucket(String userKey, long userLimit) {
+        return userBuckets.compute(userKey, (key, existing) -> {
+            UserBucket userBucket = existing != null ? existing : new UserBucket(userLimit);
+            userBucket.bucket.setRatePerSecond(userLimit);
+            userBucket.streams.incrementAndGet();
+            return userBucket;
+        });
+    }
+
+    /**
+     * 释放用户令牌桶，用户没有进行中的下载时移除
+     */
+    private void releaseUserBucket(String userKey, UserBucket userBucket) {
+        userBuckets.computeIfPresent(userKey, 
+            (key, existing) -> existing == userBucket && existing.streams.decrementAndGet() <= 0 ? null : existing);
+    }
+
+    private long getLimit(String key) {
+        Object value = systemConfigService.getConfigValue(CONFIG_CATEGORY, key);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String && !((String) value).trim().isEmpty()) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 取两个限速值中较严格的一个，不大于0表示不限速
+     */
+    private static long minLimit(long first, long second) {
+        if (first <= 0) {
+            return second;
+        }
+        return second <= 0 ? first : Math.min(first, second);
+    }
+
+    private static class UserBucket {
+
+        private final TokenBucket bucket;
+
+        private final AtomicInteger streams = new AtomicInteger();
+
+        UserBucket(long ratePerSecond) {
+            this.bucket = new TokenBucket(ratePerSecond, BURST_MILLIS);
+        }
+    }
+
+    /**
+     * 限速输出流
+     */
+    private class ThrottledOutputStream extends FilterOutputStream {
+
+        private final List<TokenBucket> buckets;
+
+        private final String userKey;
+
+        private final UserBucket userBucket;
+
+        private boolean closed;
+
+        ThrottledOutputStream(OutputStream out, List<TokenBucket> buckets, String userKey, UserBucket userBucket) {
+            super(out);
+            this.buckets = buckets;
+            this.userKey = userKey;
+            this.userBucket = userBucket;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            throttle(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int slice = Math.min(len, SLICE_SIZE);
+                throttle(slice);
+                out.write(b, off, slice);
+                off += slice;
+                len -= slice;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                if (userBucket != null) {
+                    releaseUserBucket(userKey, userBucket);
+                }
+            }
+        }
+
+        private void throttle(int bytes) throws IOException {
+            long waitNanos = 0;
+            for (TokenBucket bucket : buckets) {
+                waitNanos = Math.max(waitNanos, bucket.reserve(bytes));
+            }
+            if (waitNanos <= 0) {
+                return;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("下载限速等待被中断");
+            }
+        }
+    }
+}
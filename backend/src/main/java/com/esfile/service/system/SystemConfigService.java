@@ -13,6 +13,11 @@ public interface SystemConfigService {
      */
     List<Map<String, Object>> getSystemConfig(String category);
 
+    /**
+     * 获取指定分类下的单个配置值，不存在时返回null
+     */
+    Object getConfigValue(String category, String key);
+
     /**
      * 更新系统配置
      */
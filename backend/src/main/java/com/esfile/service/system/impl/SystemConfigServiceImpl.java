@@ -4,6 +4,7 @@ import com.esfile.service.system.SystemConfigService;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 系统配置服务实现类
@@ -12,7 +13,7 @@ import java.util.*;
 public class SystemConfigServiceImpl implements SystemConfigService {
 
     // 模拟数据库存储，实际应该从数据库或配置文件读取
-    private final Map<String, Object> systemConfigs = new HashMap<>();
+    private final Map<String, Object> systemConfigs = new ConcurrentHashMap<>();
     private final Map<String, Object> themeSettings = new HashMap<>();
     private final Map<String, Object> languageSettings = new HashMap<>();
 
@@ -37,8 +38,15 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         securityConfig.put("passwordMinLength", 8);
         securityConfig.put("enableCaptcha", true);
         
+        // 下载限速配置（字节/秒），0表示不限速
+        Map<String, Object> downloadConfig = new HashMap<>();
+        downloadConfig.put("requestLimit", 0L);
+        downloadConfig.put("userLimit", 0L);
+        downloadConfig.put("globalLimit", 0L);
+        
         systemConfigs.put("app", appConfig);
         systemConfigs.put("security", securityConfig);
+        systemConfigs.put("download", downloadConfig);
 
         // 主题设置
         themeSettings.put("primaryColor", "#409EFF");
@@ -82,6 +90,12 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         }
     }
 
+    @Override
+    public Object getConfigValue(String category, String key) {
+        Object config = systemConfigs.get(category);
+        return config instanceof Map ? ((Map<?, ?>) config).get(key) : null;
+    }
+
     @Override
     public boolean updateSystemConfig(Map<String, Object> config) {
         try {
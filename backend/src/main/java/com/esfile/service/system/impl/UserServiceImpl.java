@@ -3,6 +3,7 @@ package com.esfile.service.system.impl;
 import com.esfile.entity.mybatis.User;
 import com.esfile.entity.mybatis.UserRole;
 import com.esfile.mapper.UserMapper;
+import com.esfile.service.file.SearchScopeService;
 import com.esfile.service.system.UserService;
 import com.esfile.util.PasswordUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +25,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private SearchScopeService searchScopeService;
+
     @Override
     public Map<String, Object> getUserList(int page, int size, String keyword, String status, String role, String dept) {
         // 计算偏移量
@@ -235,6 +239,8 @@ public class UserServiceImpl implements UserService {
             }
         }
         
+        // 角色决定搜索可见范围，其他节点的缓存按过期时间刷新
+        searchScopeService.evict(userId);
         return true;
     }
 